@@ -0,0 +1,18 @@
+package com.movements.movementsmicroservice.DTO;
+
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MonthlyStatement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountStatementDto {
+    private String idBankAccount;
+    private List<MonthlyStatement> months;
+    private List<Movement> recentMovements;
+}
@@ -0,0 +1,19 @@
+package com.movements.movementsmicroservice.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BankAccountBalanceDto {
+    private String id;
+    private Double balance;
+    private boolean principal;
+    private Double commissionPercentage;
+
+    public BankAccountBalanceDto(String id, Double balance, boolean principal) {
+        this(id, balance, principal, null);
+    }
+}
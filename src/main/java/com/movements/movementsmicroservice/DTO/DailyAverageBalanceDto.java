@@ -0,0 +1,15 @@
+package com.movements.movementsmicroservice.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyAverageBalanceDto {
+    private String idBankAccount;
+    private String month;
+    private int days;
+    private Double averageDailyBalance;
+}
@@ -6,12 +6,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Data
-public class DebitCardDto {
+public class DebitCardSummaryDto {
     private String id;
     private String idClient;
     private String idPrincipalAccount;
-    private List<BankAccountDto> bankAccounts;
-    public DebitCardDto() {
+    private List<BankAccountBalanceDto> bankAccounts;
+    public DebitCardSummaryDto() {
         this.bankAccounts = new ArrayList<>();
     }
 }
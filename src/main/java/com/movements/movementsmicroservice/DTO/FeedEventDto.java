@@ -0,0 +1,14 @@
+package com.movements.movementsmicroservice.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEventDto {
+    private String type;
+    private String resumeToken;
+    private Object data;
+}
@@ -0,0 +1,20 @@
+package com.movements.movementsmicroservice.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Empty lists mean no restriction; types takes "movement", "payment" and "consumption".
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedFilterDto {
+    private String idClient;
+    private List<String> idBankAccounts = new ArrayList<>();
+    private List<String> idProductCredits = new ArrayList<>();
+    private List<String> idCreditCards = new ArrayList<>();
+    private List<String> types = new ArrayList<>();
+}
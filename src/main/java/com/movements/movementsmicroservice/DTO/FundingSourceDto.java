@@ -0,0 +1,13 @@
+package com.movements.movementsmicroservice.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FundingSourceDto {
+    private String idBankAccount;
+    private Double amount;
+}
@@ -1,74 +1,84 @@
 package com.movements.movementsmicroservice.client;
 
 import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.client.resilience.LastKnownGoodCache;
+import com.movements.movementsmicroservice.client.resilience.ResilientCall;
+import com.movements.movementsmicroservice.client.resilience.ResilientCallRegistry;
 import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
 public class BankAccountService {
+    private static final String ERROR_MESSAGE = "Service of Bank accounts is not working";
+    private static final String UPDATE_ERROR_MESSAGE =
+            "The update cannot be performed because the service of bank accounts is not available.";
     private final WebClient webClient;
-    private String errorMessage = "Service of Bank accounts is not working";
+    private final WebClient leanWebClient;
+    private final String leanFields;
+    private final WireFormat wireFormat;
+    private final ResilientCall resilientCall;
+    private final LastKnownGoodCache lastKnownGood;
 
-    public BankAccountService(WebClient.Builder webClientBuilder) {
+    public BankAccountService(WebClient.Builder webClientBuilder, ResilientCallRegistry resilientCallRegistry,
+                              LastKnownGoodCache lastKnownGood, LeanView leanView, WireFormat wireFormat) {
         this.webClient = webClientBuilder.baseUrl("http://appbank-microservice").build();
+        this.leanWebClient = leanView.lean(webClient);
+        this.leanFields = leanView.fields(BankAccountDto.class);
+        this.wireFormat = wireFormat;
+        this.resilientCall = resilientCallRegistry.resilientCall("bank-accounts", "bankAccountCircuitBreaker");
+        this.lastKnownGood = lastKnownGood;
     }
 
-    @CircuitBreaker(name = "bankAccountCircuitBreaker", fallbackMethod = "fallbackFindByIdBankAccount")
-    @TimeLimiter(name = "bankAccountCircuitBreaker")
     public Mono<BankAccountDto> findById(String id) {
-        return webClient.get()
-                .uri("/bank-accounts/{id}", id)
-                .retrieve()
-                .bodyToMono(BankAccountDto.class);
+        return resilientCall.hedgedRead("findById",
+                () -> leanWebClient.get()
+                        .uri(uri -> uri.path("/bank-accounts/{id}").queryParam("fields", leanFields).build(id))
+                        .accept(wireFormat.accept())
+                        .retrieve()
+                        .bodyToMono(BankAccountDto.class),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
     }
 
-    @CircuitBreaker(name = "bankAccountCircuitBreaker", fallbackMethod = "fallbackUpdate")
-    @TimeLimiter(name = "bankAccountCircuitBreaker")
     public Mono<BankAccountDto> update(String id, BankAccountDto bankAccountDto) {
-        return webClient.put()
-                .uri("/bank-accounts/{id}", id)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(Mono.just(bankAccountDto), BankAccountDto.class)
-                .retrieve()
-                .bodyToMono(BankAccountDto.class);
+        return resilientCall.write("update",
+                () -> wireFormat.write(contentType -> leanWebClient.put()
+                        .uri("/bank-accounts/{id}", id)
+                        .contentType(contentType)
+                        .accept(wireFormat.accept())
+                        .body(Mono.just(bankAccountDto), BankAccountDto.class)
+                        .retrieve()
+                        .bodyToMono(BankAccountDto.class)),
+                error -> Mono.error(new ServiceNotAvailableException(UPDATE_ERROR_MESSAGE)));
     }
 
-    @CircuitBreaker(name = "bankAccountCircuitBreaker", fallbackMethod = "fallbackFindBankAccountsByIdClient")
-    @TimeLimiter(name = "bankAccountCircuitBreaker")
     public Flux<BankAccountDto> findBankAccountsByIdClientWithAllMovementsSortedByDate(String idClient) {
+        return resilientCall.readMany("findAllByClient",
+                () -> lastKnownGood.record(byClientKey(idClient), fetchBankAccountsByIdClient(idClient)),
+                error -> lastKnownGood.serve(resilientCall.getCircuitBreakerName(), byClientKey(idClient),
+                        lastKnownGood.record(byClientKey(idClient), fetchBankAccountsByIdClient(idClient)),
+                        () -> new ServiceNotAvailableException(ERROR_MESSAGE)));
+    }
+
+    public Mono<BankAccountDto> findByIdWithoutMovements(String idClient) {
+        return resilientCall.read("findByIdWithoutMovements",
+                () -> webClient.get()
+                        .uri("/bank-accounts/findByIdWithoutMovements/{idClient}", idClient)
+                        .retrieve()
+                        .bodyToMono(BankAccountDto.class),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
+    }
+
+    private Flux<BankAccountDto> fetchBankAccountsByIdClient(String idClient) {
         return webClient.get()
                 .uri("/bank-accounts/findAllByClientWithMovements/{idClient}", idClient)
                 .retrieve()
                 .bodyToFlux(BankAccountDto.class);
     }
 
-    @CircuitBreaker(name = "bankAccountCircuitBreaker", fallbackMethod = "fallbackFindByIdWithoutMovements")
-    @TimeLimiter(name = "bankAccountCircuitBreaker")
-    public Mono<BankAccountDto> findByIdWithoutMovements(String idClient) {
-           return webClient.get()
-                .uri("/bank-accounts/findByIdWithoutMovements/{idClient}", idClient)
-                .retrieve()
-                .bodyToMono(BankAccountDto.class);
-    }
-    public Mono<BankAccountDto> fallbackFindByIdBankAccount(String id, Throwable error) {
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
-    }
-    public Mono<BankAccountDto> fallbackUpdate(String id, BankAccountDto bankAccountDto, Throwable error) {
-        errorMessage = "The update cannot be performed because the service of bank accounts is not available.";
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
-    }
-    public Flux<BankAccountDto> fallbackFindBankAccountsByIdClient(String id, Throwable error) {
-        return Flux.error(new ServiceNotAvailableException(errorMessage));
-    }
-    public Mono<BankAccountDto> fallbackFindByIdWithoutMovements(String id, Throwable error) {
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
+    private String byClientKey(String idClient) {
+        return "bank-accounts:by-client:" + idClient;
     }
 }
@@ -1,33 +1,30 @@
 package com.movements.movementsmicroservice.client;
 
 import com.movements.movementsmicroservice.DTO.ClientDto;
-import com.movements.movementsmicroservice.DTO.CreditDto;
+import com.movements.movementsmicroservice.client.resilience.ResilientCall;
+import com.movements.movementsmicroservice.client.resilience.ResilientCallRegistry;
 import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 @Service
 public class ClientService {
+    private static final String ERROR_MESSAGE = "Service of Clients is not working";
     private final WebClient webClient;
-    private String errorMessage = "Service of Clients is not working";
+    private final ResilientCall resilientCall;
 
-    public ClientService(WebClient.Builder webClient) {
+    public ClientService(WebClient.Builder webClient, ResilientCallRegistry resilientCallRegistry) {
         this.webClient = webClient.baseUrl("http://appbank-microservice").build();
+        this.resilientCall = resilientCallRegistry.resilientCall("clients", "clientCircuitBreaker");
     }
 
-    @CircuitBreaker(name = "clientCircuitBreaker", fallbackMethod = "fallbackFindByIdClient")
-    @TimeLimiter(name = "clientCircuitBreaker")
     public Mono<ClientDto> findById(String id) {
-        return webClient.get()
-                .uri("/client/{id}", id)
-                .retrieve()
-                .bodyToMono(ClientDto.class);
-    }
-
-    public Mono<String> fallbackFindByIdClient(String id, Throwable error) {
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
+        return resilientCall.read("findById",
+                () -> webClient.get()
+                        .uri("/client/{id}", id)
+                        .retrieve()
+                        .bodyToMono(ClientDto.class),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
     }
 }
@@ -1,10 +1,10 @@
 package com.movements.movementsmicroservice.client;
 
 import com.movements.movementsmicroservice.DTO.CreditCardDto;
+import com.movements.movementsmicroservice.client.resilience.LastKnownGoodCache;
+import com.movements.movementsmicroservice.client.resilience.ResilientCall;
+import com.movements.movementsmicroservice.client.resilience.ResilientCallRegistry;
 import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
@@ -12,51 +12,62 @@ import reactor.core.publisher.Mono;
 
 @Service
 public class CreditCardService {
+    private static final String ERROR_MESSAGE = "Service of Credit card is not working";
     private final WebClient webClient;
-    private final String errorMessage = "Service of Credit card is not working";
+    private final WebClient leanWebClient;
+    private final String leanFields;
+    private final WireFormat wireFormat;
+    private final ResilientCall resilientCall;
+    private final LastKnownGoodCache lastKnownGood;
 
-    public CreditCardService(WebClient.Builder webClient) {
+    public CreditCardService(WebClient.Builder webClient, ResilientCallRegistry resilientCallRegistry,
+                             LastKnownGoodCache lastKnownGood, LeanView leanView, WireFormat wireFormat) {
         this.webClient = webClient.baseUrl("http://appbank-microservice").build();
+        this.leanWebClient = leanView.lean(this.webClient);
+        this.leanFields = leanView.fields(CreditCardDto.class);
+        this.wireFormat = wireFormat;
+        this.resilientCall = resilientCallRegistry.resilientCall("credit-cards", "creditCardCircuitBreaker");
+        this.lastKnownGood = lastKnownGood;
     }
 
-    @CircuitBreaker(name = "creditCardCircuitBreaker", fallbackMethod = "fallbackFindByIdCreditCard")
-    @TimeLimiter(name = "creditCardCircuitBreaker")
     public Mono<CreditCardDto> findById(String id) {
-        return webClient.get()
-                .uri("/credit-cards/{id}", id)
-                .retrieve()
-                .bodyToMono(CreditCardDto.class);
+        return resilientCall.hedgedRead("findById",
+                () -> leanWebClient.get()
+                        .uri(uri -> uri.path("/credit-cards/{id}").queryParam("fields", leanFields).build(id))
+                        .accept(wireFormat.accept())
+                        .retrieve()
+                        .bodyToMono(CreditCardDto.class),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
     }
 
-    @CircuitBreaker(name = "creditCardCircuitBreaker", fallbackMethod = "fallbackUpdateCreditCard")
-    @TimeLimiter(name = "creditCardCircuitBreaker")
     public Mono<CreditCardDto> update(String id, CreditCardDto creditCardDto) {
-        return webClient.put()
-                .uri("/credit-cards/{id}", id)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(Mono.just(creditCardDto), CreditCardDto.class)
-                .retrieve()
-                .bodyToMono(CreditCardDto.class);
+        return resilientCall.write("update",
+                () -> wireFormat.write(contentType -> leanWebClient.put()
+                        .uri("/credit-cards/{id}", id)
+                        .contentType(contentType)
+                        .accept(wireFormat.accept())
+                        .body(Mono.just(creditCardDto), CreditCardDto.class)
+                        .retrieve()
+                        .bodyToMono(CreditCardDto.class)),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
     }
 
-    @CircuitBreaker(name = "creditCardCircuitBreaker", fallbackMethod = "fallbackAllCreditCardByIdClient")
-    @TimeLimiter(name = "creditCardCircuitBreaker")
     public Flux<CreditCardDto> allCreditCardsByIdClientWithPaymentAndConsumption(String idClient) {
+        return resilientCall.readMany("findAllByClient",
+                () -> lastKnownGood.record(byClientKey(idClient), fetchCreditCardsByIdClient(idClient)),
+                error -> lastKnownGood.serve(resilientCall.getCircuitBreakerName(), byClientKey(idClient),
+                        lastKnownGood.record(byClientKey(idClient), fetchCreditCardsByIdClient(idClient)),
+                        () -> new ServiceNotAvailableException(ERROR_MESSAGE)));
+    }
+
+    private Flux<CreditCardDto> fetchCreditCardsByIdClient(String idClient) {
         return webClient.get()
                 .uri("/credit-cards/findAllByIdClientWithMovements/{idClient}", idClient)
                 .retrieve()
                 .bodyToFlux(CreditCardDto.class);
     }
 
-    public Mono<CreditCardDto> fallbackFindByIdCreditCard(String id, Throwable error) {
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
-    }
-
-    public Mono<CreditCardDto> fallbackUpdateCreditCard(String id, CreditCardDto creditCardDto, Throwable error) {
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
-    }
-
-    public Flux<CreditCardDto> fallbackAllCreditCardByIdClient(String idClient, Throwable error) {
-        return Flux.error(new ServiceNotAvailableException(errorMessage));
+    private String byClientKey(String idClient) {
+        return "credit-cards:by-client:" + idClient;
     }
 }
@@ -1,11 +1,10 @@
 package com.movements.movementsmicroservice.client;
 
-import com.movements.movementsmicroservice.DTO.CreditCardDto;
 import com.movements.movementsmicroservice.DTO.CreditDto;
+import com.movements.movementsmicroservice.client.resilience.LastKnownGoodCache;
+import com.movements.movementsmicroservice.client.resilience.ResilientCall;
+import com.movements.movementsmicroservice.client.resilience.ResilientCallRegistry;
 import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
@@ -13,50 +12,62 @@ import reactor.core.publisher.Mono;
 
 @Service
 public class CreditService {
+    private static final String ERROR_MESSAGE = "Service of Credits is not working";
     private final WebClient webClient;
-    private final String errorMessage = "Service of Credits is not working";
+    private final WebClient leanWebClient;
+    private final String leanFields;
+    private final WireFormat wireFormat;
+    private final ResilientCall resilientCall;
+    private final LastKnownGoodCache lastKnownGood;
 
-    public CreditService(WebClient.Builder webClient) {
+    public CreditService(WebClient.Builder webClient, ResilientCallRegistry resilientCallRegistry,
+                         LastKnownGoodCache lastKnownGood, LeanView leanView, WireFormat wireFormat) {
         this.webClient = webClient.baseUrl("http://appbank-microservice").build();
+        this.leanWebClient = leanView.lean(this.webClient);
+        this.leanFields = leanView.fields(CreditDto.class);
+        this.wireFormat = wireFormat;
+        this.resilientCall = resilientCallRegistry.resilientCall("credits", "creditCircuitBreaker");
+        this.lastKnownGood = lastKnownGood;
     }
 
-    @CircuitBreaker(name = "creditCircuitBreaker", fallbackMethod = "fallbackFindById")
-    @TimeLimiter(name = "creditCircuitBreaker")
     public Mono<CreditDto> findById(String id) {
-        return webClient.get()
-                .uri("/credits/{id}", id)
-                .retrieve()
-                .bodyToMono(CreditDto.class);
+        return resilientCall.hedgedRead("findById",
+                () -> leanWebClient.get()
+                        .uri(uri -> uri.path("/credits/{id}").queryParam("fields", leanFields).build(id))
+                        .accept(wireFormat.accept())
+                        .retrieve()
+                        .bodyToMono(CreditDto.class),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
     }
 
-    @CircuitBreaker(name = "creditCircuitBreaker", fallbackMethod = "fallbackUpdateCredit")
-    @TimeLimiter(name = "creditCircuitBreaker")
     public Mono<CreditDto> update(String id, CreditDto creditCardDto) {
-        return webClient.put()
-                .uri("/credits/{id}", id)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(creditCardDto)
-                .retrieve()
-                .bodyToMono(CreditDto.class);
+        return resilientCall.write("update",
+                () -> wireFormat.write(contentType -> leanWebClient.put()
+                        .uri("/credits/{id}", id)
+                        .contentType(contentType)
+                        .accept(wireFormat.accept())
+                        .bodyValue(creditCardDto)
+                        .retrieve()
+                        .bodyToMono(CreditDto.class)),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
     }
 
-    @CircuitBreaker(name = "creditCircuitBreaker", fallbackMethod = "fallbackAllCreditsByIdClient")
-    @TimeLimiter(name = "creditCircuitBreaker")
     public Flux<CreditDto> allCreditsByIdClientWithAllPaymentsSortedByDatePayment(String idClient) {
+        return resilientCall.readMany("findAllByClient",
+                () -> lastKnownGood.record(byClientKey(idClient), fetchCreditsByIdClient(idClient)),
+                error -> lastKnownGood.serve(resilientCall.getCircuitBreakerName(), byClientKey(idClient),
+                        lastKnownGood.record(byClientKey(idClient), fetchCreditsByIdClient(idClient)),
+                        () -> new ServiceNotAvailableException(ERROR_MESSAGE)));
+    }
+
+    private Flux<CreditDto> fetchCreditsByIdClient(String idClient) {
         return webClient.get()
                 .uri("/credits/findAllByClientWithPayments/{idClient}", idClient)
                 .retrieve()
                 .bodyToFlux(CreditDto.class);
     }
 
-    public Mono<CreditDto> fallbackFindById(String id, Throwable error) {
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
-    }
-    public Mono<CreditDto> fallbackUpdateCredit(String id, CreditDto creditCardDto, Throwable error) {
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
+    private String byClientKey(String idClient) {
+        return "credits:by-client:" + idClient;
     }
-    public Flux<CreditDto> fallbackAllCreditsByIdClient(String idClient, Throwable error) {
-        return Flux.error(new ServiceNotAvailableException(errorMessage));
-    }
-
 }
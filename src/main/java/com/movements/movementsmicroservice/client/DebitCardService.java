@@ -1,12 +1,10 @@
 package com.movements.movementsmicroservice.client;
 
-import com.movements.movementsmicroservice.DTO.DebitCardDto;
+import com.movements.movementsmicroservice.DTO.DebitCardSummaryDto;
+import com.movements.movementsmicroservice.client.resilience.ResilientCall;
+import com.movements.movementsmicroservice.client.resilience.ResilientCallRegistry;
 import com.movements.movementsmicroservice.exceptions.DebitCardProblemException;
 import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -14,27 +12,34 @@ import reactor.core.publisher.Mono;
 
 @Service
 public class DebitCardService {
+    private static final String ERROR_MESSAGE = "Service of Debit cards is not working";
+    private static final String SUMMARY_FIELDS =
+            "id,idClient,idPrincipalAccount,bankAccounts.id,bankAccounts.balance,bankAccounts.commissionPercentage";
     private final WebClient webClient;
-    private final static Logger log = LoggerFactory.getLogger(DebitCardService.class);
+    private final ResilientCall resilientCall;
 
-    public DebitCardService(WebClient.Builder webClient) {
+    public DebitCardService(WebClient.Builder webClient, ResilientCallRegistry resilientCallRegistry) {
         this.webClient = webClient.baseUrl("http://appbank-microservice/debit-cards").build();
+        this.resilientCall = resilientCallRegistry.resilientCall("debit-cards", "debitCardCircuitBreaker");
     }
 
-    @CircuitBreaker(name = "debitCardCircuitBreaker", fallbackMethod = "fallbackFindByIdWithBankAccounts")
-    public Mono<DebitCardDto> findByIdWithBankAccountsOrderByCreatedAt(String idDebitCard) {
-        return webClient.get()
-                .uri("/findByIdWithBankAccountsOrderByCreatedAt/{idDebitCard}", idDebitCard)
-                .retrieve()
-                .onStatus(HttpStatus::is4xxClientError, response ->
-                        response.bodyToMono(Error.class)
-                                .flatMap(error -> Mono.error(new DebitCardProblemException(error.getMessage())))
-                )
-                .bodyToMono(DebitCardDto.class);
-    }
-
-    public Mono<DebitCardDto> fallbackFindByIdWithBankAccounts(String idDebitCard, Throwable error) {
-        String errorMessage = "Service of Debit cards is not working";
-        return Mono.error(new ServiceNotAvailableException(errorMessage));
+    /**
+     * Asks upstream for the ids and balances of the accounts only, with the same fields filter as the lean reads of
+     * single products. A server that ignores the filter still sends the movements of every account; they are then
+     * skipped while parsing.
+     */
+    public Mono<DebitCardSummaryDto> findSummaryByIdOrderByCreatedAt(String idDebitCard) {
+        return resilientCall.read("findSummaryById",
+                () -> webClient.get()
+                        .uri(uri -> uri.path("/findByIdWithBankAccountsOrderByCreatedAt/{idDebitCard}")
+                                .queryParam("fields", SUMMARY_FIELDS)
+                                .build(idDebitCard))
+                        .retrieve()
+                        .onStatus(HttpStatus::is4xxClientError, response ->
+                                response.bodyToMono(Error.class)
+                                        .flatMap(error -> Mono.error(new DebitCardProblemException(error.getMessage())))
+                        )
+                        .bodyToMono(DebitCardSummaryDto.class),
+                error -> Mono.error(new ServiceNotAvailableException(ERROR_MESSAGE)));
     }
 }
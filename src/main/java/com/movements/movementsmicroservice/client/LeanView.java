@@ -0,0 +1,66 @@
+package com.movements.movementsmicroservice.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.DTO.CreditCardDto;
+import com.movements.movementsmicroservice.DTO.CreditDto;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the bank products without their embedded histories. The ignored arrays are skipped token by token while
+ * parsing, so no movement, payment or consumption is allocated when only balances or limits are needed. The
+ * remaining properties are also sent upstream as a fields filter so a server that supports it can omit the rest.
+ * Writes still serialize the arrays, so an update never sends a product without its histories.
+ */
+@Component
+public class LeanView {
+    private final ObjectMapper leanMapper;
+    private final ObjectMapper leanSmileMapper;
+
+    public LeanView(Jackson2ObjectMapperBuilder jacksonBuilder) {
+        jacksonBuilder.mixIn(BankAccountDto.class, WithoutMovements.class)
+                .mixIn(CreditDto.class, WithoutPaymentsAndConsumptions.class)
+                .mixIn(CreditCardDto.class, WithoutPaymentsAndConsumptions.class);
+        this.leanMapper = jacksonBuilder.build();
+        this.leanSmileMapper = jacksonBuilder.factory(new SmileFactory()).build();
+    }
+
+    public WebClient lean(WebClient webClient) {
+        return webClient.mutate()
+                .codecs(WireFormat.codecs(leanMapper, leanSmileMapper))
+                .build();
+    }
+
+    public String fields(Class<?> type) {
+        SerializationConfig config = leanMapper.getSerializationConfig();
+        BeanDescription description = config.introspect(leanMapper.constructType(type));
+        Set<String> ignored = config.getDefaultPropertyIgnorals(type, description.getClassInfo())
+                .findIgnoredForDeserialization();
+        return description.findProperties().stream()
+                .map(BeanPropertyDefinition::getName)
+                .filter(name -> !ignored.contains(name))
+                .collect(Collectors.joining(","));
+    }
+
+    ObjectMapper getLeanMapper() {
+        return leanMapper;
+    }
+
+    @JsonIgnoreProperties(value = {"movements"}, allowGetters = true)
+    private abstract static class WithoutMovements {
+    }
+
+    @JsonIgnoreProperties(value = {"payments", "consumptions"}, allowGetters = true)
+    private abstract static class WithoutPaymentsAndConsumptions {
+    }
+}
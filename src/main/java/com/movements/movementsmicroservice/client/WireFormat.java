@@ -0,0 +1,57 @@
+package com.movements.movementsmicroservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ClientCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Opt-in Smile (binary JSON) between this service and appbank-microservice. Reads ask for Smile with JSON as fallback
+ * and are decoded by the Content-Type of the response; writes are sent as Smile and repeated as JSON when the upstream
+ * answers 415.
+ */
+@Component
+public class WireFormat {
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final MediaType JSON_FALLBACK = new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.5"));
+    private final boolean compact;
+
+    public WireFormat(@Value("${movements.http-client.compact-encoding:false}") boolean compact) {
+        this.compact = compact;
+    }
+
+    public static Consumer<ClientCodecConfigurer> codecs(ObjectMapper jsonMapper, ObjectMapper smileMapper) {
+        return codecs -> {
+            codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(jsonMapper));
+            codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(jsonMapper));
+            codecs.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE));
+            codecs.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, APPLICATION_SMILE));
+        };
+    }
+
+    public MediaType[] accept() {
+        return compact
+                ? new MediaType[]{APPLICATION_SMILE, JSON_FALLBACK}
+                : new MediaType[]{MediaType.APPLICATION_JSON};
+    }
+
+    public <T> Mono<T> write(Function<MediaType, Mono<T>> exchange) {
+        if (!compact) {
+            return exchange.apply(MediaType.APPLICATION_JSON);
+        }
+        return exchange.apply(APPLICATION_SMILE)
+                .onErrorResume(WebClientResponseException.UnsupportedMediaType.class,
+                        error -> exchange.apply(MediaType.APPLICATION_JSON));
+    }
+}
@@ -0,0 +1,132 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive bulkhead whose concurrency limit follows AIMD: the limit grows by one call per round of
+ * successful calls under the latency threshold and is cut by the backoff ratio when a call is slow,
+ * fails with an overload error or is cancelled by a time limiter. Calls over the limit are rejected
+ * immediately with {@link ServiceNotAvailableException}.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMs, double backoffRatio) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public <T> Mono<T> limit(Mono<T> source) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(rejection());
+            }
+            CallRecord call = new CallRecord();
+            return source
+                    .doOnError(call::failed)
+                    .doFinally(signal -> release(call, signal));
+        });
+    }
+
+    public <T> Flux<T> limit(Flux<T> source) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(rejection());
+            }
+            CallRecord call = new CallRecord();
+            return source
+                    .doOnError(call::failed)
+                    .doFinally(signal -> release(call, signal));
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(CallRecord call, SignalType signal) {
+        long elapsed = System.nanoTime() - call.startNanos;
+        int inFlightBeforeRelease = inFlight.getAndDecrement();
+        if (signal == SignalType.CANCEL || call.overloaded || elapsed > latencyThresholdNanos) {
+            decrease();
+        } else if (inFlightBeforeRelease * 2 >= (int) limit) {
+            increase();
+        }
+    }
+
+    private synchronized void increase() {
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private ServiceNotAvailableException rejection() {
+        return new ServiceNotAvailableException("Too many concurrent calls to the service of " + name);
+    }
+
+    // Client errors come from a healthy dependency; only timeouts, connection errors and 5xx mean overload.
+    private static boolean isOverload(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            return ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+        }
+        return error instanceof TimeoutException || error instanceof WebClientRequestException;
+    }
+
+    private static final class CallRecord {
+        private final long startNanos = System.nanoTime();
+        private volatile boolean overloaded;
+
+        private void failed(Throwable error) {
+            overloaded = isOverload(error);
+        }
+    }
+}
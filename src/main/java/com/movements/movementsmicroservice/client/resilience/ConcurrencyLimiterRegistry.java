@@ -0,0 +1,53 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Settings come from movements.concurrency-limit.<dependency>.* with movements.concurrency-limit.default.* as fallback
+@Component
+public class ConcurrencyLimiterRegistry {
+    private static final String PREFIX = "movements.concurrency-limit.";
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiterRegistry(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public AdaptiveConcurrencyLimiter limiter(String dependency) {
+        return limiters.computeIfAbsent(dependency, this::create);
+    }
+
+    private AdaptiveConcurrencyLimiter create(String dependency) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(dependency,
+                property(dependency, "initial-limit", Integer.class, 20),
+                property(dependency, "min-limit", Integer.class, 2),
+                property(dependency, "max-limit", Integer.class, 200),
+                property(dependency, "latency-threshold-ms", Long.class, 1000L),
+                property(dependency, "backoff-ratio", Double.class, 0.9));
+        Gauge.builder("movements.client.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        Gauge.builder("movements.client.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        FunctionCounter.builder("movements.client.concurrency.rejected", limiter,
+                        AdaptiveConcurrencyLimiter::getRejected)
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    private <T> T property(String dependency, String key, Class<T> type, T defaultValue) {
+        T fallback = environment.getProperty(PREFIX + "default." + key, type, defaultValue);
+        return environment.getProperty(PREFIX + dependency + "." + key, type, fallback);
+    }
+}
@@ -0,0 +1,118 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.circuitbreaker.event.CircuitBreakerOnStateTransitionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Last successful answer of read-only remote calls, served by the fallbacks while a dependency is failing.
+ * Each snapshot keeps the instant it was stored so the age of the data served is measured. Keys served stale
+ * are revalidated in the background once the circuit breaker of the dependency goes half-open.
+ */
+@Component
+public class LastKnownGoodCache {
+    private static final Logger log = LoggerFactory.getLogger(LastKnownGoodCache.class);
+    private final Cache<String, Snapshot> snapshots;
+    private final Map<String, Map<String, Flux<?>>> pendingRevalidations = new ConcurrentHashMap<>();
+    private final Set<String> watchedCircuitBreakers = ConcurrentHashMap.newKeySet();
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final Clock clock;
+    private final int maxRevalidations;
+    private final Counter servedStale;
+    private final Timer staleAge;
+
+    public LastKnownGoodCache(CircuitBreakerRegistry circuitBreakerRegistry,
+                              MeterRegistry meterRegistry,
+                              Clock clock,
+                              @Value("${movements.last-known-good.max-size:10000}") long maxSize,
+                              @Value("${movements.last-known-good.max-age-ms:3600000}") long maxAgeMs,
+                              @Value("${movements.last-known-good.max-revalidations:20}") int maxRevalidations) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.clock = clock;
+        this.maxRevalidations = maxRevalidations;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(maxAgeMs))
+                .build();
+        this.servedStale = meterRegistry.counter("movements.client.last-known-good.served");
+        this.staleAge = meterRegistry.timer("movements.client.last-known-good.age");
+    }
+
+    public <T> Flux<T> record(String key, Flux<T> source) {
+        return source.collectList()
+                .doOnNext(values -> snapshots.put(key, new Snapshot(values, clock.instant())))
+                .flatMapIterable(values -> values);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> serve(String circuitBreakerName, String key, Flux<T> revalidation,
+                             Supplier<? extends RuntimeException> unavailable) {
+        return Flux.defer(() -> {
+            Snapshot snapshot = snapshots.getIfPresent(key);
+            if (snapshot == null) {
+                return Flux.error(unavailable.get());
+            }
+            Duration age = Duration.between(snapshot.storedAt, clock.instant());
+            servedStale.increment();
+            staleAge.record(age);
+            log.warn("Serving {} from the last known good answer, {} s old", key, age.getSeconds());
+            scheduleRevalidation(circuitBreakerName, key, revalidation);
+            return Flux.fromIterable((List<T>) snapshot.values);
+        });
+    }
+
+    private void scheduleRevalidation(String circuitBreakerName, String key, Flux<?> revalidation) {
+        if (watchedCircuitBreakers.add(circuitBreakerName)) {
+            circuitBreakerRegistry.circuitBreaker(circuitBreakerName)
+                    .getEventPublisher()
+                    .onStateTransition(this::revalidateOnHalfOpen);
+        }
+        Map<String, Flux<?>> pending = pendingRevalidations
+                .computeIfAbsent(circuitBreakerName, name -> new ConcurrentHashMap<>());
+        if (pending.size() < maxRevalidations) {
+            pending.putIfAbsent(key, revalidation);
+        }
+    }
+
+    private void revalidateOnHalfOpen(CircuitBreakerOnStateTransitionEvent event) {
+        if (event.getStateTransition().getToState() != CircuitBreaker.State.HALF_OPEN) {
+            return;
+        }
+        Map<String, Flux<?>> pending = pendingRevalidations.remove(event.getCircuitBreakerName());
+        if (pending == null) {
+            return;
+        }
+        pending.forEach((key, revalidation) -> revalidation.subscribe(
+                value -> { },
+                error -> log.debug("Revalidation of {} failed: {}", key, error.getMessage())));
+    }
+
+    private static final class Snapshot {
+        private final List<?> values;
+        private final Instant storedAt;
+
+        private Snapshot(List<?> values, Instant storedAt) {
+            this.values = values;
+            this.storedAt = storedAt;
+        }
+    }
+}
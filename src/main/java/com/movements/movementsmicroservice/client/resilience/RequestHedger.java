@@ -0,0 +1,107 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Hedges idempotent reads: when the first attempt has not answered after the configured latency percentile,
+ * a second attempt is sent (the load balancer routes it to the next instance) and the first value wins,
+ * cancelling the other attempt. Hedges are paid from a token bucket filled by every request, so they never
+ * exceed the budget percentage of the traffic. Errors of the first attempt are propagated as they are.
+ */
+public class RequestHedger {
+    private static final int WINDOW_SIZE = 256;
+    private static final int MIN_SAMPLES = 32;
+    private static final double MAX_TOKENS = 10.0;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final double budgetRatio;
+    private final long minDelayMs;
+    private final Counter requests;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private int samples;
+    private int sinceLastDelay;
+    private int next;
+    private double tokens;
+    private volatile long hedgeDelayMs = -1;
+
+    public RequestHedger(boolean enabled, double percentile, double budgetPercent, long minDelayMs,
+                         Counter requests, Counter hedges, Counter hedgeWins) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.budgetRatio = budgetPercent / 100;
+        this.minDelayMs = minDelayMs;
+        this.requests = requests;
+        this.hedges = hedges;
+        this.hedgeWins = hedgeWins;
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return Mono.defer(() -> {
+            requests.increment();
+            depositToken();
+            Mono<T> primary = timed(call.get());
+            long delayMs = hedgeDelayMs;
+            if (delayMs < 0) {
+                return primary;
+            }
+            Mono<T> hedge = Mono.delay(Duration.ofMillis(delayMs))
+                    .then(Mono.defer(() -> {
+                        if (!tryTakeToken()) {
+                            return Mono.never();
+                        }
+                        hedges.increment();
+                        return timed(call.get())
+                                .doOnNext(value -> hedgeWins.increment())
+                                .onErrorResume(error -> Mono.never());
+                    }));
+            return Mono.firstWithSignal(primary, hedge);
+        });
+    }
+
+    public long getHedgeDelayMs() {
+        return hedgeDelayMs;
+    }
+
+    private <T> Mono<T> timed(Mono<T> attempt) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt.doOnSuccess(value -> record((System.nanoTime() - start) / 1_000_000));
+        });
+    }
+
+    private synchronized void record(long latencyMs) {
+        latencies[next] = latencyMs;
+        next = (next + 1) % WINDOW_SIZE;
+        samples = Math.min(samples + 1, WINDOW_SIZE);
+        if (++sinceLastDelay >= MIN_SAMPLES) {
+            sinceLastDelay = 0;
+            long[] window = Arrays.copyOf(latencies, samples);
+            Arrays.sort(window);
+            int index = (int) Math.ceil(percentile * window.length) - 1;
+            hedgeDelayMs = Math.max(minDelayMs, window[Math.max(0, index)]);
+        }
+    }
+
+    private synchronized void depositToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+    }
+
+    private synchronized boolean tryTakeToken() {
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+}
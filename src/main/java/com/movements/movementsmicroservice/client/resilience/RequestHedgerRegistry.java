@@ -0,0 +1,49 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Settings come from movements.hedging.<dependency>.* with movements.hedging.default.* as fallback
+@Component
+public class RequestHedgerRegistry {
+    private static final String PREFIX = "movements.hedging.";
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RequestHedger> hedgers = new ConcurrentHashMap<>();
+
+    public RequestHedgerRegistry(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public RequestHedger hedger(String dependency) {
+        return hedgers.computeIfAbsent(dependency, this::create);
+    }
+
+    private RequestHedger create(String dependency) {
+        return new RequestHedger(
+                property(dependency, "enabled", Boolean.class, false),
+                property(dependency, "percentile", Double.class, 0.95),
+                property(dependency, "budget-percent", Double.class, 5.0),
+                property(dependency, "min-delay-ms", Long.class, 10L),
+                counter("movements.client.hedge.requests", dependency),
+                counter("movements.client.hedge.sent", dependency),
+                counter("movements.client.hedge.wins", dependency));
+    }
+
+    private Counter counter(String name, String dependency) {
+        return Counter.builder(name)
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+    }
+
+    private <T> T property(String dependency, String key, Class<T> type, T defaultValue) {
+        T fallback = environment.getProperty(PREFIX + "default." + key, type, defaultValue);
+        return environment.getProperty(PREFIX + dependency + "." + key, type, fallback);
+    }
+}
@@ -0,0 +1,126 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Resilience pipeline of the remote calls to one dependency. Every attempt runs inside the time limiter and the
+ * circuit breaker, wrapped by the adaptive bulkhead so that its local rejections are not counted by the breaker
+ * as failures of the dependency; reads are retried with jittered exponential backoff on transient errors, writes
+ * are never retried. Only the reads opted in with hedgedRead are hedged. Each call is timed by operation and
+ * outcome before the fallback is applied. It holds no per-call state, so one instance is shared by all requests.
+ */
+public class ResilientCall {
+    private final String dependency;
+    private final CircuitBreaker circuitBreaker;
+    private final TimeLimiter timeLimiter;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final RequestHedger hedger;
+    private final Retry retry;
+    private final MeterRegistry meterRegistry;
+
+    public ResilientCall(String dependency, CircuitBreaker circuitBreaker, TimeLimiter timeLimiter,
+                         AdaptiveConcurrencyLimiter limiter, RequestHedger hedger,
+                         int maxRetries, Duration minBackoff, Duration maxBackoff, double jitter,
+                         MeterRegistry meterRegistry) {
+        this.dependency = dependency;
+        this.circuitBreaker = circuitBreaker;
+        this.timeLimiter = timeLimiter;
+        this.limiter = limiter;
+        this.hedger = hedger;
+        this.meterRegistry = meterRegistry;
+        Counter retries = Counter.builder("movements.client.retries")
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        this.retry = Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter)
+                .filter(ResilientCall::isTransient)
+                .doBeforeRetry(signal -> retries.increment())
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    public String getCircuitBreakerName() {
+        return circuitBreaker.getName();
+    }
+
+    public <T> Mono<T> read(String operation, Supplier<Mono<T>> call, Function<Throwable, Mono<T>> fallback) {
+        return measured(operation, attempt(call).retryWhen(retry)).onErrorResume(fallback);
+    }
+
+    // For cheap idempotent reads of a single product, where a second attempt costs little upstream.
+    public <T> Mono<T> hedgedRead(String operation, Supplier<Mono<T>> call,
+                                  Function<Throwable, Mono<T>> fallback) {
+        Mono<T> attempts = hedger.hedge(() -> attempt(call))
+                .retryWhen(retry);
+        return measured(operation, attempts).onErrorResume(fallback);
+    }
+
+    public <T> Flux<T> readMany(String operation, Supplier<Flux<T>> call, Function<Throwable, Flux<T>> fallback) {
+        Flux<T> attempts = Flux.defer(call)
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transform(limiter::limit)
+                .retryWhen(retry);
+        return measured(operation, attempts).onErrorResume(fallback);
+    }
+
+    public <T> Mono<T> write(String operation, Supplier<Mono<T>> call, Function<Throwable, Mono<T>> fallback) {
+        return measured(operation, attempt(call)).onErrorResume(fallback);
+    }
+
+    private <T> Mono<T> attempt(Supplier<Mono<T>> call) {
+        return Mono.defer(call)
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transform(limiter::limit);
+    }
+
+    private <T> Mono<T> measured(String operation, Mono<T> source) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return source
+                    .doOnSuccess(value -> stop(sample, operation, "success"))
+                    .doOnError(error -> stop(sample, operation, "error"));
+        });
+    }
+
+    private <T> Flux<T> measured(String operation, Flux<T> source) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return source
+                    .doOnComplete(() -> stop(sample, operation, "success"))
+                    .doOnError(error -> stop(sample, operation, "error"));
+        });
+    }
+
+    private void stop(Timer.Sample sample, String operation, String outcome) {
+        sample.stop(Timer.builder("movements.client.calls")
+                .tag("dependency", dependency)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private static boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            return ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+        }
+        return error instanceof TimeoutException || error instanceof WebClientRequestException;
+    }
+}
@@ -0,0 +1,54 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Retries come from movements.retry.<dependency>.* with movements.retry.default.* as fallback
+@Component
+public class ResilientCallRegistry {
+    private static final String PREFIX = "movements.retry.";
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final ConcurrencyLimiterRegistry limiterRegistry;
+    private final RequestHedgerRegistry hedgerRegistry;
+
+    public ResilientCallRegistry(Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 CircuitBreakerRegistry circuitBreakerRegistry,
+                                 TimeLimiterRegistry timeLimiterRegistry,
+                                 ConcurrencyLimiterRegistry limiterRegistry,
+                                 RequestHedgerRegistry hedgerRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.limiterRegistry = limiterRegistry;
+        this.hedgerRegistry = hedgerRegistry;
+    }
+
+    // The circuit breaker and time limiter keep the resilience4j instance names already configured per dependency.
+    public ResilientCall resilientCall(String dependency, String circuitBreakerName) {
+        return new ResilientCall(dependency,
+                circuitBreakerRegistry.circuitBreaker(circuitBreakerName),
+                timeLimiterRegistry.timeLimiter(circuitBreakerName),
+                limiterRegistry.limiter(dependency),
+                hedgerRegistry.hedger(dependency),
+                property(dependency, "max-retries", Integer.class, 2),
+                Duration.ofMillis(property(dependency, "min-backoff-ms", Long.class, 50L)),
+                Duration.ofMillis(property(dependency, "max-backoff-ms", Long.class, 500L)),
+                property(dependency, "jitter", Double.class, 0.5),
+                meterRegistry);
+    }
+
+    private <T> T property(String dependency, String key, Class<T> type, T defaultValue) {
+        T fallback = environment.getProperty(PREFIX + "default." + key, type, defaultValue);
+        return environment.getProperty(PREFIX + dependency + "." + key, type, fallback);
+    }
+}
@@ -0,0 +1,20 @@
+package com.movements.movementsmicroservice.config;
+
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.repository.CompactMovementSchema;
+import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mapping.model.FieldNamingStrategy;
+import org.springframework.data.mapping.model.PropertyNameFieldNamingStrategy;
+
+// Only the properties of Movement are shortened; every other document keeps its property names.
+public class CompactFieldNamingStrategy implements FieldNamingStrategy {
+
+    @Override
+    public String getFieldName(PersistentProperty<?> property) {
+        String name = PropertyNameFieldNamingStrategy.INSTANCE.getFieldName(property);
+        if (property.getOwner().getType() != Movement.class) {
+            return name;
+        }
+        return CompactMovementSchema.FIELDS.getOrDefault(name, name);
+    }
+}
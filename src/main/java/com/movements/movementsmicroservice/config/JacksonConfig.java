@@ -0,0 +1,16 @@
+package com.movements.movementsmicroservice.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Registered on the application ObjectMapper, which backs both the server and the WebClient codecs.
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
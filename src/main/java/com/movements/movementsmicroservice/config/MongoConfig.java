@@ -1,18 +1,39 @@
 package com.movements.movementsmicroservice.config;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
 import com.mongodb.reactivestreams.client.MongoClient;
-import com.mongodb.reactivestreams.client.MongoClients;
+import com.movements.movementsmicroservice.repository.ReportingRead;
+import com.movements.movementsmicroservice.repository.ReportingReads;
 import com.movements.movementsmicroservice.utils.Converters;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.mapping.model.FieldNamingStrategy;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
 import org.springframework.data.mongodb.config.AbstractReactiveMongoConfiguration;
 import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Configuration
 @EnableReactiveMongoAuditing
@@ -21,24 +42,134 @@ public class MongoConfig extends AbstractReactiveMongoConfiguration {
     @Value("${spring.data.mongodb.uri}")
     private String mongoUri;
 
+    @Value("${movements.storage.compact:false}")
+    private boolean compact;
+
+    @Value("${movements.mongo.pool.max-size:100}")
+    private int poolMaxSize;
+
+    @Value("${movements.mongo.pool.min-size:0}")
+    private int poolMinSize;
+
+    @Value("${movements.mongo.pool.wait-queue-timeout-ms:2000}")
+    private long waitQueueTimeoutMs;
+
+    @Value("${movements.mongo.pool.max-idle-time-ms:60000}")
+    private long maxIdleTimeMs;
+
+    // zstd and snappy need their codec (zstd-jni, snappy-java) on the classpath; zlib comes with the JDK.
+    @Value("${movements.mongo.compressors:}")
+    private List<String> compressors;
+
+    @Value("${movements.mongo.write-concern.ledger:MAJORITY}")
+    private String ledgerWriteConcern;
+
+    @Value("${movements.mongo.write-concern.derived:W1}")
+    private String derivedWriteConcern;
+
+    @Value("${movements.mongo.reporting.read-preference:secondaryPreferred}")
+    private String reportingReadPreference;
+
+    // Mongo accepts a max staleness of 90 seconds or more; 0 leaves it unbounded.
+    @Value("${movements.mongo.reporting.max-staleness-seconds:90}")
+    private long reportingMaxStalenessSeconds;
+
+    private final MeterRegistry meterRegistry;
+
+    public MongoConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     protected String getDatabaseName() {
         return "bank-movements";
     }
 
+    @Override
+    protected boolean autoIndexCreation() {
+        return true;
+    }
+
+    @Override
+    protected FieldNamingStrategy fieldNamingStrategy() {
+        return compact ? new CompactFieldNamingStrategy() : super.fieldNamingStrategy();
+    }
+
     @Bean
     @Override
     public MongoCustomConversions customConversions() {
         List<Converter<?, ?>> converters = Arrays.asList(
                 new Converters.TypeMovementReadConverter(),
-                new Converters.TypeMovementWriteConverter()
+                new Converters.TypeMovementCodeReadConverter(),
+                compact ? new Converters.TypeMovementCodeWriteConverter() : new Converters.TypeMovementWriteConverter()
         );
         return new MongoCustomConversions(converters);
     }
 
+    @Override
+    protected void configureClientSettings(MongoClientSettings.Builder builder) {
+        builder.applyConnectionString(new ConnectionString(mongoUri))
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(poolMaxSize)
+                        .minSize(poolMinSize)
+                        .maxWaitTime(waitQueueTimeoutMs, TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(maxIdleTimeMs, TimeUnit.MILLISECONDS)
+                        .addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry)))
+                .compressorList(compressors.stream().map(MongoConfig::compressor).collect(Collectors.toList()))
+                .addCommandListener(new MongoMetricsCommandListener(meterRegistry));
+    }
+
     @Bean
     @Override
     public MongoClient reactiveMongoClient() {
-        return MongoClients.create(mongoUri);
+        return createReactiveMongoClient(mongoClientSettings());
+    }
+
+    @Bean
+    @Primary
+    @Override
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory databaseFactory,
+                                                       MappingMongoConverter mongoConverter) {
+        ReactiveMongoTemplate template = super.reactiveMongoTemplate(databaseFactory, mongoConverter);
+        template.setWriteConcernResolver(new OperationWriteConcerns(ledgerWriteConcern, derivedWriteConcern));
+        return template;
+    }
+
+    // Range and report reads go through this template; writes always use the primary template.
+    @Bean
+    public ReactiveMongoTemplate reportingMongoTemplate(ReactiveMongoDatabaseFactory databaseFactory,
+                                                        MappingMongoConverter mongoConverter) {
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(databaseFactory, mongoConverter);
+        ReadPreference readPreference = ReadPreference.valueOf(reportingReadPreference);
+        template.setReadPreference(readPreference.isSecondaryOk() && reportingMaxStalenessSeconds > 0
+                ? ReadPreference.valueOf(reportingReadPreference, List.of(), reportingMaxStalenessSeconds,
+                        TimeUnit.SECONDS)
+                : readPreference);
+        return template;
+    }
+
+    @Bean
+    public ReactiveMongoTransactionManager transactionManager(ReactiveMongoDatabaseFactory databaseFactory) {
+        return new ReactiveMongoTransactionManager(databaseFactory);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor reportingReadAdvisor() {
+        return new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(null, ReportingRead.class, true),
+                ReportingReads.interceptor());
+    }
+
+    private static MongoCompressor compressor(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "zstd":
+                return MongoCompressor.createZstdCompressor();
+            case "snappy":
+                return MongoCompressor.createSnappyCompressor();
+            case "zlib":
+                return MongoCompressor.createZlibCompressor();
+            default:
+                throw new IllegalArgumentException("Unknown Mongo compressor: " + name);
+        }
     }
 }
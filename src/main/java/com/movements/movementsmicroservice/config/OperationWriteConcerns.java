@@ -0,0 +1,45 @@
+package com.movements.movementsmicroservice.config;
+
+import com.mongodb.WriteConcern;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.WriteConcernResolver;
+
+import java.util.Set;
+
+/**
+ * Write concern by class of operation: writes of the records themselves (movements, payments, consumptions and
+ * their archives) use the ledger concern, writes of the collections derived from them (rings, balances,
+ * statements) use the derived one, since they can be rebuilt. In the bucketed layout the day buckets are the
+ * only copy of the movements, so they are ledger collections as well.
+ */
+public class OperationWriteConcerns implements WriteConcernResolver {
+    private static final Set<String> LEDGER = Set.of(
+            "movements", "movement_day_buckets", "payments", "consumptions");
+    private static final String ARCHIVE_SUFFIX = "_archive";
+    private final WriteConcern ledger;
+    private final WriteConcern derived;
+
+    public OperationWriteConcerns(String ledger, String derived) {
+        this.ledger = parse(ledger);
+        this.derived = parse(derived);
+    }
+
+    @Override
+    public WriteConcern resolve(MongoAction action) {
+        return isLedger(action.getCollectionName()) ? ledger : derived;
+    }
+
+    static boolean isLedger(String collection) {
+        return collection != null && LEDGER.contains(collection.endsWith(ARCHIVE_SUFFIX)
+                ? collection.substring(0, collection.length() - ARCHIVE_SUFFIX.length())
+                : collection);
+    }
+
+    private static WriteConcern parse(String name) {
+        WriteConcern writeConcern = WriteConcern.valueOf(name);
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown write concern: " + name);
+        }
+        return writeConcern;
+    }
+}
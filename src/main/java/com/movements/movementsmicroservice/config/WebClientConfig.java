@@ -1,16 +1,89 @@
 package com.movements.movementsmicroservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.movements.movementsmicroservice.client.WireFormat;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    @Value("${movements.http-client.pool.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${movements.http-client.pool.pending-acquire-max-count:400}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${movements.http-client.pool.pending-acquire-timeout-ms:2000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${movements.http-client.pool.max-idle-time-ms:30000}")
+    private long maxIdleTimeMs;
+
+    @Value("${movements.http-client.pool.max-life-time-ms:300000}")
+    private long maxLifeTimeMs;
+
+    @Value("${movements.http-client.pool.evict-in-background-ms:60000}")
+    private long evictInBackgroundMs;
+
+    @Value("${movements.http-client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${movements.http-client.response-timeout-ms:5000}")
+    private long responseTimeoutMs;
+
+    @Value("${movements.http-client.compress:true}")
+    private boolean compress;
+
+    @Value("${movements.http-client.h2c:false}")
+    private boolean h2c;
+
+    // Pool metrics are published under reactor.netty.connection.provider.* with the pool name as tag.
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider appbankConnectionProvider() {
+        return ConnectionProvider.builder("appbank-microservice")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                .evictInBackground(Duration.ofMillis(evictInBackgroundMs))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient appbankHttpClient(ConnectionProvider appbankConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(appbankConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                .compress(compress);
+        if (h2c) {
+            return httpClient.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+        }
+        return httpClient;
+    }
+
     @Bean
     @LoadBalanced
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder webClientBuilder(HttpClient appbankHttpClient, ObjectMapper objectMapper,
+                                              Jackson2ObjectMapperBuilder jacksonBuilder) {
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(appbankHttpClient))
+                .codecs(WireFormat.codecs(objectMapper, jacksonBuilder.factory(new SmileFactory()).build()));
     }
 }
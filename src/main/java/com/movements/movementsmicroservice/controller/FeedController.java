@@ -0,0 +1,90 @@
+package com.movements.movementsmicroservice.controller;
+
+import com.movements.movementsmicroservice.DTO.FeedEventDto;
+import com.movements.movementsmicroservice.DTO.FeedFilterDto;
+import com.movements.movementsmicroservice.service.FeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("/movements/feed")
+@Tag(name = "Feed de eventos",
+        description = "Publica en tiempo real los movimientos, pagos y consumos nuevos, en SSE o NDJSON")
+public class FeedController {
+
+    private final FeedService feedService;
+    private final Duration heartbeat;
+
+    public FeedController(FeedService feedService,
+                          @Value("${movements.feed.heartbeat-seconds:15}") long heartbeatSeconds) {
+        this.feedService = feedService;
+        this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Suscribe al feed de eventos en SSE",
+            description = "Cada evento lleva como id su token de reanudación; al reconectar, el header "
+                    + "Last-Event-ID o el parámetro resumeAfter continúa desde ese evento.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suscripción abierta")
+    })
+    public Flux<ServerSentEvent<FeedEventDto>> streamEvents(
+            @RequestParam(required = false) String idClient,
+            @RequestParam(required = false) List<String> idBankAccount,
+            @RequestParam(required = false) List<String> idProductCredit,
+            @RequestParam(required = false) List<String> idCreditCard,
+            @RequestParam(required = false) List<String> type,
+            @RequestParam(required = false) String resumeAfter,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Flux<ServerSentEvent<FeedEventDto>> events = feedService
+                .watch(filter(idClient, idBankAccount, idProductCredit, idCreditCard, type),
+                        lastEventId != null ? lastEventId : resumeAfter)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(event.getResumeToken())
+                        .event(event.getType())
+                        .build());
+        Flux<ServerSentEvent<FeedEventDto>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<FeedEventDto>builder().comment("heartbeat").build());
+        return events.publish(shared -> Flux.merge(shared, heartbeats.takeUntilOther(shared.then())));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Suscribe al feed de eventos en NDJSON",
+            description = "Un evento JSON por línea con su resumeToken para reanudar con el parámetro resumeAfter.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suscripción abierta")
+    })
+    public Flux<FeedEventDto> streamEventsAsNdjson(
+            @RequestParam(required = false) String idClient,
+            @RequestParam(required = false) List<String> idBankAccount,
+            @RequestParam(required = false) List<String> idProductCredit,
+            @RequestParam(required = false) List<String> idCreditCard,
+            @RequestParam(required = false) List<String> type,
+            @RequestParam(required = false) String resumeAfter) {
+        return feedService.watch(filter(idClient, idBankAccount, idProductCredit, idCreditCard, type), resumeAfter);
+    }
+
+    private FeedFilterDto filter(String idClient, List<String> idBankAccounts, List<String> idProductCredits,
+                                 List<String> idCreditCards, List<String> types) {
+        return new FeedFilterDto(idClient, orEmpty(idBankAccounts), orEmpty(idProductCredits),
+                orEmpty(idCreditCards), orEmpty(types));
+    }
+
+    private List<String> orEmpty(List<String> values) {
+        return values == null ? List.of() : values;
+    }
+}
@@ -1,7 +1,12 @@
 package com.movements.movementsmicroservice.controller;
 
+import com.movements.movementsmicroservice.DTO.AccountStatementDto;
+import com.movements.movementsmicroservice.DTO.DailyAverageBalanceDto;
+import com.movements.movementsmicroservice.exceptions.InvalidRequestException;
 import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.service.DailyBalanceService;
 import com.movements.movementsmicroservice.service.MovementService;
+import com.movements.movementsmicroservice.service.StatementService;
 import com.movements.movementsmicroservice.utils.DateUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,6 +22,8 @@ import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
 import javax.ws.rs.QueryParam;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 
@@ -28,9 +35,14 @@ public class MovementController {
 
     private final static Logger log = LoggerFactory.getLogger(MovementController.class);
     private final MovementService movementService;
+    private final StatementService statementService;
+    private final DailyBalanceService dailyBalanceService;
 
-    public MovementController(MovementService movementService) {
+    public MovementController(MovementService movementService, StatementService statementService,
+                              DailyBalanceService dailyBalanceService) {
         this.movementService = movementService;
+        this.statementService = statementService;
+        this.dailyBalanceService = dailyBalanceService;
     }
 
 
@@ -156,7 +168,48 @@ public class MovementController {
 
     @PostMapping("/last-ten-by-bank-accounts")
     public Mono<List<Movement>> reportLastTenMovements(@RequestBody List<String> idBankAccounts) {
-        log.info("Ingresa a obtener los ultimos 10 movimientos de movimientos");
+        log.debug("Ingresa a obtener los ultimos 10 movimientos de movimientos");
         return movementService.getDebitMovementsTopTenByBankAccountIds(idBankAccounts);
     }
+
+    @GetMapping("/statements/{idBankAccount}")
+    @Operation(summary = "Obtiene el estado de cuenta mensual de una cuenta bancaria",
+            description = "Devuelve los resúmenes mensuales (from y to en formato yyyy-MM, por defecto los últimos "
+                    + "12 meses) y los movimientos del mes actual.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operación exitosa",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AccountStatementDto.class))}),
+            @ApiResponse(responseCode = "400", description = "Error en la solicitud")
+    })
+    public Mono<AccountStatementDto> getAccountStatement(@PathVariable String idBankAccount,
+                                                         @QueryParam("from") String from,
+                                                         @QueryParam("to") String to) {
+        return statementService.getAccountStatement(idBankAccount,
+                monthOf(from), monthOf(to));
+    }
+
+    @GetMapping("/daily-average/{idBankAccount}")
+    @Operation(summary = "Obtiene el saldo promedio diario de una cuenta bancaria",
+            description = "Devuelve el saldo promedio diario del mes indicado (month en formato yyyy-MM, por "
+                    + "defecto el mes actual hasta el día de hoy).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operación exitosa",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DailyAverageBalanceDto.class))}),
+            @ApiResponse(responseCode = "400", description = "Error en la solicitud"),
+            @ApiResponse(responseCode = "404", description = "Sin saldos para la cuenta en el mes")
+    })
+    public Mono<DailyAverageBalanceDto> getDailyAverage(@PathVariable String idBankAccount,
+                                                        @QueryParam("month") String month) {
+        return dailyBalanceService.getDailyAverage(idBankAccount, monthOf(month));
+    }
+
+    private static YearMonth monthOf(String month) {
+        try {
+            return month == null ? null : YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("The month %s is not in the format yyyy-MM", month);
+        }
+    }
 }
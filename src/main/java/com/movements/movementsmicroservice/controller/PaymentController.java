@@ -108,12 +108,8 @@ public class PaymentController {
 
     @PostMapping("/get-last-ten-payments")
     public Mono<List<Payment>> lastTenPaymentsByIdCreditCard(@RequestBody List<String> idCreditCards) {
-        log.info("Ingresa a obtener los ultimos 10 movimientos de pagos");
+        log.debug("Ingresa a obtener los ultimos 10 movimientos de pagos");
         return paymentService.findLastTenPaymentsByIdCredit(idCreditCards)
-                .map(response -> {
-                    log.info("Obteniendo respuesta para devolver de pagos: " + response.size());
-                    log.info(response.toString());
-                    return response;
-                });
+                .doOnNext(response -> log.debug("Obteniendo respuesta para devolver de pagos: {}", response.size()));
     }
 }
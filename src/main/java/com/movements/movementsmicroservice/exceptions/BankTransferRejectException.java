@@ -1,7 +1,7 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class BankTransferRejectException extends RuntimeException {
+public class BankTransferRejectException extends BusinessException {
     public BankTransferRejectException(String message) {
-        super(message);
+        super(ErrorCode.BANK_TRANSFER_REJECTED, message);
     }
 }
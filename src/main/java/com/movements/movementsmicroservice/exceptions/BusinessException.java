@@ -0,0 +1,28 @@
+package com.movements.movementsmicroservice.exceptions;
+
+// Expected rejections are answered many times per second, so they are built without stack trace or suppression.
+// A message formatted with values of the request is not fixed, and its body is not cached by the handler.
+public abstract class BusinessException extends RuntimeException {
+    private final ErrorCode code;
+    private final boolean fixedMessage;
+
+    protected BusinessException(ErrorCode code, String message) {
+        super(message, null, false, false);
+        this.code = code;
+        this.fixedMessage = true;
+    }
+
+    protected BusinessException(ErrorCode code, String template, Object... args) {
+        super(String.format(template, args), null, false, false);
+        this.code = code;
+        this.fixedMessage = args.length == 0;
+    }
+
+    public ErrorCode getCode() {
+        return code;
+    }
+
+    public boolean hasFixedMessage() {
+        return fixedMessage;
+    }
+}
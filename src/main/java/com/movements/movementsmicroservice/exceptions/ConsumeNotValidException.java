@@ -1,7 +1,7 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class ConsumeNotValidException extends RuntimeException {
+public class ConsumeNotValidException extends BusinessException {
     public ConsumeNotValidException(String message) {
-        super(message);
+        super(ErrorCode.CONSUME_NOT_VALID, message);
     }
 }
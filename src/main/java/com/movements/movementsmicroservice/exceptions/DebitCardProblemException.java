@@ -1,7 +1,7 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class DebitCardProblemException extends RuntimeException {
+public class DebitCardProblemException extends BusinessException {
     public DebitCardProblemException(String message) {
-        super(message);
+        super(ErrorCode.DEBIT_CARD_PROBLEM, message);
     }
 }
@@ -0,0 +1,26 @@
+package com.movements.movementsmicroservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public enum ErrorCode {
+    RESOURCE_NOT_FOUND(HttpStatus.NOT_FOUND),
+    LIMIT_MOVEMENTS_EXCEEDED(HttpStatus.BAD_REQUEST),
+    INSUFFICIENT_BALANCE(HttpStatus.BAD_REQUEST),
+    UNSUPPORTED_MOVEMENT(HttpStatus.BAD_REQUEST),
+    INVALID_PAY(HttpStatus.BAD_REQUEST),
+    CONSUME_NOT_VALID(HttpStatus.BAD_REQUEST),
+    BANK_TRANSFER_REJECTED(HttpStatus.BAD_REQUEST),
+    DEBIT_CARD_PROBLEM(HttpStatus.BAD_REQUEST),
+    INVALID_REQUEST(HttpStatus.BAD_REQUEST),
+    SERVICE_NOT_AVAILABLE(HttpStatus.SERVICE_UNAVAILABLE);
+
+    private final HttpStatus status;
+
+    ErrorCode(HttpStatus status) {
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -1,7 +1,7 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class InsufficientBalance extends RuntimeException {
+public class InsufficientBalance extends BusinessException {
     public InsufficientBalance(String message) {
-        super(message);
+        super(ErrorCode.INSUFFICIENT_BALANCE, message);
     }
 }
@@ -1,7 +1,11 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class InvalidPayException extends RuntimeException {
+public class InvalidPayException extends BusinessException {
     public InvalidPayException(String message) {
-        super(message);
+        super(ErrorCode.INVALID_PAY, message);
+    }
+
+    public InvalidPayException(String template, Object... args) {
+        super(ErrorCode.INVALID_PAY, template, args);
     }
 }
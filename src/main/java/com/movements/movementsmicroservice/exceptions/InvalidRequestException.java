@@ -0,0 +1,11 @@
+package com.movements.movementsmicroservice.exceptions;
+
+public class InvalidRequestException extends BusinessException {
+    public InvalidRequestException(String message) {
+        super(ErrorCode.INVALID_REQUEST, message);
+    }
+
+    public InvalidRequestException(String template, Object... args) {
+        super(ErrorCode.INVALID_REQUEST, template, args);
+    }
+}
@@ -1,7 +1,11 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class LimitMovementsExceeded extends RuntimeException {
+public class LimitMovementsExceeded extends BusinessException {
     public LimitMovementsExceeded(String message) {
-        super(message);
+        super(ErrorCode.LIMIT_MOVEMENTS_EXCEEDED, message);
+    }
+
+    public LimitMovementsExceeded(String template, Object... args) {
+        super(ErrorCode.LIMIT_MOVEMENTS_EXCEEDED, template, args);
     }
 }
@@ -1,7 +1,11 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class ResourceNotFoundException extends RuntimeException {
+public class ResourceNotFoundException extends BusinessException {
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(ErrorCode.RESOURCE_NOT_FOUND, message);
+    }
+
+    public ResourceNotFoundException(String template, Object... args) {
+        super(ErrorCode.RESOURCE_NOT_FOUND, template, args);
     }
 }
@@ -1,7 +1,7 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class ServiceNotAvailableException extends RuntimeException {
+public class ServiceNotAvailableException extends BusinessException {
     public ServiceNotAvailableException(String message) {
-        super(message);
+        super(ErrorCode.SERVICE_NOT_AVAILABLE, message);
     }
 }
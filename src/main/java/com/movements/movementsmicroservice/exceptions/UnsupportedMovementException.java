@@ -1,7 +1,7 @@
 package com.movements.movementsmicroservice.exceptions;
 
-public class UnsupportedMovementException extends RuntimeException {
+public class UnsupportedMovementException extends BusinessException {
     public UnsupportedMovementException(String message) {
-        super(message);
+        super(ErrorCode.UNSUPPORTED_MOVEMENT, message);
     }
 }
@@ -1,7 +1,14 @@
 package com.movements.movementsmicroservice.exceptions.handler;
 
-import com.movements.movementsmicroservice.exceptions.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.movements.movementsmicroservice.exceptions.BusinessException;
+import com.movements.movementsmicroservice.exceptions.ErrorCode;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -9,43 +16,45 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import reactor.core.publisher.Mono;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Business rejections carry their ErrorCode, so the status is read from the code. The JSON body of every code
+ * and fixed message pair is serialized once and served from a bounded cache afterwards; a message formatted with
+ * values of the request is serialized each time, so it never takes a place in the cache.
+ */
 @RestControllerAdvice
 public class ExceptionHandlers {
+    private final ObjectMapper objectMapper;
+    private final Map<ErrorCode, Cache<String, byte[]>> bodies = new EnumMap<>(ErrorCode.class);
 
-    @ExceptionHandler({
-            ResourceNotFoundException.class,
-            LimitMovementsExceeded.class,
-            InsufficientBalance.class,
-            UnsupportedMovementException.class,
-            InvalidPayException.class,
-            ConsumeNotValidException.class,
-            BankTransferRejectException.class,
-            RuntimeException.class,
-            ServiceNotAvailableException.class
-    })
-    public Mono<ResponseEntity<Map<String, String>>> handleExceptions(RuntimeException exception) {
-        HttpStatus status = getStatus(exception);
-        return Mono.just(ResponseEntity.status(status).body(
-                Map.of("message", exception.getMessage())
-        ));
+    public ExceptionHandlers(ObjectMapper objectMapper,
+                             @Value("${movements.errors.cached-bodies-per-code:512}") long cachedBodiesPerCode) {
+        this.objectMapper = objectMapper;
+        for (ErrorCode code : ErrorCode.values()) {
+            bodies.put(code, Caffeine.newBuilder().maximumSize(cachedBodiesPerCode).build());
+        }
     }
 
-    public HttpStatus getStatus(RuntimeException exception) {
-        if (exception instanceof ResourceNotFoundException) {
-            return HttpStatus.NOT_FOUND;
-        } else if (exception instanceof LimitMovementsExceeded || exception instanceof InsufficientBalance ||
-                exception instanceof UnsupportedMovementException || exception instanceof InvalidPayException ||
-                exception instanceof ConsumeNotValidException || exception instanceof BankTransferRejectException||
-                exception instanceof DebitCardProblemException) {
-            return HttpStatus.BAD_REQUEST;
-        } else if (exception instanceof ServiceNotAvailableException) {
-            return HttpStatus.SERVICE_UNAVAILABLE;
-        } else {
-            return HttpStatus.INTERNAL_SERVER_ERROR;
-        }
+    @ExceptionHandler(BusinessException.class)
+    public Mono<ResponseEntity<byte[]>> handleBusinessExceptions(BusinessException exception) {
+        ErrorCode code = exception.getCode();
+        String message = exception.getMessage() == null ? "" : exception.getMessage();
+        byte[] body = exception.hasFixedMessage()
+                ? bodies.get(code).get(message, key -> serialize(code, key))
+                : serialize(code, message);
+        return Mono.just(ResponseEntity.status(code.getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
+    }
+
+    @ExceptionHandler(RuntimeException.class)
+    public Mono<ResponseEntity<Map<String, String>>> handleExceptions(RuntimeException exception) {
+        return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                Map.of("message", String.valueOf(exception.getMessage()))
+        ));
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -57,4 +66,12 @@ public class ExceptionHandlers {
                 .forEach(error -> errorsResponse.put(error.getField(), error.getDefaultMessage()));
         return Mono.just(errorsResponse);
     }
+
+    private byte[] serialize(ErrorCode code, String message) {
+        try {
+            return objectMapper.writeValueAsBytes(Map.of("code", code.name(), "message", message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error body could not be serialized", e);
+        }
+    }
 }
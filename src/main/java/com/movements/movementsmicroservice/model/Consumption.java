@@ -3,6 +3,7 @@ package com.movements.movementsmicroservice.model;
 import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -15,6 +16,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Document(collection = "consumptions")
+@CompoundIndex(name = "card_created_idx", def = "{'idCreditCard': 1, 'createdAt': -1}")
 public class Consumption {
     @Id
     private String id;
@@ -0,0 +1,35 @@
+package com.movements.movementsmicroservice.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+
+// End of day balances of one bank account in one month, keyed by day of month; days without movements keep
+// the balance of the day before. Its id is "<idBankAccount>:<yyyy-MM>" and period is yyyyMM.
+@Data
+@Document(collection = "daily_balances")
+@CompoundIndex(name = "account_period_idx", def = "{'idBankAccount': 1, 'period': 1}")
+public class DailyBalanceSeries {
+    @Id
+    private String id;
+
+    private String idBankAccount;
+
+    private int period;
+
+    private Double openingBalance;
+
+    private Map<String, Double> closingByDay = new HashMap<>();
+
+    private LocalDateTime updatedAt;
+
+    public static String seriesId(String idBankAccount, YearMonth month) {
+        return idBankAccount + ":" + month;
+    }
+}
@@ -0,0 +1,46 @@
+package com.movements.movementsmicroservice.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+
+// Summary of one bank account in one month; its id is "<idBankAccount>:<yyyy-MM>" and period is yyyyMM.
+@Data
+@Document(collection = "monthly_statements")
+@CompoundIndex(name = "account_period_idx", def = "{'idBankAccount': 1, 'period': 1}")
+public class MonthlyStatement {
+    @Id
+    private String id;
+
+    private String idBankAccount;
+
+    private int period;
+
+    private Double openingBalance;
+
+    private Double closingBalance;
+
+    private Map<String, Double> totalsByType = new HashMap<>();
+
+    private Double commissionTotal = 0.0;
+
+    private long count;
+
+    private boolean closed;
+
+    private LocalDateTime updatedAt;
+
+    public static String statementId(String idBankAccount, YearMonth month) {
+        return idBankAccount + ":" + month;
+    }
+
+    public static int periodOf(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+}
@@ -0,0 +1,36 @@
+package com.movements.movementsmicroservice.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// One document per bank account and day; its id is "<idBankAccount>:<day>".
+@Data
+@Document(collection = "movement_day_buckets")
+@CompoundIndexes({
+        @CompoundIndex(name = "account_day_idx", def = "{'idBankAccount': 1, 'day': 1}"),
+        @CompoundIndex(name = "day_idx", def = "{'day': 1}"),
+        @CompoundIndex(name = "movement_id_idx", def = "{'movements.i': 1}")
+})
+public class MovementDayBucket {
+    @Id
+    private String id;
+
+    private String idBankAccount;
+
+    private LocalDate day;
+
+    private int count;
+
+    private List<MovementEntry> movements = new ArrayList<>();
+
+    public static String bucketId(String idBankAccount, LocalDate day) {
+        return idBankAccount + ":" + day;
+    }
+}
@@ -0,0 +1,66 @@
+package com.movements.movementsmicroservice.model;
+
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+// Compact movement stored inside a MovementDayBucket; the bank account is kept once in the bucket.
+@Data
+public class MovementEntry {
+    @Field("i")
+    private String id;
+
+    @Field("d")
+    private LocalDateTime date;
+
+    @Field("t")
+    private Movement.TypeMovement typeMovement;
+
+    @Field("a")
+    private Double amount;
+
+    @Field("s")
+    private String description;
+
+    @Field("c")
+    private Double commissionAmount;
+
+    @Field("x")
+    private String idBankAccountTransfer;
+
+    @Field("r")
+    private String idTransfer;
+
+    @Field("k")
+    private LocalDateTime createdAt;
+
+    public static MovementEntry from(Movement movement) {
+        MovementEntry entry = new MovementEntry();
+        entry.setId(movement.getId());
+        entry.setDate(movement.getDate());
+        entry.setTypeMovement(movement.getTypeMovement());
+        entry.setAmount(movement.getAmount());
+        entry.setDescription(movement.getDescription());
+        entry.setCommissionAmount(movement.getCommissionAmount());
+        entry.setIdBankAccountTransfer(movement.getIdBankAccountTransfer());
+        entry.setIdTransfer(movement.getIdTransfer());
+        entry.setCreatedAt(movement.getCreatedAt());
+        return entry;
+    }
+
+    public Movement toMovement(String idBankAccount) {
+        Movement movement = new Movement();
+        movement.setId(id);
+        movement.setDate(date);
+        movement.setTypeMovement(typeMovement);
+        movement.setAmount(amount);
+        movement.setDescription(description);
+        movement.setCommissionAmount(commissionAmount);
+        movement.setIdBankAccount(idBankAccount);
+        movement.setIdBankAccountTransfer(idBankAccountTransfer);
+        movement.setIdTransfer(idTransfer);
+        movement.setCreatedAt(createdAt);
+        return movement;
+    }
+}
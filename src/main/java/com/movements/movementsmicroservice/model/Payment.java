@@ -3,6 +3,8 @@ package com.movements.movementsmicroservice.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
@@ -14,6 +16,13 @@ import java.time.LocalDateTime;
 @Data
 @AllArgsConstructor
 @Document(collection = "payments")
+@CompoundIndexes({
+        @CompoundIndex(name = "credit_year_month_idx",
+                def = "{'idProductCredit': 1, 'yearCorresponding': 1, 'monthCorresponding': 1}",
+                unique = true,
+                partialFilter = "{'typeCreditProduct': 'CREDIT'}"),
+        @CompoundIndex(name = "credit_created_idx", def = "{'idProductCredit': 1, 'createdAt': -1}")
+})
 public class Payment {
     private String id;
 
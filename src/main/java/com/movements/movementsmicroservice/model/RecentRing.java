@@ -0,0 +1,27 @@
+package com.movements.movementsmicroservice.model;
+
+import lombok.Data;
+import org.bson.Document;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Newest records of one product, newest first and capped; its id is "<collection>:<idProduct>" and the entries
+// are the records as they are stored in their own collection. A ring created by a write is read only once filled.
+@Data
+@org.springframework.data.mongodb.core.mapping.Document(collection = "recent_rings")
+@CompoundIndex(name = "entry_id_idx", def = "{'entries._id': 1}")
+public class RecentRing {
+    @Id
+    private String id;
+
+    private List<Document> entries = new ArrayList<>();
+
+    private boolean filled;
+
+    public static String ringId(String collection, String idProduct) {
+        return collection + ":" + idProduct;
+    }
+}
@@ -0,0 +1,117 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.mongodb.client.model.CreateCollectionOptions;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Archive side of a hot collection: "<collection>_archive", created with block compression. Records older
+ * than the horizon are moved there by the archiver; since the horizon only moves forward, a range starting
+ * at or after the current cutoff never needs the archive.
+ */
+@Component
+public class ColdStorage {
+    private static final String ARCHIVE_SUFFIX = "_archive";
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReportingReads reads;
+    private final Clock clock;
+    private final boolean enabled;
+    private final long horizonDays;
+    private final String blockCompressor;
+
+    public ColdStorage(ReactiveMongoTemplate mongoTemplate,
+                       ReportingReads reads,
+                       Clock clock,
+                       @Value("${movements.archive.enabled:false}") boolean enabled,
+                       @Value("${movements.archive.horizon-days:365}") long horizonDays,
+                       @Value("${movements.archive.block-compressor:zstd}") String blockCompressor) {
+        this.mongoTemplate = mongoTemplate;
+        this.reads = reads;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.blockCompressor = blockCompressor;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LocalDateTime cutoff() {
+        return LocalDateTime.now(clock).toLocalDate().minusDays(horizonDays).atStartOfDay();
+    }
+
+    public boolean isNeededFrom(LocalDateTime from) {
+        return enabled && (from == null || from.isBefore(cutoff()));
+    }
+
+    public <T> Flux<T> find(Query query, Class<T> type, String collection) {
+        if (!enabled) {
+            return Flux.empty();
+        }
+        return reads.find(query, type, archiveOf(collection));
+    }
+
+    public <T> Mono<T> findById(String id, Class<T> type, String collection) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return reads.findById(id, type, archiveOf(collection));
+    }
+
+    public Mono<Void> removeById(String id, String collection) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return mongoTemplate.remove(query(where("_id").is(id)), archiveOf(collection)).then();
+    }
+
+    public Mono<Void> updateMulti(Query query, Update update, String collection) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return mongoTemplate.updateMulti(query, update, archiveOf(collection)).then();
+    }
+
+    // Copies a batch before deleting it from the hot collection, so an interrupted run only repeats upserts.
+    public Mono<Long> archiveBatch(String collection, Query olderThanCutoff, int batchSize) {
+        String archive = archiveOf(collection);
+        return mongoTemplate.find(Query.of(olderThanCutoff).limit(batchSize), Document.class, collection)
+                .concatMap(document -> mongoTemplate.save(document, archive))
+                .map(document -> document.get("_id"))
+                .collectList()
+                .flatMap(ids -> ids.isEmpty()
+                        ? Mono.just(0L)
+                        : mongoTemplate.remove(query(where("_id").in(ids)), collection)
+                                .map(result -> result.getDeletedCount()));
+    }
+
+    public Mono<Void> createArchiveIfMissing(String collection) {
+        String archive = archiveOf(collection);
+        CreateCollectionOptions options = new CreateCollectionOptions()
+                .storageEngineOptions(new Document("wiredTiger",
+                        new Document("configString", "block_compressor=" + blockCompressor)));
+        return mongoTemplate.collectionExists(archive)
+                .flatMap(exists -> exists
+                        ? Mono.empty()
+                        : mongoTemplate.getMongoDatabase()
+                                .flatMap(database -> Mono.from(database.createCollection(archive, options))))
+                .then();
+    }
+
+    public String archiveOf(String collection) {
+        return collection + ARCHIVE_SUFFIX;
+    }
+}
@@ -0,0 +1,44 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveAfterConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeSaveCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// In the compact layout the default values are dropped before a movement is written and put back once it is read.
+// A document still stored in the other layout is rewritten to the current one before it is converted.
+@Component
+public class CompactMovementCallbacks extends AbstractMongoEventListener<Movement>
+        implements ReactiveBeforeSaveCallback<Movement>, ReactiveAfterConvertCallback<Movement> {
+    private final boolean compact;
+
+    public CompactMovementCallbacks(@Value("${movements.storage.compact:false}") boolean compact) {
+        this.compact = compact;
+    }
+
+    @Override
+    public void onAfterLoad(AfterLoadEvent<Movement> event) {
+        if (event.getDocument() != null) {
+            CompactMovementSchema.inLayout(event.getDocument(), compact);
+        }
+    }
+
+    @Override
+    public Publisher<Movement> onBeforeSave(Movement movement, Document document, String collection) {
+        if (compact) {
+            CompactMovementSchema.omitDefaults(document);
+        }
+        return Mono.just(movement);
+    }
+
+    @Override
+    public Publisher<Movement> onAfterConvert(Movement movement, Document document, String collection) {
+        return Mono.just(compact ? CompactMovementSchema.restoreDefaults(movement) : movement);
+    }
+}
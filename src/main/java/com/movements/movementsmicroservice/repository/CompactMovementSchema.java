@@ -0,0 +1,113 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.utils.Converters;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compact layout of the movements collection (movements.storage.compact=true): the one-letter names of
+ * MovementEntry, the type as a small integer code, and empty transfer ids and a zero commission left out.
+ */
+public final class CompactMovementSchema {
+    public static final Map<String, String> FIELDS = Map.of(
+            "date", "d",
+            "typeMovement", "t",
+            "amount", "a",
+            "description", "s",
+            "commissionAmount", "c",
+            "idBankAccount", "b",
+            "idBankAccountTransfer", "x",
+            "idTransfer", "r",
+            "createdAt", "k");
+    private static final Map<String, String> PROPERTIES = FIELDS.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
+    private static final Map<String, Object> DEFAULTS = Map.of(
+            "commissionAmount", 0.0,
+            "idBankAccountTransfer", "",
+            "idTransfer", "");
+
+    private CompactMovementSchema() {
+    }
+
+    public static void omitDefaults(Document document) {
+        DEFAULTS.forEach((property, value) -> document.remove(FIELDS.get(property), value));
+    }
+
+    public static Movement restoreDefaults(Movement movement) {
+        if (movement.getCommissionAmount() == null) {
+            movement.setCommissionAmount(0.0);
+        }
+        if (movement.getIdBankAccountTransfer() == null) {
+            movement.setIdBankAccountTransfer("");
+        }
+        if (movement.getIdTransfer() == null) {
+            movement.setIdTransfer("");
+        }
+        return movement;
+    }
+
+    public static Document toCompact(Document document) {
+        Document compact = new Document();
+        document.forEach((key, value) -> compact.append(FIELDS.getOrDefault(key, key),
+                "typeMovement".equals(key) && value instanceof String
+                        ? Converters.TYPE_CODES.get(Movement.TypeMovement.valueOf((String) value))
+                        : value));
+        omitDefaults(compact);
+        return compact;
+    }
+
+    public static String fieldName(String property, boolean compact) {
+        return compact ? FIELDS.getOrDefault(property, property) : property;
+    }
+
+    // Rewrites in place a document stored in the other layout, so it can be converted with the current names.
+    public static Document inLayout(Document document, boolean compact) {
+        if (!document.containsKey(fieldName("typeMovement", !compact))) {
+            return document;
+        }
+        Document rewritten = compact ? toCompact(document) : toExpanded(document);
+        document.clear();
+        document.putAll(rewritten);
+        return document;
+    }
+
+    // A mapped filter or sort of one layout with the names and type values of the other one; only the top level
+    // is translated, as the repository never nests the criteria of a movement.
+    public static Document filterInLayout(Document filter, boolean compact) {
+        Map<String, String> names = compact ? FIELDS : PROPERTIES;
+        String typeField = fieldName("typeMovement", !compact);
+        Document translated = new Document();
+        filter.forEach((key, value) -> translated.append(names.getOrDefault(key, key),
+                typeField.equals(key) ? typeValue(value, compact) : value));
+        return translated;
+    }
+
+    private static Object typeValue(Object value, boolean compact) {
+        if (value instanceof Document) {
+            Document operators = new Document();
+            ((Document) value).forEach((operator, operand) -> operators.append(operator, typeValue(operand, compact)));
+            return operators;
+        }
+        if (value instanceof List) {
+            return ((List<?>) value).stream().map(item -> typeValue(item, compact)).collect(Collectors.toList());
+        }
+        if (compact && value instanceof String) {
+            return Converters.TYPE_CODES.get(Movement.TypeMovement.valueOf((String) value));
+        }
+        return !compact && value instanceof Integer ? Converters.TYPES_BY_CODE.get(value).name() : value;
+    }
+
+    public static Document toExpanded(Document document) {
+        Document expanded = new Document();
+        document.forEach((key, value) -> expanded.append(PROPERTIES.getOrDefault(key, key),
+                "t".equals(key) && value instanceof Integer
+                        ? Converters.TYPES_BY_CODE.get(value).name()
+                        : value));
+        DEFAULTS.forEach(expanded::putIfAbsent);
+        return expanded;
+    }
+}
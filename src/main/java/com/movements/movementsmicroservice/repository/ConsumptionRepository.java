@@ -6,10 +6,18 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.List;
 
-public interface ConsumptionRepository extends ReactiveMongoRepository<Consumption, String> {
-    Flux<Consumption> findAllByIdCreditCard(String idCreditCard);
+// save, saveAll and deleteById are served by ConsumptionRepositoryCustomImpl, which keeps the recent rings;
+// findAll goes through the reporting reads.
+public interface ConsumptionRepository extends ReactiveMongoRepository<Consumption, String>,
+        ConsumptionRepositoryCustom {
+    @Override
+    <S extends Consumption> Mono<S> save(S consumption);
+    @Override
+    <S extends Consumption> Flux<S> saveAll(Iterable<S> consumptions);
+    @Override
+    Flux<Consumption> findAll();
+    @Override
+    Mono<Void> deleteById(String id);
     Flux<Consumption> findByIdCreditCardAndBilledFalse(String idCreditCard);
-    Flux<Consumption> findByIdCreditCardInOrderByCreatedAtDesc(List<String> idCreditCards);
 }
@@ -0,0 +1,16 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Consumption;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ConsumptionRepositoryCustom {
+    <S extends Consumption> Mono<S> save(S consumption);
+    <S extends Consumption> Flux<S> saveAll(Iterable<S> consumptions);
+    Flux<Consumption> findAll();
+    Mono<Void> deleteById(String id);
+    Flux<Consumption> findAllByIdCreditCard(String idCreditCard);
+    Flux<Consumption> findNewestByIdCreditCardIn(List<String> idCreditCards, int limit);
+}
@@ -0,0 +1,78 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Consumption;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+// Full history of a credit card: hot consumptions followed by the archived ones. Writes keep the recent rings.
+public class ConsumptionRepositoryCustomImpl implements ConsumptionRepositoryCustom {
+    public static final String CONSUMPTIONS = "consumptions";
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReportingReads reads;
+    private final ColdStorage coldStorage;
+    private final RecentRings recentRings;
+
+    public ConsumptionRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate, ReportingReads reads,
+                                           ColdStorage coldStorage, RecentRings recentRings) {
+        this.mongoTemplate = mongoTemplate;
+        this.reads = reads;
+        this.coldStorage = coldStorage;
+        this.recentRings = recentRings;
+    }
+
+    @Override
+    public <S extends Consumption> Mono<S> save(S consumption) {
+        boolean existing = consumption.getId() != null;
+        return mongoTemplate.save(consumption)
+                .flatMap(saved -> recentRings.record(CONSUMPTIONS, saved.getIdCreditCard(), saved, existing)
+                        .thenReturn(saved));
+    }
+
+    @Override
+    public <S extends Consumption> Flux<S> saveAll(Iterable<S> consumptions) {
+        return Flux.fromIterable(consumptions).concatMap(this::save);
+    }
+
+    @Override
+    public Flux<Consumption> findAll() {
+        return reads.find(new Query(), Consumption.class);
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return mongoTemplate.remove(query(where("_id").is(id)), Consumption.class)
+                .then(recentRings.forget(id));
+    }
+
+    @Override
+    public Flux<Consumption> findAllByIdCreditCard(String idCreditCard) {
+        Query byCreditCard = query(where("idCreditCard").is(idCreditCard));
+        return reads.find(byCreditCard, Consumption.class)
+                .concatWith(coldStorage.find(byCreditCard, Consumption.class, CONSUMPTIONS));
+    }
+
+    @Override
+    public Flux<Consumption> findNewestByIdCreditCardIn(List<String> idCreditCards, int limit) {
+        if (!recentRings.covers(limit)) {
+            return newest(idCreditCards, limit);
+        }
+        return recentRings.newest(CONSUMPTIONS, idCreditCards, Consumption.class, Consumption::getCreatedAt,
+                idCreditCard -> newest(List.of(idCreditCard), recentRings.getCapacity()), limit);
+    }
+
+    private Flux<Consumption> newest(List<String> idCreditCards, int limit) {
+        return NewestFirst.merge(idCreditCards.stream().distinct()
+                .map(idCreditCard -> reads.find(
+                        NewestFirst.cursor(query(where("idCreditCard").is(idCreditCard)), limit),
+                        Consumption.class))
+                .collect(Collectors.toList()), Consumption::getCreatedAt, limit);
+    }
+}
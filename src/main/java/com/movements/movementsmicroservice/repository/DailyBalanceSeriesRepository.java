@@ -0,0 +1,7 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.DailyBalanceSeries;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface DailyBalanceSeriesRepository extends ReactiveMongoRepository<DailyBalanceSeries, String> {
+}
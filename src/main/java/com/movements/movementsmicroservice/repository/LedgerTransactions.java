@@ -0,0 +1,49 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.mongodb.MongoException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Commits a group of ledger writes at once. Transactions need a replica set, so they are enabled with
+ * movements.mongo.transactions.enabled; without them the writes run one after the other as before. Only Mongo
+ * writes belong inside: remote calls are made before the transaction starts. A transaction aborted with the
+ * TransientTransactionError or UnknownTransactionCommitResult label is run again from the start, so the writes
+ * must be deferred and safe to repeat.
+ */
+@Component
+public class LedgerTransactions {
+    private final TransactionalOperator transactionalOperator;
+    private final Retry retry;
+
+    public LedgerTransactions(ReactiveTransactionManager transactionManager,
+                              @Value("${movements.mongo.transactions.enabled:false}") boolean enabled,
+                              @Value("${movements.mongo.transactions.max-retries:3}") int maxRetries) {
+        this.transactionalOperator = enabled ? TransactionalOperator.create(transactionManager) : null;
+        this.retry = Retry.max(maxRetries)
+                .filter(LedgerTransactions::isRetryable)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    public <T> Mono<T> write(Mono<T> writes) {
+        return transactionalOperator == null
+                ? writes
+                : transactionalOperator.transactional(writes).retryWhen(retry);
+    }
+
+    // The driver error may arrive translated into a DataAccessException, so the causes are searched as well.
+    static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException) {
+                MongoException mongoException = (MongoException) cause;
+                return mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                        || mongoException.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL);
+            }
+        }
+        return false;
+    }
+}
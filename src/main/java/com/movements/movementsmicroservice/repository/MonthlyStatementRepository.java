@@ -0,0 +1,14 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.MonthlyStatement;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface MonthlyStatementRepository extends ReactiveMongoRepository<MonthlyStatement, String> {
+    Flux<MonthlyStatement> findAllByIdBankAccountAndPeriodBetweenOrderByPeriod(String idBankAccount,
+                                                                               int fromPeriod,
+                                                                               int toPeriod);
+    Mono<MonthlyStatement> findFirstByIdBankAccountAndPeriodGreaterThanEqualAndOpeningBalanceIsNotNullOrderByPeriod(
+            String idBankAccount, int fromPeriod);
+}
@@ -0,0 +1,35 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+// Declared here instead of with @CompoundIndex: an index definition is mapped through the field naming strategy
+// only when it is created through the index operations of the entity.
+@Component
+public class MovementIndexes {
+    private static final Logger log = LoggerFactory.getLogger(MovementIndexes.class);
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public MovementIndexes(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(Movement.class)
+                .ensureIndex(new Index()
+                        .on("idBankAccount", Sort.Direction.ASC)
+                        .on("createdAt", Sort.Direction.DESC)
+                        .named("account_created_idx"))
+                .subscribe(
+                        index -> log.info("Index of movements ensured: {}", index),
+                        error -> log.error("Creating the index of movements failed: {}", error.getMessage()));
+    }
+}
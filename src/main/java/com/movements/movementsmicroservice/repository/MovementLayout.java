@@ -0,0 +1,102 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.movements.movementsmicroservice.repository.MovementRepositoryCustomImpl.MOVEMENTS;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Layout of the flat movements collection. Switching movements.storage.compact changes the names used by writes
+ * and queries at once, while SchemaMigrationService rewrites the stored documents afterwards. Until the marker
+ * of that migration in schema_migrations says the current layout is complete, the collection is mixed and the
+ * readers also query the documents still stored in the other layout.
+ */
+@Component
+public class MovementLayout {
+    public static final String MIGRATIONS = "schema_migrations";
+    public static final String MARKER_ID = MOVEMENTS;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean compact;
+    // A completed marker stays valid until the layout is switched, and that needs a restart.
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    public MovementLayout(ReactiveMongoTemplate mongoTemplate,
+                          @Value("${movements.storage.compact:false}") boolean compact) {
+        this.mongoTemplate = mongoTemplate;
+        this.compact = compact;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public String name() {
+        return compact ? "compact" : "expanded";
+    }
+
+    public Query completedMarker() {
+        return query(where("_id").is(MARKER_ID).and("layout").is(name()).and("completed").is(true));
+    }
+
+    public Mono<Boolean> isMixed() {
+        if (completed.get()) {
+            return Mono.just(false);
+        }
+        return mongoTemplate.exists(completedMarker(), MIGRATIONS)
+                .doOnNext(completed::set)
+                .map(done -> !done);
+    }
+
+    // Stored name of a property in the layout that is not the current one.
+    public String otherFieldName(String property) {
+        return CompactMovementSchema.fieldName(property, !compact);
+    }
+
+    /**
+     * The query with the names and values of the other layout, restricted to the documents of that layout. It is
+     * a raw query: the documents it returns are read with {@link #read(Document)}.
+     */
+    public Query otherLayoutOf(Query query) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        MongoPersistentEntity<?> entity = converter.getMappingContext().getRequiredPersistentEntity(Movement.class);
+        QueryMapper mapper = new QueryMapper(converter);
+        Document filter = CompactMovementSchema.filterInLayout(
+                mapper.getMappedObject(query.getQueryObject(), entity), !compact);
+        filter.putIfAbsent(otherFieldName("typeMovement"), new Document("$exists", true));
+        BasicQuery other = new BasicQuery(filter);
+        other.setSortObject(CompactMovementSchema.filterInLayout(
+                mapper.getMappedSort(query.getSortObject(), entity), !compact));
+        return other.limit(query.getLimit());
+    }
+
+    // The same query restricted to the documents of the current layout, so a document is never read twice.
+    public Query currentLayoutOf(Query query) {
+        Query current = Query.of(query);
+        if (!query.getQueryObject().containsKey("typeMovement")) {
+            current.addCriteria(where("typeMovement").exists(true));
+        }
+        return current;
+    }
+
+    public Document inCurrentLayout(Document document) {
+        return CompactMovementSchema.inLayout(document, compact);
+    }
+
+    public Movement read(Document document) {
+        Movement movement = mongoTemplate.getConverter().read(Movement.class, inCurrentLayout(document));
+        return compact ? CompactMovementSchema.restoreDefaults(movement) : movement;
+    }
+}
@@ -3,14 +3,32 @@ package com.movements.movementsmicroservice.repository;
 import com.movements.movementsmicroservice.model.Movement;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.List;
-
-public interface MovementRepository extends ReactiveMongoRepository<Movement, String> {
-    Flux<Movement> findAllByIdBankAccountAndDateBetween(String bankAccountId, LocalDateTime from, LocalDateTime to);
-    Flux<Movement> findAllByDateBetween(LocalDateTime from, LocalDateTime to);
-    Flux<Movement> findAllByIdBankAccount(String bankAccountId);
-    Flux<Movement> findByIdBankAccountInOrderByCreatedAtDesc(List<String> idBankAccounts);
+// The methods below are served by MovementRepositoryCustomImpl from the flat collection or from the day buckets.
+public interface MovementRepository extends ReactiveMongoRepository<Movement, String>, MovementRepositoryCustom {
+    @Override
+    <S extends Movement> Mono<S> save(S movement);
+    @Override
+    <S extends Movement> Flux<S> saveAll(Iterable<S> movements);
+    @Override
+    Mono<Movement> findById(String id);
+    @Override
+    Flux<Movement> findAll();
+    @Override
+    Mono<Void> deleteById(String id);
+    @Override
+    Mono<Void> delete(Movement movement);
+    @Override
+    Mono<Void> deleteAll(Iterable<? extends Movement> movements);
+    @Override
+    Mono<Void> deleteAllById(Iterable<? extends String> ids);
+    @Override
+    Mono<Void> deleteAll();
+    @Override
+    Mono<Boolean> existsById(String id);
+    @Override
+    Flux<Movement> findAllById(Iterable<String> ids);
+    @Override
+    Mono<Long> count();
 }
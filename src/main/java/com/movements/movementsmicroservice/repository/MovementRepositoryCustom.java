@@ -0,0 +1,28 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MovementRepositoryCustom {
+    <S extends Movement> Mono<S> save(S movement);
+    <S extends Movement> Flux<S> saveAll(Iterable<S> movements);
+    Mono<Movement> findById(String id);
+    Flux<Movement> findAll();
+    Mono<Void> deleteById(String id);
+    Mono<Void> delete(Movement movement);
+    Mono<Void> deleteAll(Iterable<? extends Movement> movements);
+    Mono<Void> deleteAllById(Iterable<? extends String> ids);
+    Mono<Void> deleteAll();
+    Mono<Boolean> existsById(String id);
+    Flux<Movement> findAllById(Iterable<String> ids);
+    Mono<Long> count();
+    Flux<Movement> findAllByIdBankAccountAndDateBetween(String bankAccountId, LocalDateTime from, LocalDateTime to);
+    Flux<Movement> findAllByDateBetween(LocalDateTime from, LocalDateTime to);
+    Flux<Movement> findAllByIdBankAccount(String bankAccountId);
+    Flux<Movement> findByIdBankAccountInOrderByCreatedAtDesc(List<String> idBankAccounts);
+    Flux<Movement> findNewestDebitByIdBankAccountIn(List<String> idBankAccounts, int limit);
+}
@@ -0,0 +1,363 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MovementDayBucket;
+import com.movements.movementsmicroservice.model.MovementEntry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.PAY_CREDIT;
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.WITHDRAWAL_DEBIT;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps the semantics of MovementRepository over two layouts. The flat layout is the "movements" collection
+ * with one document per movement. The bucketed layout (movements.storage.bucketed=true) keeps one document
+ * per bank account and day, so range queries only read the buckets of the requested days. Between bounds
+ * are exclusive in both layouts, as in the derived queries. Archived records are added from the cold storage
+ * only when the requested range starts before the archive cutoff.
+ */
+public class MovementRepositoryCustomImpl implements MovementRepositoryCustom {
+    public static final String MOVEMENTS = "movements";
+    public static final String MOVEMENT_DAY_BUCKETS = "movement_day_buckets";
+    private static final List<Movement.TypeMovement> DEBIT_TYPES = List.of(PAY_CREDIT, WITHDRAWAL_DEBIT);
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReportingReads reads;
+    private final ColdStorage coldStorage;
+    private final RecentRings recentRings;
+    private final MovementLayout layout;
+    private final LedgerTransactions ledgerTransactions;
+    private final Clock clock;
+    private final boolean bucketed;
+
+    public MovementRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate,
+                                        ReportingReads reads,
+                                        ColdStorage coldStorage,
+                                        RecentRings recentRings,
+                                        MovementLayout layout,
+                                        LedgerTransactions ledgerTransactions,
+                                        Clock clock,
+                                        @Value("${movements.storage.bucketed:false}") boolean bucketed) {
+        this.mongoTemplate = mongoTemplate;
+        this.reads = reads;
+        this.coldStorage = coldStorage;
+        this.recentRings = recentRings;
+        this.layout = layout;
+        this.ledgerTransactions = ledgerTransactions;
+        this.clock = clock;
+        this.bucketed = bucketed;
+    }
+
+    @Override
+    public <S extends Movement> Mono<S> save(S movement) {
+        boolean existing = movement.getId() != null;
+        return saveInLayout(movement)
+                .flatMap(saved -> isDebit(saved)
+                        ? recentRings.record(MOVEMENTS, saved.getIdBankAccount(), saved, existing).thenReturn(saved)
+                        : Mono.just(saved));
+    }
+
+    // New movements of the flat layout are written by a single insert command.
+    @Override
+    public <S extends Movement> Flux<S> saveAll(Iterable<S> movements) {
+        List<S> batch = new ArrayList<>();
+        movements.forEach(batch::add);
+        if (bucketed || batch.stream().anyMatch(movement -> movement.getId() != null)) {
+            return Flux.fromIterable(batch).concatMap(this::save);
+        }
+        return mongoTemplate.insertAll(batch)
+                .concatMap(saved -> isDebit(saved)
+                        ? recentRings.record(MOVEMENTS, saved.getIdBankAccount(), saved, false).thenReturn(saved)
+                        : Mono.just(saved));
+    }
+
+    private <S extends Movement> Mono<S> saveInLayout(S movement) {
+        if (!bucketed) {
+            return mongoTemplate.save(movement);
+        }
+        if (movement.getCreatedAt() == null) {
+            movement.setCreatedAt(LocalDateTime.now(clock));
+        }
+        if (movement.getId() == null) {
+            movement.setId(new ObjectId().toHexString());
+            return pushToBucket(movement).thenReturn(movement);
+        }
+        String bucketId = bucketIdOf(movement);
+        Query sameBucket = query(where("_id").is(bucketId).and("movements.i").is(movement.getId()));
+        return mongoTemplate.updateFirst(sameBucket, Update.update("movements.$", MovementEntry.from(movement)),
+                        MovementDayBucket.class)
+                .flatMap(result -> result.getMatchedCount() > 0
+                        ? Mono.just(movement)
+                        : moveToBucket(movement, bucketId));
+    }
+
+    /**
+     * The movement changed day. Both writes run in one transaction when they are enabled; otherwise the movement
+     * reaches its new bucket before it leaves the old ones, so a failure between them leaves a duplicate that the
+     * reads skip and the next save removes, never a lost movement.
+     */
+    private <S extends Movement> Mono<S> moveToBucket(S movement, String bucketId) {
+        Query otherBuckets = query(where("movements.i").is(movement.getId()).and("_id").ne(bucketId));
+        return ledgerTransactions.write(pushToBucket(movement)
+                        .then(pullFromBuckets(otherBuckets, movement.getId())))
+                .thenReturn(movement);
+    }
+
+    @Override
+    public Mono<Movement> findById(String id) {
+        if (!bucketed) {
+            return reads.findById(id, Movement.class)
+                    .switchIfEmpty(coldStorage.findById(id, Movement.class, MOVEMENTS));
+        }
+        return findInBuckets(query(where("movements.i").is(id)), true)
+                .filter(movement -> id.equals(movement.getId()))
+                .next();
+    }
+
+    @Override
+    public Flux<Movement> findAll() {
+        return find(new Query(), true);
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        if (!bucketed) {
+            return mongoTemplate.remove(query(where("_id").is(id)), Movement.class)
+                    .then(coldStorage.removeById(id, MOVEMENTS))
+                    .then(recentRings.forget(id));
+        }
+        return pullFromBucket(id).then(recentRings.forget(id));
+    }
+
+    @Override
+    public Mono<Void> delete(Movement movement) {
+        return deleteById(movement.getId());
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends Movement> movements) {
+        return Flux.fromIterable(movements).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+        return Flux.fromIterable(ids).concatMap(this::deleteById).then();
+    }
+
+    // Empties the hot collection of the layout, as the base repository does, and drops the rings of movements.
+    @Override
+    public Mono<Void> deleteAll() {
+        Mono<?> removed = bucketed
+                ? mongoTemplate.remove(new Query(), MovementDayBucket.class)
+                : mongoTemplate.remove(new Query(), Movement.class);
+        return removed.then(recentRings.dropRingsHolding(MOVEMENTS, "_id")).then();
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String id) {
+        return findById(id).hasElement();
+    }
+
+    @Override
+    public Flux<Movement> findAllById(Iterable<String> ids) {
+        Set<String> wanted = new HashSet<>();
+        ids.forEach(wanted::add);
+        if (!bucketed) {
+            return find(query(where("_id").in(wanted)), true);
+        }
+        return findInBuckets(query(where("movements.i").in(wanted)), true)
+                .filter(movement -> wanted.contains(movement.getId()));
+    }
+
+    // Counts the movements of the hot collection of the layout, as the base repository does.
+    @Override
+    public Mono<Long> count() {
+        if (!bucketed) {
+            return mongoTemplate.count(new Query(), Movement.class);
+        }
+        return mongoTemplate.aggregate(newAggregation(group().sum("count").as("total")),
+                        MovementDayBucket.class, Document.class)
+                .next()
+                .map(total -> total.get("total", Number.class).longValue())
+                .defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Flux<Movement> findAllByIdBankAccountAndDateBetween(String bankAccountId,
+                                                              LocalDateTime from,
+                                                              LocalDateTime to) {
+        return findBetween(where("idBankAccount").is(bankAccountId), from, to);
+    }
+
+    @Override
+    public Flux<Movement> findAllByDateBetween(LocalDateTime from, LocalDateTime to) {
+        return findBetween(new Criteria(), from, to);
+    }
+
+    @Override
+    public Flux<Movement> findAllByIdBankAccount(String bankAccountId) {
+        return find(query(where("idBankAccount").is(bankAccountId)), true);
+    }
+
+    // The archive holds the oldest records, so it is read only when the hot records do not fill the request.
+    @Override
+    public Flux<Movement> findByIdBankAccountInOrderByCreatedAtDesc(List<String> idBankAccounts) {
+        return findNewestByIdBankAccountIn(idBankAccounts, List.of(), Integer.MAX_VALUE);
+    }
+
+    // Only PAY_CREDIT and WITHDRAWAL_DEBIT movements are kept in the rings of the bank accounts.
+    @Override
+    public Flux<Movement> findNewestDebitByIdBankAccountIn(List<String> idBankAccounts, int limit) {
+        if (!recentRings.covers(limit)) {
+            return findNewestByIdBankAccountIn(idBankAccounts, DEBIT_TYPES, limit);
+        }
+        return recentRings.newest(MOVEMENTS, idBankAccounts, Movement.class, Movement::getCreatedAt,
+                idBankAccount -> findNewestByIdBankAccountIn(List.of(idBankAccount), DEBIT_TYPES,
+                        recentRings.getCapacity()),
+                limit);
+    }
+
+    /**
+     * In the flat layout every bank account is read by its own cursor on account_created_idx, filtered by type
+     * on the server, and the cursors are merged newest first. Day buckets are not ordered by createdAt, so the
+     * bucketed layout still sorts the buckets of the accounts.
+     */
+    private Flux<Movement> findNewestByIdBankAccountIn(List<String> idBankAccounts,
+                                                       List<Movement.TypeMovement> types,
+                                                       int limit) {
+        if (bucketed) {
+            Query byAccounts = query(where("idBankAccount").in(idBankAccounts));
+            Comparator<Movement> newestFirst = Comparator.comparing(Movement::getCreatedAt).reversed();
+            return findInBuckets(byAccounts, false).sort(newestFirst)
+                    .concatWith(Flux.defer(() -> coldStorage.find(byAccounts, MovementDayBucket.class,
+                                    MOVEMENT_DAY_BUCKETS)
+                            .transform(this::toMovements)
+                            .sort(newestFirst)))
+                    .filter(movement -> types.isEmpty() || types.contains(movement.getTypeMovement()))
+                    .take(limit);
+        }
+        List<Flux<Movement>> cursors = idBankAccounts.stream().distinct()
+                .map(idBankAccount -> {
+                    Query byAccount = query(where("idBankAccount").is(idBankAccount));
+                    if (!types.isEmpty()) {
+                        byAccount.addCriteria(where("typeMovement").in(types));
+                    }
+                    return findFlat(NewestFirst.cursor(byAccount, limit), true).take(limit);
+                })
+                .collect(Collectors.toList());
+        return NewestFirst.merge(cursors, Movement::getCreatedAt, limit);
+    }
+
+    private Flux<Movement> findBetween(Criteria criteria, LocalDateTime from, LocalDateTime to) {
+        boolean withArchive = coldStorage.isNeededFrom(from);
+        if (!bucketed) {
+            return find(query(criteria.and("date").gt(from).lt(to)), withArchive);
+        }
+        Query buckets = query(criteria.and("day").gte(from.toLocalDate()).lte(to.toLocalDate()));
+        return findInBuckets(buckets, withArchive)
+                .filter(movement -> movement.getDate().isAfter(from) && movement.getDate().isBefore(to));
+    }
+
+    private Flux<Movement> find(Query query, boolean withArchive) {
+        if (bucketed) {
+            return findInBuckets(query, withArchive);
+        }
+        return findFlat(query, withArchive);
+    }
+
+    private Flux<Movement> findFlat(Query query, boolean withArchive) {
+        Flux<Movement> hot = findInLayouts(query, current -> reads.find(current, Movement.class),
+                other -> reads.find(other, Document.class, MOVEMENTS));
+        return withArchive
+                ? hot.concatWith(Flux.defer(() -> findInLayouts(query,
+                        current -> coldStorage.find(current, Movement.class, MOVEMENTS),
+                        other -> coldStorage.find(other, Document.class, MOVEMENTS))))
+                : hot;
+    }
+
+    /**
+     * While the collection still holds documents of the other layout (see MovementLayout), each layout is read by
+     * its own query and the two are merged; sorted queries are cursors newest first, so they are merged in order.
+     */
+    private Flux<Movement> findInLayouts(Query query, Function<Query, Flux<Movement>> current,
+                                         Function<Query, Flux<Document>> other) {
+        return layout.isMixed().flatMapMany(mixed -> {
+            if (!mixed) {
+                return current.apply(query);
+            }
+            Flux<Movement> inCurrent = current.apply(layout.currentLayoutOf(query));
+            Flux<Movement> inOther = other.apply(layout.otherLayoutOf(query)).map(layout::read);
+            return query.isSorted()
+                    ? NewestFirst.merge(List.of(inCurrent, inOther), Movement::getCreatedAt,
+                            query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE)
+                    : inCurrent.concatWith(inOther);
+        });
+    }
+
+    private Flux<Movement> findInBuckets(Query query, boolean withArchive) {
+        Flux<MovementDayBucket> hot = reads.find(query, MovementDayBucket.class);
+        Flux<MovementDayBucket> buckets = withArchive
+                ? hot.concatWith(coldStorage.find(query, MovementDayBucket.class, MOVEMENT_DAY_BUCKETS))
+                : hot;
+        return toMovements(buckets);
+    }
+
+    private Mono<Void> pushToBucket(Movement movement) {
+        Update update = new Update()
+                .setOnInsert("idBankAccount", movement.getIdBankAccount())
+                .setOnInsert("day", movement.getDate().toLocalDate())
+                .push("movements", MovementEntry.from(movement))
+                .inc("count", 1);
+        return mongoTemplate.upsert(query(where("_id").is(bucketIdOf(movement))), update, MovementDayBucket.class)
+                .then();
+    }
+
+    private Mono<Void> pullFromBucket(String id) {
+        return pullFromBuckets(query(where("movements.i").is(id)), id);
+    }
+
+    // The archived copy is pulled too, whatever its day, so a deleted or updated movement is not read back from it.
+    private Mono<Void> pullFromBuckets(Query hotBuckets, String id) {
+        Update update = new Update()
+                .pull("movements", new Document("i", id))
+                .inc("count", -1);
+        return mongoTemplate.updateMulti(hotBuckets, update, MovementDayBucket.class)
+                .then(coldStorage.updateMulti(query(where("movements.i").is(id)), update, MOVEMENT_DAY_BUCKETS));
+    }
+
+    // A movement left in its old bucket by an interrupted move is read once.
+    private Flux<Movement> toMovements(Flux<MovementDayBucket> buckets) {
+        return buckets.flatMapIterable(bucket -> bucket.getMovements().stream()
+                        .map(entry -> entry.toMovement(bucket.getIdBankAccount()))
+                        .collect(Collectors.toList()))
+                .distinct(Movement::getId);
+    }
+
+    private boolean isDebit(Movement movement) {
+        return DEBIT_TYPES.contains(movement.getTypeMovement());
+    }
+
+    private String bucketIdOf(Movement movement) {
+        return MovementDayBucket.bucketId(movement.getIdBankAccount(), movement.getDate().toLocalDate());
+    }
+}
@@ -0,0 +1,36 @@
+package com.movements.movementsmicroservice.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * k-way merge of streams that are each ordered newest first. Every stream is one index-ordered cursor of a
+ * single product, so Mongo never sorts an $in across products and the merge stops after {@code limit}
+ * records, reading at most {@code limit} records of each product.
+ */
+public final class NewestFirst {
+    public static final String CREATED_AT = "createdAt";
+    private static final int MAX_PREFETCH = 256;
+
+    private NewestFirst() {
+    }
+
+    public static Query cursor(Query byProduct, int limit) {
+        Query newest = byProduct.with(Sort.by(Sort.Direction.DESC, CREATED_AT));
+        return limit == Integer.MAX_VALUE ? newest : newest.limit(limit);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Flux<T> merge(List<Flux<T>> cursors, Function<T, LocalDateTime> createdAt, int limit) {
+        Comparator<T> newestFirst = Comparator.comparing(createdAt, Comparator.nullsLast(Comparator.reverseOrder()));
+        int prefetch = Math.max(1, Math.min(limit, MAX_PREFETCH));
+        return Flux.mergeComparing(prefetch, newestFirst, cursors.toArray(new Flux[0]))
+                .take(limit);
+    }
+}
@@ -4,10 +4,18 @@ import com.movements.movementsmicroservice.model.Movement;
 import com.movements.movementsmicroservice.model.Payment;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.List;
 
-public interface PaymentRepository extends ReactiveMongoRepository<Payment, String> {
-    Flux<Payment> findAllByIdProductCredit(String idProductCredit);
-    Flux<Payment> findByIdProductCreditInOrderByCreatedAtDesc(List<String> idCreditCards);
+// save and the deletes are served by PaymentRepositoryCustomImpl, which keeps the recent rings; findAll goes
+// through the reporting reads.
+public interface PaymentRepository extends ReactiveMongoRepository<Payment, String>, PaymentRepositoryCustom {
+    @Override
+    <S extends Payment> Mono<S> save(S payment);
+    @Override
+    Mono<Void> delete(Payment payment);
+    @Override
+    Flux<Payment> findAll();
+    @Override
+    Mono<Void> deleteById(String id);
 }
@@ -0,0 +1,16 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Payment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface PaymentRepositoryCustom {
+    <S extends Payment> Mono<S> save(S payment);
+    Mono<Void> delete(Payment payment);
+    Flux<Payment> findAll();
+    Mono<Void> deleteById(String id);
+    Flux<Payment> findAllByIdProductCredit(String idProductCredit);
+    Flux<Payment> findNewestByIdProductCreditIn(List<String> idProductCredits, int limit);
+}
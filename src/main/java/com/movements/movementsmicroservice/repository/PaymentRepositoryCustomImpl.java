@@ -0,0 +1,78 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Payment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+// Full history of a credit product: hot payments followed by the archived ones. Writes keep the recent rings.
+public class PaymentRepositoryCustomImpl implements PaymentRepositoryCustom {
+    public static final String PAYMENTS = "payments";
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReportingReads reads;
+    private final ColdStorage coldStorage;
+    private final RecentRings recentRings;
+
+    public PaymentRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate, ReportingReads reads,
+                                       ColdStorage coldStorage, RecentRings recentRings) {
+        this.mongoTemplate = mongoTemplate;
+        this.reads = reads;
+        this.coldStorage = coldStorage;
+        this.recentRings = recentRings;
+    }
+
+    @Override
+    public <S extends Payment> Mono<S> save(S payment) {
+        boolean existing = payment.getId() != null;
+        return mongoTemplate.save(payment)
+                .flatMap(saved -> recentRings.record(PAYMENTS, saved.getIdProductCredit(), saved, existing)
+                        .thenReturn(saved));
+    }
+
+    @Override
+    public Mono<Void> delete(Payment payment) {
+        return deleteById(payment.getId());
+    }
+
+    @Override
+    public Flux<Payment> findAll() {
+        return reads.find(new Query(), Payment.class);
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return mongoTemplate.remove(query(where("_id").is(id)), Payment.class)
+                .then(recentRings.forget(id));
+    }
+
+    @Override
+    public Flux<Payment> findAllByIdProductCredit(String idProductCredit) {
+        Query byProductCredit = query(where("idProductCredit").is(idProductCredit));
+        return reads.find(byProductCredit, Payment.class)
+                .concatWith(coldStorage.find(byProductCredit, Payment.class, PAYMENTS));
+    }
+
+    @Override
+    public Flux<Payment> findNewestByIdProductCreditIn(List<String> idProductCredits, int limit) {
+        if (!recentRings.covers(limit)) {
+            return newest(idProductCredits, limit);
+        }
+        return recentRings.newest(PAYMENTS, idProductCredits, Payment.class, Payment::getCreatedAt,
+                idProductCredit -> newest(List.of(idProductCredit), recentRings.getCapacity()), limit);
+    }
+
+    private Flux<Payment> newest(List<String> idProductCredits, int limit) {
+        return NewestFirst.merge(idProductCredits.stream().distinct()
+                .map(idProductCredit -> reads.find(
+                        NewestFirst.cursor(query(where("idProductCredit").is(idProductCredit)), limit),
+                        Payment.class))
+                .collect(Collectors.toList()), Payment::getCreatedAt, limit);
+    }
+}
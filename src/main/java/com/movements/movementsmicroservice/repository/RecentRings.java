@@ -0,0 +1,154 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.RecentRing;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps the newest records of every product in a capped array, so the "last ten" reports read one small
+ * document per product and merge them instead of sorting the whole collection. Writes push into the ring of
+ * their product and create it when it is missing, but a ring is read only once it has been filled from its
+ * collection. The fill pushes its records into the ring with the same sort and slice, so a record written
+ * meanwhile is kept. A ring is dropped when one of its records is deleted so the next read fills it again.
+ */
+@Component
+public class RecentRings {
+    private static final String ENTRIES = "entries";
+    private static final String FILLED = "filled";
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MovementLayout movementLayout;
+    private final boolean enabled;
+    private final int capacity;
+
+    public RecentRings(ReactiveMongoTemplate mongoTemplate,
+                       MovementLayout movementLayout,
+                       @Value("${movements.recent-rings.enabled:true}") boolean enabled,
+                       @Value("${movements.recent-rings.capacity:10}") int capacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.movementLayout = movementLayout;
+        this.enabled = enabled;
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean covers(int limit) {
+        return enabled && limit <= capacity;
+    }
+
+    public Mono<Void> record(String collection, String idProduct, Object entity, boolean existing) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        Document entry = toEntry(entity);
+        String ringId = RecentRing.ringId(collection, idProduct);
+        Mono<Void> pullPrevious = existing
+                ? mongoTemplate.updateFirst(query(where("_id").is(ringId)),
+                        new Update().pull(ENTRIES, new Document("_id", entry.get("_id"))), RecentRing.class).then()
+                : Mono.empty();
+        Update push = new Update().setOnInsert(FILLED, false);
+        pushNewest(push, entity.getClass(), List.of(entry));
+        return pullPrevious.then(mongoTemplate.upsert(query(where("_id").is(ringId)), push, RecentRing.class))
+                .then();
+    }
+
+    public Mono<Void> forget(String id) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        Object storedId = ObjectId.isValid(id) ? new ObjectId(id) : id;
+        return mongoTemplate.remove(query(where("entries._id").is(storedId)), RecentRing.class).then();
+    }
+
+    // Drops the rings of a collection holding an entry with the field, so their next read fills them again.
+    public Mono<Long> dropRingsHolding(String collection, String field) {
+        return mongoTemplate.remove(query(where("_id").regex("^" + collection + ":")
+                        .and(ENTRIES + "." + field).exists(true)), RecentRing.class)
+                .map(result -> result.getDeletedCount());
+    }
+
+    // A missing ring is filled from newestOf, which returns the records of one product newest first.
+    public <T> Flux<T> newest(String collection, List<String> idProducts, Class<T> type,
+                              Function<T, LocalDateTime> createdAt, Function<String, Flux<T>> newestOf,
+                              int limit) {
+        Map<String, String> productByRing = idProducts.stream().distinct()
+                .collect(Collectors.toMap(idProduct -> RecentRing.ringId(collection, idProduct),
+                        Function.identity()));
+        Query filledRings = query(where("_id").in(productByRing.keySet()).and(FILLED).is(true));
+        return mongoTemplate.find(filledRings, RecentRing.class)
+                .collectMap(RecentRing::getId, ring -> ring.getEntries().stream()
+                        .filter(distinctIds())
+                        .map(entry -> read(type, entry))
+                        .collect(Collectors.toList()))
+                .flatMapMany(rings -> NewestFirst.merge(productByRing.entrySet().stream()
+                        .map(ring -> rings.containsKey(ring.getKey())
+                                ? Flux.fromIterable(rings.get(ring.getKey()))
+                                : fill(ring.getKey(), type, newestOf.apply(ring.getValue())))
+                        .collect(Collectors.toList()), createdAt, limit));
+    }
+
+    // The entries of the records are pulled first, so the fill does not repeat a record already pushed by a write.
+    private <T> Flux<T> fill(String ringId, Class<T> type, Flux<T> newest) {
+        return newest.take(capacity).collectList()
+                .flatMapMany(records -> {
+                    List<Document> entries = records.stream().map(this::toEntry).collect(Collectors.toList());
+                    List<Object> ids = entries.stream().map(entry -> entry.get("_id")).collect(Collectors.toList());
+                    Update merge = new Update().set(FILLED, true);
+                    pushNewest(merge, type, entries);
+                    return mongoTemplate.updateFirst(query(where("_id").is(ringId)),
+                                    new Update().pull(ENTRIES, new Document("_id", new Document("$in", ids))),
+                                    RecentRing.class)
+                            .then(mongoTemplate.upsert(query(where("_id").is(ringId)), merge, RecentRing.class))
+                            .thenMany(Flux.fromIterable(records));
+                });
+    }
+
+    private void pushNewest(Update update, Class<?> type, List<Document> entries) {
+        String createdAt = StoredFields.of(mongoTemplate.getConverter(), type, NewestFirst.CREATED_AT);
+        update.push(ENTRIES).sort(Sort.by(Sort.Direction.DESC, createdAt)).slice(capacity)
+                .each(entries.toArray());
+    }
+
+    // A record pushed by a write while the ring was filled may be in it twice.
+    private static Predicate<Document> distinctIds() {
+        Set<Object> seen = new HashSet<>();
+        return entry -> seen.add(entry.get("_id"));
+    }
+
+    // Movement entries pushed before a switch of the layout are read like the movements of the collection.
+    private <T> T read(Class<T> type, Document entry) {
+        return type == Movement.class
+                ? type.cast(movementLayout.read(entry))
+                : mongoTemplate.getConverter().read(type, entry);
+    }
+
+    private Document toEntry(Object record) {
+        Document entry = new Document();
+        mongoTemplate.getConverter().write(record, entry);
+        entry.remove("_class");
+        return entry;
+    }
+}
@@ -0,0 +1,17 @@
+package com.movements.movementsmicroservice.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service or repository method whose Mongo reads may be served by the reporting template
+ * (secondary preferred, bounded staleness). Only methods returning Mono or Flux are routed.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReportingRead {
+}
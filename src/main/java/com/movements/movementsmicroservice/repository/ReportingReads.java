@@ -0,0 +1,66 @@
+package com.movements.movementsmicroservice.repository;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * Reads of the repositories. They go to the reporting template when the subscriber context was marked by
+ * {@link #routed(Flux)} or by a {@link ReportingRead} method, and to the primary template otherwise; writes
+ * never come through here.
+ */
+@Component
+public class ReportingReads {
+    private static final String REPORTING = ReportingReads.class.getName() + ".reporting";
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveMongoTemplate reportingMongoTemplate;
+
+    public ReportingReads(ReactiveMongoTemplate mongoTemplate,
+                          @Qualifier("reportingMongoTemplate") ReactiveMongoTemplate reportingMongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.reportingMongoTemplate = reportingMongoTemplate;
+    }
+
+    public static <T> Flux<T> routed(Flux<T> reads) {
+        return reads.contextWrite(context -> context.put(REPORTING, true));
+    }
+
+    public static <T> Mono<T> routed(Mono<T> reads) {
+        return reads.contextWrite(context -> context.put(REPORTING, true));
+    }
+
+    public static MethodInterceptor interceptor() {
+        return invocation -> {
+            Object result = invocation.proceed();
+            if (result instanceof Flux) {
+                return routed((Flux<?>) result);
+            }
+            return result instanceof Mono ? routed((Mono<?>) result) : result;
+        };
+    }
+
+    public <T> Flux<T> find(Query query, Class<T> type) {
+        return Flux.deferContextual(context -> templateOf(context).find(query, type));
+    }
+
+    public <T> Flux<T> find(Query query, Class<T> type, String collection) {
+        return Flux.deferContextual(context -> templateOf(context).find(query, type, collection));
+    }
+
+    public <T> Mono<T> findById(Object id, Class<T> type) {
+        return Mono.deferContextual(context -> templateOf(context).findById(id, type));
+    }
+
+    public <T> Mono<T> findById(Object id, Class<T> type, String collection) {
+        return Mono.deferContextual(context -> templateOf(context).findById(id, type, collection));
+    }
+
+    private ReactiveMongoTemplate templateOf(ContextView context) {
+        return context.getOrDefault(REPORTING, false) ? reportingMongoTemplate : mongoTemplate;
+    }
+}
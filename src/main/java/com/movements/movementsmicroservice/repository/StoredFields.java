@@ -0,0 +1,17 @@
+package com.movements.movementsmicroservice.repository;
+
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+// Name under which a property is stored, for the raw documents and pipelines that the query mapper does not see.
+public final class StoredFields {
+
+    private StoredFields() {
+    }
+
+    public static String of(MongoConverter converter, Class<?> type, String property) {
+        return converter.getMappingContext()
+                .getRequiredPersistentEntity(type)
+                .getRequiredPersistentProperty(property)
+                .getFieldName();
+    }
+}
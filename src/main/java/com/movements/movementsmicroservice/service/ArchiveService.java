@@ -0,0 +1,9 @@
+package com.movements.movementsmicroservice.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+public interface ArchiveService {
+    Mono<Map<String, Long>> archiveOldRecords();
+}
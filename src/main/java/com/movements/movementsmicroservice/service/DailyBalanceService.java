@@ -0,0 +1,14 @@
+package com.movements.movementsmicroservice.service;
+
+import com.movements.movementsmicroservice.DTO.DailyAverageBalanceDto;
+import com.movements.movementsmicroservice.model.Movement;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+public interface DailyBalanceService {
+    Mono<Void> recordMovement(Movement movement, Double balanceAfter);
+    Mono<Void> invalidate(String idBankAccount, LocalDateTime date);
+    Mono<DailyAverageBalanceDto> getDailyAverage(String idBankAccount, YearMonth month);
+}
@@ -0,0 +1,9 @@
+package com.movements.movementsmicroservice.service;
+
+import com.movements.movementsmicroservice.DTO.FeedEventDto;
+import com.movements.movementsmicroservice.DTO.FeedFilterDto;
+import reactor.core.publisher.Flux;
+
+public interface FeedService {
+    Flux<FeedEventDto> watch(FeedFilterDto filter, String resumeToken);
+}
@@ -1,5 +1,6 @@
 package com.movements.movementsmicroservice.service;
 
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
 import com.movements.movementsmicroservice.model.Consumption;
 import com.movements.movementsmicroservice.model.Movement;
 import reactor.core.publisher.Flux;
@@ -22,4 +23,6 @@ public interface MovementService {
     Flux<Movement> findAllByDateBetween(LocalDateTime from, LocalDateTime to);
     Mono<Map<String, List<?>>> getBankProductsByIdClient(String idClient);
     Mono<List<Movement>> getDebitMovementsTopTenByBankAccountIds(List<String> idBankAccounts);
+    Mono<List<Movement>> withdrawFromFundingSources(Movement withdrawal, List<FundingSourceDto> fundingSources);
+    Mono<Void> reverseWithdrawals(List<Movement> withdrawals);
 }
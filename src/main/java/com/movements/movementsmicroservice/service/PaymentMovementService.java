@@ -1,9 +1,13 @@
 package com.movements.movementsmicroservice.service;
 
-import com.movements.movementsmicroservice.DTO.BankAccountDto;
-import com.movements.movementsmicroservice.DTO.DebitCardDto;
+import com.movements.movementsmicroservice.DTO.DebitCardSummaryDto;
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface PaymentMovementService {
-    Mono<BankAccountDto> getBankAccountWithBalanceAvailableForPay(DebitCardDto debitCard, Double amountDebt);
+    Mono<DebitCardSummaryDto> findDebitCardSummary(String idDebitCard);
+    Mono<List<FundingSourceDto>> getFundingSourcesForPay(DebitCardSummaryDto debitCard, Double amountDebt);
+    void evictDebitCardSummary(String idDebitCard);
 }
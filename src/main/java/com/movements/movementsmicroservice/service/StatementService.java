@@ -0,0 +1,18 @@
+package com.movements.movementsmicroservice.service;
+
+import com.movements.movementsmicroservice.DTO.AccountStatementDto;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MonthlyStatement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+public interface StatementService {
+    Mono<Void> recordMovement(Movement movement, Double balanceAfter);
+    Mono<Void> invalidate(String idBankAccount, LocalDateTime date);
+    Flux<MonthlyStatement> findStatements(String idBankAccount, YearMonth from, YearMonth to);
+    Mono<AccountStatementDto> getAccountStatement(String idBankAccount, YearMonth from, YearMonth to);
+    Mono<Long> closeMonth(YearMonth month);
+}
@@ -0,0 +1,92 @@
+package com.movements.movementsmicroservice.service.impl;
+
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.repository.ColdStorage;
+import com.movements.movementsmicroservice.repository.MovementLayout;
+import com.movements.movementsmicroservice.repository.StoredFields;
+import com.movements.movementsmicroservice.service.ArchiveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.movements.movementsmicroservice.repository.ConsumptionRepositoryCustomImpl.CONSUMPTIONS;
+import static com.movements.movementsmicroservice.repository.MovementRepositoryCustomImpl.MOVEMENTS;
+import static com.movements.movementsmicroservice.repository.MovementRepositoryCustomImpl.MOVEMENT_DAY_BUCKETS;
+import static com.movements.movementsmicroservice.repository.PaymentRepositoryCustomImpl.PAYMENTS;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Service
+public class ArchiveServiceImp implements ArchiveService {
+    private static final Logger log = LoggerFactory.getLogger(ArchiveServiceImp.class);
+    private final ColdStorage coldStorage;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MovementLayout movementLayout;
+    private final int batchSize;
+
+    public ArchiveServiceImp(ColdStorage coldStorage,
+                             ReactiveMongoTemplate mongoTemplate,
+                             MovementLayout movementLayout,
+                             @Value("${movements.archive.batch-size:500}") int batchSize) {
+        this.coldStorage = coldStorage;
+        this.mongoTemplate = mongoTemplate;
+        this.movementLayout = movementLayout;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${movements.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (!coldStorage.isEnabled()) {
+            return;
+        }
+        archiveOldRecords().subscribe(
+                archived -> log.info("Records moved to the archive: {}", archived),
+                error -> log.error("Archiving old records failed: {}", error.getMessage()));
+    }
+
+    @Override
+    public Mono<Map<String, Long>> archiveOldRecords() {
+        return movementLayout.isMixed().flatMap(this::archiveOldRecords);
+    }
+
+    // Movements not migrated yet keep the date under the name of the other layout.
+    private Mono<Map<String, Long>> archiveOldRecords(boolean mixedMovements) {
+        LocalDateTime cutoff = coldStorage.cutoff();
+        Map<String, Query> olderThanCutoff = new LinkedHashMap<>();
+        String movementDate = StoredFields.of(mongoTemplate.getConverter(), Movement.class, "date");
+        Criteria oldMovements = where(movementDate).lt(cutoff);
+        if (mixedMovements) {
+            oldMovements = new Criteria().orOperator(oldMovements,
+                    where(movementLayout.otherFieldName("date")).lt(cutoff));
+        }
+        olderThanCutoff.put(MOVEMENTS, query(oldMovements));
+        olderThanCutoff.put(MOVEMENT_DAY_BUCKETS, query(where("day").lt(cutoff.toLocalDate())));
+        olderThanCutoff.put(PAYMENTS, query(where("datePayment").lt(cutoff)));
+        // Consumptions not billed yet are still read by the billing process, they stay hot.
+        olderThanCutoff.put(CONSUMPTIONS, query(where("dateConsumption").lt(cutoff).and("billed").is(true)));
+        return Flux.fromIterable(olderThanCutoff.entrySet())
+                .concatMap(entry -> archive(entry.getKey(), entry.getValue())
+                        .map(archived -> Map.entry(entry.getKey(), archived)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    private Mono<Long> archive(String collection, Query olderThanCutoff) {
+        return coldStorage.createArchiveIfMissing(collection)
+                .then(coldStorage.archiveBatch(collection, olderThanCutoff, batchSize)
+                        .expand(archived -> archived < batchSize
+                                ? Mono.empty()
+                                : coldStorage.archiveBatch(collection, olderThanCutoff, batchSize))
+                        .reduce(0L, Long::sum));
+    }
+}
@@ -6,7 +6,9 @@ import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
 import com.movements.movementsmicroservice.model.Consumption;
 import com.movements.movementsmicroservice.DTO.CreditCardDto;
 import com.movements.movementsmicroservice.repository.ConsumptionRepository;
+import com.movements.movementsmicroservice.repository.ReportingRead;
 import com.movements.movementsmicroservice.service.ConsumptionService;
+import com.movements.movementsmicroservice.utils.ExecutionUtil;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -27,6 +29,7 @@ public class ConsumptionServiceImp implements ConsumptionService {
 
 
     @Override
+    @ReportingRead
     public Flux<Consumption> getAll() {
         return consumptionRepository.findAll();
     }
@@ -77,8 +80,8 @@ public class ConsumptionServiceImp implements ConsumptionService {
 
     @Override
     public Flux<Consumption> findAllConsumptionsByIdCreditCardAndSortByDate(String id) {
-        return consumptionRepository.findAllByIdCreditCard(id)
-                .sort(Comparator.comparing(Consumption::getDateConsumption).reversed());
+        return ExecutionUtil.sorted(consumptionRepository.findAllByIdCreditCard(id),
+                Comparator.comparing(Consumption::getDateConsumption).reversed());
     }
 
     @Override
@@ -92,9 +95,9 @@ public class ConsumptionServiceImp implements ConsumptionService {
     }
 
     @Override
+    @ReportingRead
     public Mono<List<Consumption>> findLastTenByIdCreditCards(List<String> idCreditCards) {
-        return consumptionRepository.findByIdCreditCardInOrderByCreatedAtDesc(idCreditCards)
-                .take(10)
+        return consumptionRepository.findNewestByIdCreditCardIn(idCreditCards, 10)
                 .collectList();
     }
 }
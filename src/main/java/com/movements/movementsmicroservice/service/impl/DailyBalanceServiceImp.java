@@ -0,0 +1,176 @@
+package com.movements.movementsmicroservice.service.impl;
+
+import com.movements.movementsmicroservice.DTO.DailyAverageBalanceDto;
+import com.movements.movementsmicroservice.client.BankAccountService;
+import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
+import com.movements.movementsmicroservice.model.DailyBalanceSeries;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MonthlyStatement;
+import com.movements.movementsmicroservice.repository.DailyBalanceSeriesRepository;
+import com.movements.movementsmicroservice.repository.MovementRepository;
+import com.movements.movementsmicroservice.service.DailyBalanceService;
+import com.movements.movementsmicroservice.service.StatementService;
+import com.movements.movementsmicroservice.utils.ExecutionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.DEPOSIT;
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.TRANSFER;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * The series of a month is written by every movement of the present month, so the daily average is read
+ * from at most 31 values. Like the monthly statements, a series touched by an update, a delete or a
+ * movement of another month is dropped and rebuilt once on the next read. The opening balance of a rebuilt
+ * series comes from the statement of its month or, for history older than the statements, from the present
+ * balance of the account less what moved since the month started.
+ */
+@Service
+public class DailyBalanceServiceImp implements DailyBalanceService {
+    private static final Logger log = LoggerFactory.getLogger(DailyBalanceServiceImp.class);
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final DailyBalanceSeriesRepository dailyBalanceSeriesRepository;
+    private final MovementRepository movementRepository;
+    private final StatementService statementService;
+    private final BankAccountService bankAccountService;
+    private final Clock clock;
+
+    public DailyBalanceServiceImp(ReactiveMongoTemplate mongoTemplate,
+                                  DailyBalanceSeriesRepository dailyBalanceSeriesRepository,
+                                  MovementRepository movementRepository,
+                                  StatementService statementService,
+                                  BankAccountService bankAccountService,
+                                  Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.dailyBalanceSeriesRepository = dailyBalanceSeriesRepository;
+        this.movementRepository = movementRepository;
+        this.statementService = statementService;
+        this.bankAccountService = bankAccountService;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Void> recordMovement(Movement movement, Double balanceAfter) {
+        if (movement.getTypeMovement() == TRANSFER) {
+            return Mono.empty();
+        }
+        YearMonth month = YearMonth.from(movement.getDate());
+        if (!month.equals(YearMonth.now(clock))) {
+            return invalidate(movement.getIdBankAccount(), movement.getDate());
+        }
+        double commission = movement.getCommissionAmount() == null ? 0.0 : movement.getCommissionAmount();
+        Update update = new Update()
+                .setOnInsert("idBankAccount", movement.getIdBankAccount())
+                .setOnInsert("period", month.getYear() * 100 + month.getMonthValue())
+                .setOnInsert("openingBalance", balanceAfter - signedAmount(movement) + commission)
+                .set("closingByDay." + movement.getDate().getDayOfMonth(), balanceAfter)
+                .set("updatedAt", LocalDateTime.now(clock));
+        String id = DailyBalanceSeries.seriesId(movement.getIdBankAccount(), month);
+        return mongoTemplate.upsert(query(where("_id").is(id)), update, DailyBalanceSeries.class)
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Daily balances {} could not be updated, they will be rebuilt: {}",
+                            id, error.getMessage());
+                    return dailyBalanceSeriesRepository.deleteById(id);
+                });
+    }
+
+    @Override
+    public Mono<Void> invalidate(String idBankAccount, LocalDateTime date) {
+        return dailyBalanceSeriesRepository.deleteById(
+                DailyBalanceSeries.seriesId(idBankAccount, YearMonth.from(date)));
+    }
+
+    @Override
+    public Mono<DailyAverageBalanceDto> getDailyAverage(String idBankAccount, YearMonth requestedMonth) {
+        YearMonth present = YearMonth.now(clock);
+        YearMonth month = requestedMonth == null ? present : requestedMonth;
+        if (month.isAfter(present)) {
+            return Mono.error(new ResourceNotFoundException("There are no balances for the month %s", month));
+        }
+        int days = month.equals(present) ? LocalDateTime.now(clock).getDayOfMonth() : month.lengthOfMonth();
+        return dailyBalanceSeriesRepository.findById(DailyBalanceSeries.seriesId(idBankAccount, month))
+                .switchIfEmpty(Mono.defer(() -> rebuild(idBankAccount, month)))
+                .filter(series -> series.getOpeningBalance() != null)
+                .map(series -> new DailyAverageBalanceDto(idBankAccount, month.toString(), days,
+                        average(series, days)))
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException(
+                        "There are no balances of the bank account for the month %s", month)));
+    }
+
+    private Mono<DailyBalanceSeries> rebuild(String idBankAccount, YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay().minusNanos(1);
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        return openingOf(idBankAccount, month)
+                .zipWith(ExecutionUtil.collectSorted(
+                        movementRepository.findAllByIdBankAccountAndDateBetween(idBankAccount, from, to)
+                                .filter(movement -> movement.getTypeMovement() != TRANSFER),
+                        Comparator.comparing(Movement::getDate)))
+                .map(tuple -> series(idBankAccount, month, tuple.getT1(), tuple.getT2()))
+                .flatMap(series -> dailyBalanceSeriesRepository.insert(series)
+                        .onErrorResume(DuplicateKeyException.class, e -> Mono.just(series)));
+    }
+
+    private Mono<Double> openingOf(String idBankAccount, YearMonth month) {
+        return statementService.findStatements(idBankAccount, month, month).next()
+                .filter(statement -> statement.getOpeningBalance() != null)
+                .map(MonthlyStatement::getOpeningBalance)
+                .switchIfEmpty(Mono.defer(() -> openingFromBalance(idBankAccount, month)));
+    }
+
+    private Mono<Double> openingFromBalance(String idBankAccount, YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay().minusNanos(1);
+        LocalDateTime to = LocalDateTime.now(clock).plusDays(1);
+        return bankAccountService.findById(idBankAccount)
+                .filter(account -> account.getBalance() != null)
+                .flatMap(account -> movementRepository.findAllByIdBankAccountAndDateBetween(idBankAccount, from, to)
+                        .filter(movement -> movement.getTypeMovement() != TRANSFER)
+                        .reduce(account.getBalance(), (opening, movement) -> opening - signedAmount(movement)
+                                + (movement.getCommissionAmount() == null ? 0.0 : movement.getCommissionAmount())));
+    }
+
+    private DailyBalanceSeries series(String idBankAccount, YearMonth month, Double openingBalance,
+                                      List<Movement> movements) {
+        DailyBalanceSeries series = new DailyBalanceSeries();
+        series.setId(DailyBalanceSeries.seriesId(idBankAccount, month));
+        series.setIdBankAccount(idBankAccount);
+        series.setPeriod(month.getYear() * 100 + month.getMonthValue());
+        series.setOpeningBalance(openingBalance);
+        if (openingBalance != null) {
+            double balance = openingBalance;
+            for (Movement movement : movements) {
+                double commission = movement.getCommissionAmount() == null ? 0.0 : movement.getCommissionAmount();
+                balance += signedAmount(movement) - commission;
+                series.getClosingByDay().put(String.valueOf(movement.getDate().getDayOfMonth()), balance);
+            }
+        }
+        series.setUpdatedAt(LocalDateTime.now(clock));
+        return series;
+    }
+
+    private double average(DailyBalanceSeries series, int days) {
+        double balance = series.getOpeningBalance();
+        double total = 0.0;
+        for (int day = 1; day <= days; day++) {
+            balance = series.getClosingByDay().getOrDefault(String.valueOf(day), balance);
+            total += balance;
+        }
+        return total / days;
+    }
+
+    private double signedAmount(Movement movement) {
+        return movement.getTypeMovement() == DEPOSIT ? movement.getAmount() : -movement.getAmount();
+    }
+}
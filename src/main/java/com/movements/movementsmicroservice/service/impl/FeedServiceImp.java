@@ -0,0 +1,244 @@
+package com.movements.movementsmicroservice.service.impl;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.DTO.CreditCardDto;
+import com.movements.movementsmicroservice.DTO.CreditDto;
+import com.movements.movementsmicroservice.DTO.FeedEventDto;
+import com.movements.movementsmicroservice.DTO.FeedFilterDto;
+import com.movements.movementsmicroservice.client.BankAccountService;
+import com.movements.movementsmicroservice.client.CreditCardService;
+import com.movements.movementsmicroservice.client.CreditService;
+import com.movements.movementsmicroservice.exceptions.InvalidRequestException;
+import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
+import com.movements.movementsmicroservice.model.Consumption;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MovementDayBucket;
+import com.movements.movementsmicroservice.model.MovementEntry;
+import com.movements.movementsmicroservice.model.Payment;
+import com.movements.movementsmicroservice.repository.CompactMovementSchema;
+import com.movements.movementsmicroservice.repository.StoredFields;
+import com.movements.movementsmicroservice.service.FeedService;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.movements.movementsmicroservice.repository.ConsumptionRepositoryCustomImpl.CONSUMPTIONS;
+import static com.movements.movementsmicroservice.repository.MovementRepositoryCustomImpl.MOVEMENTS;
+import static com.movements.movementsmicroservice.repository.MovementRepositoryCustomImpl.MOVEMENT_DAY_BUCKETS;
+import static com.movements.movementsmicroservice.repository.PaymentRepositoryCustomImpl.PAYMENTS;
+
+/**
+ * One database change stream filtered on the server by collection and product, so a consumer gets a single
+ * resume token for movements, payments and consumptions. Only inserts are published. In the bucketed layout
+ * a new movement is a push into its day bucket, recognised by the change of the bucket count.
+ * Change streams need Mongo running as a replica set.
+ */
+@Service
+public class FeedServiceImp implements FeedService {
+    public static final String MOVEMENT = "movement";
+    public static final String PAYMENT = "payment";
+    public static final String CONSUMPTION = "consumption";
+    private static final Pattern BUCKET_ENTRY = Pattern.compile("movements\\.(\\d+)");
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final BankAccountService bankAccountService;
+    private final CreditService creditService;
+    private final CreditCardService creditCardService;
+    private final boolean bucketed;
+
+    public FeedServiceImp(ReactiveMongoTemplate mongoTemplate,
+                          BankAccountService bankAccountService,
+                          CreditService creditService,
+                          CreditCardService creditCardService,
+                          @Value("${movements.storage.bucketed:false}") boolean bucketed) {
+        this.mongoTemplate = mongoTemplate;
+        this.bankAccountService = bankAccountService;
+        this.creditService = creditService;
+        this.creditCardService = creditCardService;
+        this.bucketed = bucketed;
+    }
+
+    @Override
+    public Flux<FeedEventDto> watch(FeedFilterDto filter, String resumeToken) {
+        return withProductsOfClient(filter)
+                .flatMapMany(resolved -> {
+                    ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                            .filter(match(resolved));
+                    if (bucketed) {
+                        options.fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+                    }
+                    if (resumeToken != null && !resumeToken.isBlank()) {
+                        options.resumeAfter(new BsonDocument("_data", new BsonString(resumeToken)));
+                    }
+                    return mongoTemplate.changeStream(null, null, options.build(), Document.class);
+                })
+                .concatMapIterable(this::toEvents);
+    }
+
+    private Mono<FeedFilterDto> withProductsOfClient(FeedFilterDto filter) {
+        if (filter.getIdClient() == null) {
+            return Mono.just(filter);
+        }
+        String idClient = filter.getIdClient();
+        return Mono.zip(
+                        bankAccountService.findBankAccountsByIdClientWithAllMovementsSortedByDate(idClient)
+                                .map(BankAccountDto::getId).collectList(),
+                        creditService.allCreditsByIdClientWithAllPaymentsSortedByDatePayment(idClient)
+                                .map(CreditDto::getId).collectList(),
+                        creditCardService.allCreditCardsByIdClientWithPaymentAndConsumption(idClient)
+                                .map(CreditCardDto::getId).collectList())
+                .flatMap(products -> {
+                    // Without products the match would not be restricted at all, so the feed of every client
+                    // would be streamed.
+                    if (products.getT1().isEmpty() && products.getT2().isEmpty() && products.getT3().isEmpty()) {
+                        return Mono.error(new ResourceNotFoundException("The client has no bank products."));
+                    }
+                    List<String> idProductCredits = new ArrayList<>(products.getT2());
+                    idProductCredits.addAll(products.getT3());
+                    // Explicit ids narrow the feed of the client, so each one must be a product of the client.
+                    Set<String> foreign = new LinkedHashSet<>(notOwned(filter.getIdBankAccounts(), products.getT1()));
+                    foreign.addAll(notOwned(filter.getIdProductCredits(), idProductCredits));
+                    foreign.addAll(notOwned(filter.getIdCreditCards(), products.getT3()));
+                    if (!foreign.isEmpty()) {
+                        return Mono.error(new InvalidRequestException(
+                                "The products %s do not belong to the client %s", foreign, idClient));
+                    }
+                    if (hasProducts(filter)) {
+                        return Mono.just(filter);
+                    }
+                    return Mono.just(new FeedFilterDto(idClient, products.getT1(), idProductCredits,
+                            products.getT3(), filter.getTypes()));
+                });
+    }
+
+    private boolean hasProducts(FeedFilterDto filter) {
+        return !filter.getIdBankAccounts().isEmpty() || !filter.getIdProductCredits().isEmpty()
+                || !filter.getIdCreditCards().isEmpty();
+    }
+
+    private Document match(FeedFilterDto filter) {
+        Set<String> types = filter.getTypes().isEmpty()
+                ? Set.of(MOVEMENT, PAYMENT, CONSUMPTION)
+                : new LinkedHashSet<>(filter.getTypes());
+        List<String> insertedInto = new ArrayList<>();
+        List<Document> sources = new ArrayList<>();
+        if (types.contains(MOVEMENT)) {
+            if (bucketed) {
+                sources.add(new Document("ns.coll", MOVEMENT_DAY_BUCKETS)
+                        .append("operationType", new Document("$in", List.of("insert", "update"))));
+            } else {
+                insertedInto.add(MOVEMENTS);
+            }
+        }
+        if (types.contains(PAYMENT)) {
+            insertedInto.add(PAYMENTS);
+        }
+        if (types.contains(CONSUMPTION)) {
+            insertedInto.add(CONSUMPTIONS);
+        }
+        if (!insertedInto.isEmpty()) {
+            sources.add(new Document("ns.coll", new Document("$in", insertedInto)).append("operationType", "insert"));
+        }
+        List<Document> products = new ArrayList<>();
+        String idBankAccount = bucketed
+                ? "idBankAccount"
+                : StoredFields.of(mongoTemplate.getConverter(), Movement.class, "idBankAccount");
+        addProducts(products, "fullDocument." + idBankAccount, filter.getIdBankAccounts());
+        addProducts(products, "fullDocument.idProductCredit", filter.getIdProductCredits());
+        addProducts(products, "fullDocument.idCreditCard", filter.getIdCreditCards());
+        Document match = new Document("$or", sources);
+        if (!products.isEmpty()) {
+            match = new Document("$and", List.of(match, new Document("$or", products)));
+        }
+        return new Document("$match", match);
+    }
+
+    private void addProducts(List<Document> products, String field, List<String> ids) {
+        if (!ids.isEmpty()) {
+            products.add(new Document(field, new Document("$in", ids)));
+        }
+    }
+
+    private List<FeedEventDto> toEvents(ChangeStreamEvent<Document> event) {
+        ChangeStreamDocument<Document> raw = event.getRaw();
+        Document document = event.getBody();
+        if (raw == null || document == null) {
+            return Collections.emptyList();
+        }
+        String resumeToken = resumeTokenOf(event.getResumeToken());
+        switch (raw.getNamespace().getCollectionName()) {
+            case MOVEMENTS:
+                return List.of(new FeedEventDto(MOVEMENT, resumeToken, CompactMovementSchema.restoreDefaults(
+                        mongoTemplate.getConverter().read(Movement.class, document))));
+            case PAYMENTS:
+                return List.of(new FeedEventDto(PAYMENT, resumeToken,
+                        mongoTemplate.getConverter().read(Payment.class, document)));
+            case CONSUMPTIONS:
+                return List.of(new FeedEventDto(CONSUMPTION, resumeToken,
+                        mongoTemplate.getConverter().read(Consumption.class, document)));
+            case MOVEMENT_DAY_BUCKETS:
+                return pushedMovements(raw, document).stream()
+                        .map(movement -> new FeedEventDto(MOVEMENT, resumeToken, movement))
+                        .collect(Collectors.toList());
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    // A push sets "movements.<n>" together with the bucket count; edits in place and pulls leave the count alone
+    // or rewrite the whole array.
+    private List<Movement> pushedMovements(ChangeStreamDocument<Document> raw, Document document) {
+        MovementDayBucket bucket = mongoTemplate.getConverter().read(MovementDayBucket.class, document);
+        if (raw.getOperationType() == OperationType.INSERT) {
+            return bucket.getMovements().stream()
+                    .map(entry -> entry.toMovement(bucket.getIdBankAccount()))
+                    .collect(Collectors.toList());
+        }
+        BsonDocument updated = raw.getUpdateDescription() == null
+                ? new BsonDocument()
+                : raw.getUpdateDescription().getUpdatedFields();
+        if (updated == null || !updated.containsKey("count")) {
+            return Collections.emptyList();
+        }
+        List<MovementEntry> entries = bucket.getMovements();
+        return updated.keySet().stream()
+                .map(BUCKET_ENTRY::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> Integer.parseInt(matcher.group(1)))
+                .filter(index -> index < entries.size())
+                .map(index -> entries.get(index).toMovement(bucket.getIdBankAccount()))
+                .collect(Collectors.toList());
+    }
+
+    private String resumeTokenOf(BsonValue token) {
+        if (token == null || !token.isDocument() || !token.asDocument().containsKey("_data")) {
+            return null;
+        }
+        return token.asDocument().getString("_data").getValue();
+    }
+
+    private List<String> notOwned(List<String> ids, List<String> owned) {
+        return ids.stream()
+                .filter(id -> !owned.contains(id))
+                .collect(Collectors.toList());
+    }
+}
@@ -3,22 +3,30 @@ package com.movements.movementsmicroservice.service.impl;
 import com.movements.movementsmicroservice.client.BankAccountService;
 import com.movements.movementsmicroservice.client.CreditCardService;
 import com.movements.movementsmicroservice.client.CreditService;
-import com.movements.movementsmicroservice.client.DebitCardService;
 import com.movements.movementsmicroservice.exceptions.*;
 import com.movements.movementsmicroservice.DTO.BankAccountDto;
 import com.movements.movementsmicroservice.DTO.CreditCardDto;
 import com.movements.movementsmicroservice.DTO.CreditDto;
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
 import com.movements.movementsmicroservice.model.Movement;
 import com.movements.movementsmicroservice.model.Payment;
+import com.movements.movementsmicroservice.repository.LedgerTransactions;
 import com.movements.movementsmicroservice.repository.MovementRepository;
+import com.movements.movementsmicroservice.repository.ReportingRead;
+import com.movements.movementsmicroservice.service.DailyBalanceService;
 import com.movements.movementsmicroservice.service.MovementService;
 import com.movements.movementsmicroservice.service.PaymentMovementService;
+import com.movements.movementsmicroservice.service.StatementService;
 import com.movements.movementsmicroservice.utils.DateToPayUtil;
+import com.movements.movementsmicroservice.validation.AccountMetadataCache;
+import com.movements.movementsmicroservice.validation.MovementPreValidations;
+import com.movements.movementsmicroservice.utils.ExecutionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
 
 import java.time.Clock;
 import java.time.LocalDate;
@@ -37,8 +45,12 @@ public class MovementServiceImp implements MovementService {
     private final CreditCardService creditCardService;
     private final MovementRepository movementRepository;
     private final BankAccountService bankAccountService;
-    private final DebitCardService debitCardService;
     private final PaymentMovementService paymentMovementService;
+    private final StatementService statementService;
+    private final DailyBalanceService dailyBalanceService;
+    private final MovementPreValidations movementPreValidations;
+    private final AccountMetadataCache accountMetadataCache;
+    private final LedgerTransactions ledgerTransactions;
     private final Clock clock;
 
     public MovementServiceImp(
@@ -46,56 +58,128 @@ public class MovementServiceImp implements MovementService {
             CreditCardService creditCardService,
             MovementRepository movementRepository,
             BankAccountService bankAccountService,
-            DebitCardService debitCardService,
             PaymentMovementService paymentMovementService,
+            StatementService statementService,
+            DailyBalanceService dailyBalanceService,
+            MovementPreValidations movementPreValidations,
+            AccountMetadataCache accountMetadataCache,
+            LedgerTransactions ledgerTransactions,
             Clock clock) {
         this.creditService = creditService;
         this.creditCardService = creditCardService;
         this.movementRepository = movementRepository;
         this.bankAccountService = bankAccountService;
-        this.debitCardService = debitCardService;
         this.paymentMovementService = paymentMovementService;
+        this.statementService = statementService;
+        this.dailyBalanceService = dailyBalanceService;
+        this.movementPreValidations = movementPreValidations;
+        this.accountMetadataCache = accountMetadataCache;
+        this.ledgerTransactions = ledgerTransactions;
         this.clock = clock;
     }
 
     @Override
     public Mono<Movement> create(Movement movement) {
-        if (isWithdrawalDebitCard(movement))
-            return processDebitCardWithdrawal(movement);
-        return processBankAccountMovement(movement);
+        return movementPreValidations.validateCreate(movement)
+                .flatMap(validMovement -> {
+                    if (isWithdrawalDebitCard(validMovement))
+                        return processDebitCardWithdrawal(validMovement);
+                    return processBankAccountMovement(validMovement);
+                });
     }
     private Mono<Movement> processDebitCardWithdrawal(Movement movement) {
-        return findBankAccountAbleToWithdrawal(movement)
-                .flatMap(this::processBankAccountMovement);
-    }
-    private Mono<Movement> findBankAccountAbleToWithdrawal(Movement movement) {
         String idDebitCard = movement.getIdBankAccount();
-        return  debitCardService.findByIdWithBankAccountsOrderByCreatedAt(idDebitCard)
-                .flatMap(debitCard ->
-                    paymentMovementService.getBankAccountWithBalanceAvailableForPay(debitCard, movement.getAmount())
-                            .flatMap(bankAccountWithBalance -> {
-                                movement.setIdBankAccount(bankAccountWithBalance.getId());
-                                return Mono.just(movement);
-                            })
-                )
+        return paymentMovementService.findDebitCardSummary(idDebitCard)
                 .switchIfEmpty(
-                        Mono.error(new InvalidPayException("Debit card with id: " + idDebitCard + " not exists.")));
+                        Mono.error(new InvalidPayException("Debit card with id: %s not exists.", idDebitCard)))
+                .flatMap(debitCard ->
+                        paymentMovementService.getFundingSourcesForPay(debitCard, movement.getAmount()))
+                .flatMap(fundingSources -> withdrawFromEveryFundingSource(movement, fundingSources))
+                .map(withdrawals -> withdrawals.get(0))
+                .doOnSuccess(withdrawal -> paymentMovementService.evictDebitCardSummary(idDebitCard));
+    }
+
+    @Override
+    public Mono<List<Movement>> withdrawFromFundingSources(Movement withdrawal,
+                                                           List<FundingSourceDto> fundingSources) {
+        return movementPreValidations.validateWithdrawal(withdrawal, fundingSources)
+                .flatMap(validWithdrawal -> withdrawFromEveryFundingSource(validWithdrawal, fundingSources));
+    }
+
+    /**
+     * Every account is read and checked before the first one is written, so a leg that would be rejected
+     * leaves all the accounts untouched. The legs are then written one after the other; if one fails, the legs
+     * already written are reversed.
+     */
+    private Mono<List<Movement>> withdrawFromEveryFundingSource(Movement movement,
+                                                               List<FundingSourceDto> fundingSources) {
+        List<Movement> legs = new ArrayList<>();
+        if (fundingSources.size() == 1) {
+            movement.setIdBankAccount(fundingSources.get(0).getIdBankAccount());
+            legs.add(movement);
+        } else {
+            String splitId = UUID.randomUUID().toString();
+            fundingSources.forEach(fundingSource -> legs.add(createMovement(movement.getTypeMovement(), movement,
+                    splitId, fundingSource.getIdBankAccount(), "", 0.0, fundingSource.getAmount())));
+        }
+        return Flux.fromIterable(legs)
+                .concatMap(leg -> findBankAccount(leg)
+                        .flatMap(bankAccount -> checkMovementAndCharge(leg, bankAccount))
+                        .flatMap(bankAccount -> applyMovementToAccount(leg, bankAccount))
+                        .map(bankAccount -> Tuples.of(leg, bankAccount)))
+                .collectList()
+                .flatMap(checkedLegs -> Mono.defer(() -> {
+                    List<Movement> written = new ArrayList<>();
+                    return Flux.fromIterable(checkedLegs)
+                            .concatMap(leg -> writeWithdrawal(leg.getT1(), leg.getT2(), written))
+                            .collectList()
+                            .onErrorResume(error -> reverseWithdrawals(written).then(Mono.error(error)));
+                }));
+    }
+
+    private Mono<Movement> writeWithdrawal(Movement withdrawal, BankAccountDto bankAccount, List<Movement> written) {
+        return bankAccountService.update(bankAccount.getId(), bankAccount)
+                .then(Mono.defer(() -> movementRepository.save(withdrawal))
+                        .onErrorResume(error -> restoreBalance(bankAccount.getId(), debitOf(withdrawal))
+                                .then(Mono.error(error))))
+                .doOnNext(written::add)
+                .flatMap(saved -> recordBalance(saved, bankAccount).thenReturn(saved));
+    }
+
+    // Each withdrawal gives its amount and commission back to its account and its movement is removed.
+    @Override
+    public Mono<Void> reverseWithdrawals(List<Movement> withdrawals) {
+        return Flux.fromIterable(withdrawals)
+                .concatMap(withdrawal -> restoreBalance(withdrawal.getIdBankAccount(), debitOf(withdrawal))
+                        .then(movementRepository.deleteById(withdrawal.getId()))
+                        .then(invalidateSummaries(withdrawal.getIdBankAccount(), withdrawal.getDate()))
+                        .onErrorResume(error -> {
+                            log.error("Could not remove the reversed movement {}: {}", withdrawal.getId(),
+                                    error.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private double debitOf(Movement withdrawal) {
+        return withdrawal.getAmount() + withdrawal.getCommissionAmount();
     }
 
     private Mono<Movement> processBankAccountMovement(Movement movement) {
-        return bankAccountService.findById(movement.getIdBankAccount())
-                .flatMap(bankAccount -> {
-                    if (isFixedTermAccount(bankAccount)) {
-                        return processFixedTermAccountMovement(movement, bankAccount);
-                    }
-                    return processBankAccountMovement(movement, bankAccount);
-                })
+        return findBankAccount(movement)
+                .flatMap(bankAccount -> checkMovementAndCharge(movement, bankAccount))
+                .flatMap(bankAccount -> applyMovementOrTransferAndSave(movement, bankAccount))
                 .onErrorResume(ResourceNotFoundException.class, e -> Mono.error(
-                        new ResourceNotFoundException(
-                                String.format("The account with id: %s doesn't exist", movement.getIdBankAccount())))
+                        new ResourceNotFoundException("The account with id: %s doesn't exist",
+                                movement.getIdBankAccount()))
                 );
     }
 
+    private Mono<BankAccountDto> findBankAccount(Movement movement) {
+        return bankAccountService.findById(movement.getIdBankAccount())
+                .doOnNext(accountMetadataCache::remember);
+    }
+
     private boolean isSavingAccount(BankAccountDto bankAccount) {
         return bankAccount.getTypeBankAccount() == BankAccountDto.TypeBankAccount.SAVING_ACCOUNT;
     }
@@ -104,27 +188,41 @@ public class MovementServiceImp implements MovementService {
         return bankAccount.getTypeBankAccount() == BankAccountDto.TypeBankAccount.FIXED_TERM_ACCOUNT;
     }
 
-    private Mono<Movement> processBankAccountMovement(Movement movement, BankAccountDto bankAccount) {
+    // Runs the rules of the account type and takes the commission from the balance, without writing anything.
+    private Mono<BankAccountDto> checkMovementAndCharge(Movement movement, BankAccountDto bankAccount) {
+        if (isFixedTermAccount(bankAccount)) {
+            return checkFixedTermAccountMovement(movement, bankAccount);
+        }
         return countMovementsInPresentMonthByIdBankAccount(movement.getIdBankAccount())
                 .flatMap(count -> {
                     if (count >= bankAccount.getLimitMovements() && isSavingAccount(bankAccount)) {
                         return Mono.error(new LimitMovementsExceeded(
-                                "The client has reached the limit of " + count + " movements."));
+                                "The client has reached the limit of %s movements.", count));
                     }
                     return movementHasCommission(bankAccount)
                             .flatMap(hasCommission ->
                                     hasCommission ?
-                                            applyMovementWithCommissionAndSave(movement, bankAccount) :
-                                            applyMovementOrTransferAndSave(movement, bankAccount));
+                                            chargeCommission(movement, bankAccount) :
+                                            Mono.just(bankAccount));
                 });
     }
 
     private Mono<Long> countMovementsInPresentMonthByIdBankAccount(String idBankAccount) {
-        return getMovementsByBankAccountIdInPresentMonth(idBankAccount)
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime from = LocalDateTime.of(now.getYear(), now.getMonth(), 1, 0, 0);
+        return countMovementsByBankAccountIdAndDateRange(idBankAccount, from, now);
+    }
+
+    // Counting needs no order, so it stays on the calling thread instead of sorting on the compute scheduler.
+    private Mono<Long> countMovementsByBankAccountIdAndDateRange(String idBankAccount,
+                                                                 LocalDateTime from,
+                                                                 LocalDateTime to) {
+        return movementRepository.findAllByIdBankAccountAndDateBetween(idBankAccount, from, to)
+                .filter(movement -> movement.getTypeMovement() != TRANSFER)
                 .count();
     }
 
-    private Mono<Movement> processFixedTermAccountMovement(Movement movement, BankAccountDto bankAccount) {
+    private Mono<BankAccountDto> checkFixedTermAccountMovement(Movement movement, BankAccountDto bankAccount) {
         if (!isDayForPayment(bankAccount))
             return Mono.error(new UnsupportedMovementException("Your bank account not support movements today"));
         return hasOneMovementOnDayPayment(movement)
@@ -132,23 +230,22 @@ public class MovementServiceImp implements MovementService {
                    if (hasMovement)
                        return Mono.error(new UnsupportedMovementException(
                                "Your bank account does not support more than one transaction today"));
-                   return applyMovementOrTransferAndSave(movement, bankAccount);
+                   return Mono.just(bankAccount);
                 });
     }
 
     private Mono<Boolean> hasOneMovementOnDayPayment(Movement movement) {
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = LocalDateTime.now(clock);
         LocalDateTime today = LocalDateTime.of(
                 now.getYear(), now.getMonth(), now.getDayOfMonth(), 0, 0, 0);
 
-        return getMovementsByBankAccountIdAndDateRangeAndSort(movement.getIdBankAccount(), today, now)
-                .count()
+        return countMovementsByBankAccountIdAndDateRange(movement.getIdBankAccount(), today, now)
                 .map(numberMovements -> (numberMovements > 0));
     }
 
     private boolean isDayForPayment(BankAccountDto fixedTermAccount) {
-        LocalDate now = LocalDate.now();
-        LocalDate correctDayPay = DateToPayUtil.calculatePaymentDate.apply(fixedTermAccount.getExpirationDate());
+        LocalDate now = LocalDate.now(clock);
+        LocalDate correctDayPay = DateToPayUtil.calculatePaymentDate.apply(fixedTermAccount.getExpirationDate(), now);
         return now.isEqual(correctDayPay);
     }
 
@@ -175,8 +272,8 @@ public class MovementServiceImp implements MovementService {
         String idBankAccountDestin = movement.getIdBankAccountTransfer();
         return bankAccountService.findById(idBankAccountDestin)
                 .switchIfEmpty(Mono.error(
-                        new ResourceNotFoundException("Client with id: " +
-                                idBankAccountDestin + " doesn't exist!")))
+                        new ResourceNotFoundException("Client with id: %s doesn't exist!",
+                                idBankAccountDestin)))
                 .flatMap(bankAccountDestin ->
                         validateAndSaveTransaction(movement, bankAccountOrigin, bankAccountDestin));
 
@@ -197,20 +294,45 @@ public class MovementServiceImp implements MovementService {
                 WITHDRAWAL,movement,transferId,bankAccountOrigin.getId(),bankAccountDestin.getId(),
                 movement.getCommissionAmount());
 
-        return movementRepository.save(movement)
-                .flatMap(savedMovement ->
-                        applyMovementToAccount(withdrawal, bankAccountOrigin)
-                                .zipWhen(originUpdated -> applyMovementToAccount(deposit, bankAccountDestin))
-                                .flatMap(tuple -> {
-                                    BankAccountDto updatedOrigin = tuple.getT1();
-                                    BankAccountDto updatedDestin = tuple.getT2();
-
-                                    return Mono.when(
-                                            updateBankAccountAndSaveMovement(withdrawal, updatedOrigin),
-                                            updateBankAccountAndSaveMovement(deposit, updatedDestin)
-                                    ).thenReturn(savedMovement);
-                                })
-                );
+        // Both balances are checked before any write. The remote updates run one after the other and the three
+        // movements are then committed together; a failed step gives back what the earlier steps wrote.
+        double originDebit = withdrawal.getAmount() + withdrawal.getCommissionAmount();
+        return applyMovementToAccount(withdrawal, bankAccountOrigin)
+                .zipWhen(originUpdated -> applyMovementToAccount(deposit, bankAccountDestin))
+                .flatMap(tuple -> {
+                    BankAccountDto updatedOrigin = tuple.getT1();
+                    BankAccountDto updatedDestin = tuple.getT2();
+
+                    return bankAccountService.update(updatedOrigin.getId(), updatedOrigin)
+                            .then(Mono.defer(() -> bankAccountService.update(updatedDestin.getId(), updatedDestin))
+                                    .onErrorResume(error -> restoreBalance(updatedOrigin.getId(), originDebit)
+                                            .then(Mono.error(error))))
+                            .then(ledgerTransactions.write(Mono.defer(() -> movementRepository
+                                            .saveAll(List.of(movement, withdrawal, deposit))
+                                            .collectList()))
+                                    .onErrorResume(error -> restoreBalance(updatedDestin.getId(), -deposit.getAmount())
+                                            .then(restoreBalance(updatedOrigin.getId(), originDebit))
+                                            .then(Mono.error(error))))
+                            .flatMap(saved -> recordBalance(saved.get(1), updatedOrigin)
+                                    .then(recordBalance(saved.get(2), updatedDestin))
+                                    .thenReturn(saved.get(0)));
+                });
+    }
+
+    // The account is read again so that updates made by other requests in between are kept. A failed restore is
+    // logged for reconciliation and the original error is still returned by the caller.
+    private Mono<Void> restoreBalance(String idBankAccount, double amount) {
+        return bankAccountService.findById(idBankAccount)
+                .flatMap(bankAccount -> {
+                    bankAccount.setBalance(bankAccount.getBalance() + amount);
+                    return bankAccountService.update(idBankAccount, bankAccount);
+                })
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Could not restore {} to bank account {}: {}", amount, idBankAccount,
+                            error.getMessage());
+                    return Mono.empty();
+                });
     }
 
     private Movement createMovement(Movement.TypeMovement type,
@@ -219,9 +341,20 @@ public class MovementServiceImp implements MovementService {
                                     String accountId,
                                     String transferAccountId,
                                     double commission) {
+        return createMovement(type, baseMovement, transferId, accountId, transferAccountId, commission,
+                baseMovement.getAmount());
+    }
+
+    private Movement createMovement(Movement.TypeMovement type,
+                                    Movement baseMovement,
+                                    String transferId,
+                                    String accountId,
+                                    String transferAccountId,
+                                    double commission,
+                                    double amount) {
         Movement movement = new Movement();
         movement.setTypeMovement(type);
-        movement.setAmount(baseMovement.getAmount());
+        movement.setAmount(amount);
         movement.setDescription(baseMovement.getDescription());
         movement.setCommissionAmount(commission);
         movement.setIdBankAccount(accountId);
@@ -237,15 +370,21 @@ public class MovementServiceImp implements MovementService {
 
     private Mono<Movement> updateBankAccountAndSaveMovement(Movement movement, BankAccountDto bankAccountDto) {
         return bankAccountService.update(bankAccountDto.getId(), bankAccountDto)
-                .then(movementRepository.save(movement));
+                .then(movementRepository.save(movement))
+                .flatMap(saved -> recordBalance(saved, bankAccountDto).thenReturn(saved));
     }
-    private Mono<Movement> applyMovementWithCommissionAndSave(Movement movement, BankAccountDto bankAccount) {
+
+    private Mono<Void> recordBalance(Movement movement, BankAccountDto bankAccountDto) {
+        return statementService.recordMovement(movement, bankAccountDto.getBalance())
+                .then(dailyBalanceService.recordMovement(movement, bankAccountDto.getBalance()));
+    }
+    private Mono<BankAccountDto> chargeCommission(Movement movement, BankAccountDto bankAccount) {
         if (applyCommissionToMovement(movement, bankAccount)) {
-            return applyMovementOrTransferAndSave(movement, bankAccount);
+            return Mono.just(bankAccount);
         }
-        String errorMessage = "Insufficient balance after applying commission." + movement;
-        log.error(errorMessage);
-        return Mono.error(new InsufficientBalance(errorMessage));
+        log.warn("Insufficient balance after applying commission in bank account {} for a {} of {}",
+                movement.getIdBankAccount(), movement.getTypeMovement(), movement.getAmount());
+        return Mono.error(new InsufficientBalance("Insufficient balance after applying commission."));
 
     }
 
@@ -272,7 +411,7 @@ public class MovementServiceImp implements MovementService {
     public Mono<Movement> update(String id, Movement movement) {
         return movementRepository.findById(id)
                 .switchIfEmpty(Mono.error(
-                        new ResourceNotFoundException("The movement with id: " + id + " doesn't exist!")))
+                        new ResourceNotFoundException("The movement with id: %s doesn't exist!", id)))
                 .flatMap(movementFound -> {
                     if (isMovementWithTransfer(movementFound))
                         return Mono.error(
@@ -293,6 +432,7 @@ public class MovementServiceImp implements MovementService {
     }
 
     @Override
+    @ReportingRead
     public Flux<Movement> getAll() {
         return movementRepository.findAll();
     }
@@ -306,7 +446,8 @@ public class MovementServiceImp implements MovementService {
     public Mono<Void> deleteById(String id) {
         return movementRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("Movement not found.")))
-                .then(movementRepository.deleteById(id));
+                .flatMap(movement -> movementRepository.deleteById(id)
+                        .then(invalidateSummaries(movement.getIdBankAccount(), movement.getDate())));
     }
 
     private Mono<Movement> updateMovementWithBankAccount(Movement movementOld, Movement movementNew) {
@@ -354,10 +495,19 @@ public class MovementServiceImp implements MovementService {
     }
 
     private Mono<Movement> saveUpdateMovement(Movement movementOld, Movement movementNew) {
+        LocalDateTime previousDate = movementOld.getDate();
         movementOld.setDate(movementNew.getDate());
         movementOld.setAmount(movementNew.getAmount());
         movementOld.setDescription(movementNew.getDescription());
-        return movementRepository.save(movementOld);
+        return movementRepository.save(movementOld)
+                .flatMap(saved -> invalidateSummaries(saved.getIdBankAccount(), previousDate)
+                        .then(invalidateSummaries(saved.getIdBankAccount(), saved.getDate()))
+                        .thenReturn(saved));
+    }
+
+    private Mono<Void> invalidateSummaries(String idBankAccount, LocalDateTime date) {
+        return statementService.invalidate(idBankAccount, date)
+                .then(dailyBalanceService.invalidate(idBankAccount, date));
     }
 
     @Override
@@ -371,19 +521,20 @@ public class MovementServiceImp implements MovementService {
     public Flux<Movement> getMovementsByBankAccountIdAndDateRangeAndSort(String id,
                                                                          LocalDateTime from,
                                                                          LocalDateTime to) {
-        return movementRepository.findAllByIdBankAccountAndDateBetween(id, from, to)
-                .filter(movement -> movement.getTypeMovement() != TRANSFER)
-                .sort(Comparator.comparing(Movement::getDate).reversed());
+        return ExecutionUtil.sorted(movementRepository.findAllByIdBankAccountAndDateBetween(id, from, to)
+                        .filter(movement -> movement.getTypeMovement() != TRANSFER),
+                Comparator.comparing(Movement::getDate).reversed());
     }
 
     @Override
     public Flux<Movement> getAllMovementsByIdBankAccountAndSortByDate(String idBankAccount) {
-        return movementRepository.findAllByIdBankAccount(idBankAccount)
-                .filter(movement -> movement.getTypeMovement() != TRANSFER)
-                .sort(Comparator.comparing(Movement::getDate).reversed());
+        return ExecutionUtil.sorted(movementRepository.findAllByIdBankAccount(idBankAccount)
+                        .filter(movement -> movement.getTypeMovement() != TRANSFER),
+                Comparator.comparing(Movement::getDate).reversed());
     }
 
     @Override
+    @ReportingRead
     public Flux<Movement> findAllByDateBetween(LocalDateTime from, LocalDateTime to) {
         return movementRepository.findAllByDateBetween(from, to)
                 .filter(movement -> movement.getTypeMovement() != TRANSFER);
@@ -413,36 +564,28 @@ public class MovementServiceImp implements MovementService {
         Flux<CreditCardDto> allCreditCards =
                 creditCardService.allCreditCardsByIdClientWithPaymentAndConsumption(idClient);
 
-        return Flux.zip(allBankAccounts.collectList(), allCredits.collectList(), allCreditCards.collectList())
-                .flatMap(allData -> {
-                    List<BankAccountDto> bankAccounts = allData.getT1();
-                    List<CreditDto> credits = allData.getT2();
-                    List<CreditCardDto> creditCards = allData.getT3();
+        return ExecutionUtil.compute(
+                        Mono.zip(allBankAccounts.collectList(), allCredits.collectList(), allCreditCards.collectList()))
+                .map(allData -> {
                     Map<String, List<?>> bankProducts = new HashMap<>();
-                    bankProducts.put("bankAccounts", bankAccounts);
-                    bankProducts.put("credits", credits);
-                    bankProducts.put("creditCards", creditCards);
-                    return Mono.just(bankProducts);
-                })
-                .collectList()
-                .flatMap(products -> Mono.just(products.get(0)));
+                    bankProducts.put("bankAccounts", allData.getT1());
+                    bankProducts.put("credits", allData.getT2());
+                    bankProducts.put("creditCards", allData.getT3());
+                    return bankProducts;
+                });
     }
     private boolean isWithdrawalDebitCard(Movement movement) {
         return movement.getTypeMovement() == WITHDRAWAL_DEBIT;
     }
-    private boolean idDebitMovement(Movement movement) {
-        return (movement.getTypeMovement() == PAY_CREDIT) || isWithdrawalDebitCard(movement);
-    }
 
     @Override
+    @ReportingRead
     public Mono<List<Movement>> getDebitMovementsTopTenByBankAccountIds(List<String> idBankAccounts) {
-        log.info("Obtiene los Top 10 movimientos de las debit card");
-        return movementRepository.findByIdBankAccountInOrderByCreatedAtDesc(idBankAccounts)
-                .filter(this::idDebitMovement)
-                .take(10)
+        log.debug("Obtiene los Top 10 movimientos de las debit card");
+        return movementRepository.findNewestDebitByIdBankAccountIn(idBankAccounts, 10)
                 .collectList()
                 .map(resultado -> {
-                    log.info("Cantidad de movimientos econtrados: " + resultado.size());
+                    log.debug("Cantidad de movimientos econtrados: {}", resultado.size());
                     return resultado;
                 });
     }
@@ -1,43 +1,120 @@
 package com.movements.movementsmicroservice.service.impl;
 
-import com.movements.movementsmicroservice.DTO.BankAccountDto;
-import com.movements.movementsmicroservice.DTO.DebitCardDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.movements.movementsmicroservice.DTO.BankAccountBalanceDto;
+import com.movements.movementsmicroservice.DTO.DebitCardSummaryDto;
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
+import com.movements.movementsmicroservice.client.DebitCardService;
 import com.movements.movementsmicroservice.exceptions.InvalidPayException;
 import com.movements.movementsmicroservice.service.PaymentMovementService;
+import com.movements.movementsmicroservice.utils.Numbers;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class PaymentMovementServiceImp implements PaymentMovementService {
+    private final DebitCardService debitCardService;
+    private final Cache<String, DebitCardSummaryDto> debitCardCache;
+
+    public PaymentMovementServiceImp(DebitCardService debitCardService,
+                                     @Value("${movements.debit-card.cache.ttl-ms:5000}") long cacheTtlMs,
+                                     @Value("${movements.debit-card.cache.max-size:10000}") long cacheMaxSize) {
+        this.debitCardService = debitCardService;
+        this.debitCardCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
+
     @Override
-    public Mono<BankAccountDto> getBankAccountWithBalanceAvailableForPay(DebitCardDto debitCard, Double amountDebt) {
-        Optional<BankAccountDto> principalAccount = getPrincipalBankAccount(debitCard);
-        return Mono.justOrEmpty(principalAccount)
-                .switchIfEmpty(Mono.error(
-                        new InvalidPayException("Principal bank account not exists with id: " +
-                                debitCard.getIdPrincipalAccount())))
-                .flatMap(principal -> {
-                    if (principal.getBalance() < amountDebt) {
-                        return Mono.justOrEmpty(
-                                        getBankAccountWithGreaterBalanceThanPay(debitCard, amountDebt))
-                                .switchIfEmpty(Mono.error(
-                                        new InvalidPayException(
-                                                "The client does not have bank accounts with available balance")))
-                                .flatMap(Mono::just);
-                    }
-                    return Mono.just(principal);
-                });
+    public Mono<DebitCardSummaryDto> findDebitCardSummary(String idDebitCard) {
+        DebitCardSummaryDto cached = debitCardCache.getIfPresent(idDebitCard);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return debitCardService.findSummaryByIdOrderByCreatedAt(idDebitCard)
+                .map(this::sortPrincipalFirst)
+                .doOnNext(debitCard -> debitCardCache.put(idDebitCard, debitCard));
     }
-    private Optional<BankAccountDto> getPrincipalBankAccount(DebitCardDto debitCard) {
-        return debitCard.getBankAccounts().stream()
-                .filter(bankAccount -> bankAccount.getId().equals(debitCard.getIdPrincipalAccount()))
-                .findFirst();
+
+    @Override
+    public void evictDebitCardSummary(String idDebitCard) {
+        debitCardCache.invalidate(idDebitCard);
     }
-    private Optional<BankAccountDto> getBankAccountWithGreaterBalanceThanPay(DebitCardDto debitCard, Double amount) {
-        return debitCard.getBankAccounts().stream()
-                .filter(bankAccount -> bankAccount.getBalance() >= amount)
+
+    @Override
+    public Mono<List<FundingSourceDto>> getFundingSourcesForPay(DebitCardSummaryDto debitCard, Double amountDebt) {
+        List<BankAccountBalanceDto> accounts = debitCard.getBankAccounts();
+        if (accounts.isEmpty() || !accounts.get(0).isPrincipal()) {
+            return Mono.error(new InvalidPayException("Principal bank account not exists with id: %s",
+                    debitCard.getIdPrincipalAccount()));
+        }
+        Optional<BankAccountBalanceDto> singleAccount = accounts.stream()
+                .filter(bankAccount -> bankAccount.getBalance() >= amountDebt)
                 .findFirst();
+        if (singleAccount.isPresent()) {
+            return Mono.just(List.of(new FundingSourceDto(singleAccount.get().getId(), amountDebt)));
+        }
+        return Mono.justOrEmpty(splitAmountBetweenAccounts(accounts, amountDebt))
+                .switchIfEmpty(Mono.error(
+                        new InvalidPayException("The client does not have bank accounts with available balance")));
+    }
+
+    // Accounts keep the createdAt order of the upstream service, with the principal account moved to the front.
+    private DebitCardSummaryDto sortPrincipalFirst(DebitCardSummaryDto debitCard) {
+        List<BankAccountBalanceDto> ordered = new ArrayList<>(debitCard.getBankAccounts().size());
+        for (BankAccountBalanceDto bankAccount : debitCard.getBankAccounts()) {
+            bankAccount.setPrincipal(bankAccount.getId().equals(debitCard.getIdPrincipalAccount()));
+            if (bankAccount.isPrincipal()) {
+                ordered.add(0, bankAccount);
+            } else {
+                ordered.add(bankAccount);
+            }
+        }
+        debitCard.setBankAccounts(ordered);
+        return debitCard;
+    }
+
+    /**
+     * Each leg leaves room in its account for the commission charged once the free movements of the day are used,
+     * since the leg is rejected if the account cannot pay both. The summary does not say whether the commission
+     * applies today, so it is always reserved; a split that only fits without commissions is refused up front.
+     */
+    private Optional<List<FundingSourceDto>> splitAmountBetweenAccounts(List<BankAccountBalanceDto> accounts,
+                                                                        double amountDebt) {
+        List<FundingSourceDto> sources = new ArrayList<>();
+        double pending = amountDebt;
+        for (BankAccountBalanceDto bankAccount : accounts) {
+            if (pending <= 0) {
+                break;
+            }
+            double available = availableForLeg(bankAccount);
+            if (available <= 0) {
+                continue;
+            }
+            double portion = Numbers.redondear(Math.min(available, pending));
+            sources.add(new FundingSourceDto(bankAccount.getId(), portion));
+            pending = Numbers.redondear(pending - portion);
+        }
+        return pending > 0 ? Optional.empty() : Optional.of(sources);
+    }
+
+    // Rounded down, so the leg plus its commission never exceeds the balance.
+    private double availableForLeg(BankAccountBalanceDto bankAccount) {
+        double commissionPercentage = bankAccount.getCommissionPercentage() == null
+                ? 0.0
+                : bankAccount.getCommissionPercentage();
+        return BigDecimal.valueOf(bankAccount.getBalance() / (1 + commissionPercentage))
+                .setScale(2, RoundingMode.DOWN)
+                .doubleValue();
     }
 }
@@ -7,12 +7,16 @@ import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
 import com.movements.movementsmicroservice.model.Movement;
 import com.movements.movementsmicroservice.model.Payment;
 import com.movements.movementsmicroservice.repository.PaymentRepository;
+import com.movements.movementsmicroservice.repository.ReportingRead;
 import com.movements.movementsmicroservice.service.MovementService;
 import com.movements.movementsmicroservice.service.PaymentMovementService;
 import com.movements.movementsmicroservice.service.PaymentService;
 import com.movements.movementsmicroservice.utils.Numbers;
+import com.movements.movementsmicroservice.validation.PaymentPreValidations;
+import com.movements.movementsmicroservice.utils.ExecutionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -36,32 +40,33 @@ public class PaymentServiceImp implements PaymentService {
     private final CreditCardService creditCardService;
     private final CreditService creditService;
     private final PaymentRepository paymentRepository;
-    private final DebitCardService debitCardService;
     private final MovementService movementService;
     private final PaymentMovementService paymentMovementService;
 
     private final ClientService clientService;
+    private final PaymentPreValidations paymentPreValidations;
     private final Clock clock;
 
     public PaymentServiceImp(CreditCardService creditCardService,
                              CreditService creditService,
                              PaymentRepository paymentRepository,
                              ClientService clientService,
-                             DebitCardService debitCardService,
                              MovementService movementService,
                              PaymentMovementService paymentMovementService,
+                             PaymentPreValidations paymentPreValidations,
                              Clock clock) {
         this.creditCardService = creditCardService;
         this.creditService = creditService;
         this.paymentRepository = paymentRepository;
         this.clientService = clientService;
-        this.debitCardService = debitCardService;
         this.movementService = movementService;
         this.paymentMovementService = paymentMovementService;
+        this.paymentPreValidations = paymentPreValidations;
         this.clock = clock;
     }
 
     @Override
+    @ReportingRead
     public Flux<Payment> getAll() {
         return paymentRepository.findAll();
     }
@@ -73,7 +78,7 @@ public class PaymentServiceImp implements PaymentService {
 
     @Override
     public Mono<Payment> create(Payment payment) {
-        return validPayment(payment)
+        return paymentPreValidations.validateCreate(payment)
                 .flatMap(paymentValid -> {
                     if (paymentValid.getTypePayer() == EXTERNAL) {
                         return payTypeExternal(paymentValid);
@@ -86,26 +91,11 @@ public class PaymentServiceImp implements PaymentService {
                         return payCreditWithDebitCard(payment);
                     }
                     String message = "The payment is not supported";
-                    log.error(message);
+                    log.warn(message);
                     return Mono.error(new InvalidPayException(message));
                 });
     }
 
-    private Mono<Payment> validPayment(Payment payment) {
-        String messageError = "";
-        if (isExternalPayer(payment) && !payment.getIdPayer().isEmpty()) {
-            messageError = "If your payment is external, you cannot have a payer id '" + payment.getIdPayer() + "'";
-            log.error(messageError);
-        }
-        if (!isExternalPayer(payment) && payment.getIdPayer().isEmpty()) {
-            messageError = "If the payment is internal, it must have a payer ID: '" + payment.getIdPayer() + "'";
-            log.error(messageError);
-        }
-        if (!messageError.isEmpty())
-            return Mono.error(new InvalidPayException(messageError));
-        return Mono.just(payment);
-    }
-
     private Mono<Payment> payTypeExternal(Payment payment) {
         if (isPayCreditCard(payment)) {
             return findAndPayCreditCard(payment);
@@ -113,16 +103,13 @@ public class PaymentServiceImp implements PaymentService {
             return findAndPayCreditOnly(payment);
         }
         return Mono.error(new InvalidPayException(
-                "Type payment " + payment.getTypeCreditProduct() + " not supported"));
-    }
-    private boolean isExternalPayer(Payment payment) {
-        return payment.getTypePayer() == EXTERNAL;
+                "Type payment %s not supported", payment.getTypeCreditProduct()));
     }
     private Mono<Payment> existingClient(Payment payment) {
         return clientService.findById(payment.getIdPayer())
                 .flatMap(clientFound -> Mono.just(payment))
                 .switchIfEmpty(Mono.error(
-                        new InvalidPayException("The client with id: "+payment.getIdPayer()+" not exits.")));
+                        new InvalidPayException("The client with id: %s not exits.", payment.getIdPayer())));
     }
     private boolean isClientPayer(Payment payment) {
         return payment.getTypePayer() == CLIENT;
@@ -132,40 +119,46 @@ public class PaymentServiceImp implements PaymentService {
     }
 
     private Mono<Payment> payCreditWithDebitCard(Payment payment) {
+        String idDebitCard = payment.getIdPayer();
         if (isPayCreditCard(payment)) {
             return Mono.zip(getCreditCardById(payment.getIdProductCredit()),
-                    getDebitCardWithAccounts(payment.getIdPayer()))
+                    getDebitCardWithAccounts(idDebitCard))
                     .flatMap(tuple -> {
                         CreditCardDto creditCard = tuple.getT1();
-                        DebitCardDto debitCard = tuple.getT2();
+                        DebitCardSummaryDto debitCard = tuple.getT2();
                         if (!Objects.equals(creditCard.getTotalDebt(), payment.getAmount())) {
                             return Mono.error(new InvalidPayException("The amount of total debt is: "
                                     + creditCard.getTotalDebt()));
                         }
-                        return paymentMovementService.getBankAccountWithBalanceAvailableForPay(debitCard,
-                                        creditCard.getTotalDebt())
-                                .flatMap(bankAccount ->
-                                        doPayFromBankAccount(bankAccount, payment)
-                                        .flatMap(movement -> payCreditCard(payment, creditCard)));
-
-                    });
+                        return paymentMovementService.getFundingSourcesForPay(debitCard, creditCard.getTotalDebt())
+                                .flatMap(fundingSources -> doPayFromBankAccounts(fundingSources, payment))
+                                .flatMap(withdrawals -> payCreditCard(payment, creditCard)
+                                        .onErrorResume(error -> movementService.reverseWithdrawals(withdrawals)
+                                                .then(Mono.error(error))));
+                    })
+                    .doOnSuccess(paid -> paymentMovementService.evictDebitCardSummary(idDebitCard));
         }
         if (isPayCredit(payment)) {
             return Mono.zip(getCreditOnlyById(payment.getIdProductCredit()),
-                    getDebitCardWithAccounts(payment.getIdPayer()))
+                    getDebitCardWithAccounts(idDebitCard))
                     .flatMap(tuple -> {
                         CreditDto credit = tuple.getT1();
-                        DebitCardDto debitCard = tuple.getT2();
+                        DebitCardSummaryDto debitCard = tuple.getT2();
                         return isPayCreditValid(payment, credit)
-                                .flatMap(payment1 ->
-                                        paymentMovementService.getBankAccountWithBalanceAvailableForPay(debitCard,
-                                            payment1.getAmount() + payment1.getPenaltyFee())
-                                            .flatMap(bankAccount -> doPayFromBankAccount(bankAccount, payment)
-                                                       .flatMap(movement -> payCreditOnly(payment1, credit))));
-                    });
+                                .flatMap(this::reservePayment)
+                                .flatMap(reserved ->
+                                        paymentMovementService.getFundingSourcesForPay(debitCard,
+                                            reserved.getAmount() + reserved.getPenaltyFee())
+                                            .flatMap(fundingSources -> doPayFromBankAccounts(fundingSources, reserved))
+                                            .onErrorResume(error -> releasePayment(reserved, error))
+                                            .flatMap(withdrawals -> updateCreditPendingBalance(reserved, credit)
+                                                    .onErrorResume(error -> reverseAndReleasePayment(
+                                                            reserved, withdrawals, error))));
+                    })
+                    .doOnSuccess(paid -> paymentMovementService.evictDebitCardSummary(idDebitCard));
         }
         String message = "Payments can only be for credit products";
-        log.error(message);
+        log.warn(message);
         return Mono.error(new InvalidPayException(message));
     }
 //    private Optional<BankAccountDto> getPrincipalBankAccount(DebitCardDto debitCard) {
@@ -174,17 +167,17 @@ public class PaymentServiceImp implements PaymentService {
 //                .findFirst();
 //    }
 
-    private Mono<DebitCardDto> getDebitCardWithAccounts(String idDebitCard) {
-        return debitCardService.findByIdWithBankAccountsOrderByCreatedAt(idDebitCard)
+    private Mono<DebitCardSummaryDto> getDebitCardWithAccounts(String idDebitCard) {
+        return paymentMovementService.findDebitCardSummary(idDebitCard)
                 .switchIfEmpty(
-                        Mono.error(new InvalidPayException("Debit card with id: " + idDebitCard + " not exists.")));
+                        Mono.error(new InvalidPayException("Debit card with id: %s not exists.", idDebitCard)));
     }
 
     private Mono<CreditCardDto> getCreditCardById(String idCreditCard) {
         return creditCardService.findById(idCreditCard)
                 .onErrorResume(error -> {
                     String message = "Can't get credit card";
-                    log.error(message);
+                    log.warn(message);
                     return Mono.error(new InvalidPayException(message));
                 });
     }
@@ -193,7 +186,7 @@ public class PaymentServiceImp implements PaymentService {
         return creditService.findById(idCredit)
                 .onErrorResume(error -> {
                     String message = "Can't get credit";
-                    log.error(message);
+                    log.warn(message);
                     return Mono.error(new InvalidPayException(message));
                 });
     }
@@ -223,17 +216,17 @@ public class PaymentServiceImp implements PaymentService {
 //                .findFirst();
 //    }
 
-    private Mono<Movement> doPayFromBankAccount(BankAccountDto bankAccount,
-                                                Payment payment) {
+    private Mono<List<Movement>> doPayFromBankAccounts(List<FundingSourceDto> fundingSources,
+                                                      Payment payment) {
         Movement withdrawal = new Movement();
         withdrawal.setTypeMovement(Movement.TypeMovement.PAY_CREDIT);
-        withdrawal.setIdBankAccount(bankAccount.getId());
         withdrawal.setDescription("Pay with debit card");
-        withdrawal.setAmount(payment.getAmount());
+        withdrawal.setAmount(Numbers.redondear(
+                fundingSources.stream().mapToDouble(FundingSourceDto::getAmount).sum()));
         withdrawal.setIdTransfer("");
         withdrawal.setDate(LocalDateTime.now(clock));
         withdrawal.setIdBankAccountTransfer("");
-        return movementService.create(withdrawal);
+        return movementService.withdrawFromFundingSources(withdrawal, fundingSources);
     }
 
     @Override
@@ -254,7 +247,7 @@ public class PaymentServiceImp implements PaymentService {
     private Mono<Payment> findAndPayCreditOnly(Payment payment) {
         return creditService.findById(payment.getIdProductCredit())
                 .flatMap(credit -> isPayCreditValid(payment, credit)
-                            .flatMap(payment1 -> payCreditOnly(payment1, credit)))
+                            .flatMap(paymentValid -> payCreditOnly(paymentValid, credit)))
                 .onErrorResume(ResourceNotFoundException.class, e ->
                         Mono.error(new ResourceNotFoundException(
                                 "The credit card with id: " + payment.getIdProductCredit() + " not exists.")));
@@ -269,13 +262,6 @@ public class PaymentServiceImp implements PaymentService {
         int monthPay = payment.getMonthCorresponding();
         int yearPay = payment.getYearCorresponding();
 
-        boolean paymentExisting = credit.getPayments().stream()
-                .anyMatch(p -> p.getMonthCorresponding() == monthPay && p.getYearCorresponding() == yearPay);
-
-        if (paymentExisting) {
-            return Mono.error(new InvalidPayException("A payment has already been posted for this month."));
-        }
-
         LocalDate expectedPaymentDate = getDateLimitExpected(credit, monthPay, yearPay);
 
         if (dateNewPayment.isBefore(expectedPaymentDate.minusDays(5))) {
@@ -290,7 +276,7 @@ public class PaymentServiceImp implements PaymentService {
 
         double totalToPay = Numbers.redondear(credit.getMonthlyFee() + penaltyFee);
         if (!Objects.equals(payment.getAmount(), totalToPay)) {
-            return Mono.error(new InvalidPayException("The payment must be exactly: " + totalToPay));
+            return Mono.error(new InvalidPayException("The payment must be exactly: %s", totalToPay));
         }
 
         payment.setAmount(credit.getMonthlyFee());
@@ -317,7 +303,8 @@ public class PaymentServiceImp implements PaymentService {
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("The credit card not found.")))
                 .flatMap(creditCard -> {
                     if (!Objects.equals(payment.getAmount(), creditCard.getTotalDebt()))
-                        return Mono.error(new InvalidPayException("The total amount is: " + creditCard.getTotalDebt()));
+                        return Mono.error(new InvalidPayException("The total amount is: %s",
+                                creditCard.getTotalDebt()));
                     return payCreditCard(payment, creditCard);
                 })
                 .onErrorResume(ResourceNotFoundException.class, e ->
@@ -329,15 +316,39 @@ public class PaymentServiceImp implements PaymentService {
         creditCard.setTotalDebt(creditCard.getTotalDebt() - payment.getAmount());
         creditCard.setAvailableBalance(creditCard.getAvailableBalance() + payment.getAmount());
         return creditCardService.update(creditCard.getId(), creditCard)
-                .then(paymentRepository.save(payment));
+                .then(Mono.defer(() -> paymentRepository.save(payment)));
     }
 
     private Mono<Payment> payCreditOnly(Payment payment, CreditDto credit) {
+        return reservePayment(payment)
+                .flatMap(reserved -> updateCreditPendingBalance(reserved, credit)
+                        .onErrorResume(error -> releasePayment(reserved, error)));
+    }
+
+    // The unique index of payments rejects a second payment for the same month, even under concurrent requests.
+    private Mono<Payment> reservePayment(Payment payment) {
+        return paymentRepository.save(payment)
+                .onErrorMap(DuplicateKeyException.class,
+                        e -> new InvalidPayException("A payment has already been posted for this month."));
+    }
+
+    // The withdrawals are all or nothing, so a payment is only released once its money has been given back.
+    private Mono<Payment> reverseAndReleasePayment(Payment payment, List<Movement> withdrawals, Throwable error) {
+        return movementService.reverseWithdrawals(withdrawals)
+                .then(releasePayment(payment, error));
+    }
+
+    private <T> Mono<T> releasePayment(Payment payment, Throwable error) {
+        log.error("Releasing payment of credit {} for {}/{}: {}", payment.getIdProductCredit(),
+                payment.getMonthCorresponding(), payment.getYearCorresponding(), error.getMessage());
+        return paymentRepository.delete(payment)
+                .then(Mono.error(error));
+    }
+
+    private Mono<Payment> updateCreditPendingBalance(Payment payment, CreditDto credit) {
         credit.setPendingBalance(credit.getPendingBalance() - payment.getAmount());
-        payment.setMonthCorresponding(payment.getMonthCorresponding());
-        payment.setYearCorresponding(payment.getYearCorresponding());
         return creditService.update(credit.getId(), credit)
-                .then(paymentRepository.save(payment));
+                .thenReturn(payment);
     }
 
     @Override
@@ -352,19 +363,15 @@ public class PaymentServiceImp implements PaymentService {
 
     @Override
     public Flux<Payment> findAllPaymentByIdProductCreditAndSortByDate(String idProductCredit) {
-        return paymentRepository.findAllByIdProductCredit(idProductCredit)
-                .sort(Comparator.comparing(Payment::getDatePayment).reversed());
+        return ExecutionUtil.sorted(paymentRepository.findAllByIdProductCredit(idProductCredit),
+                Comparator.comparing(Payment::getDatePayment).reversed());
     }
 
     @Override
+    @ReportingRead
     public Mono<List<Payment>> findLastTenPaymentsByIdCredit(List<String> idCreditCards) {
-        return paymentRepository.findByIdProductCreditInOrderByCreatedAtDesc(idCreditCards)
-                .take(10)
-                .collectList()
-                .flatMap(lista -> {
-                    System.out.println(lista);
-                    return Mono.just(lista);
-                });
+        return paymentRepository.findNewestByIdProductCreditIn(idCreditCards, 10)
+                .collectList();
     }
 
 }
@@ -0,0 +1,164 @@
+package com.movements.movementsmicroservice.service.impl;
+
+import com.movements.movementsmicroservice.repository.ColdStorage;
+import com.movements.movementsmicroservice.repository.CompactMovementSchema;
+import com.movements.movementsmicroservice.repository.MovementLayout;
+import com.movements.movementsmicroservice.repository.RecentRings;
+import com.movements.movementsmicroservice.service.SchemaMigrationService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+import static com.movements.movementsmicroservice.repository.MovementLayout.MARKER_ID;
+import static com.movements.movementsmicroservice.repository.MovementLayout.MIGRATIONS;
+import static com.movements.movementsmicroservice.repository.MovementRepositoryCustomImpl.MOVEMENTS;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Rewrites the stored movements into the layout selected by movements.storage.compact, in both directions. Only
+ * one instance migrates: it holds a lease on the marker document of schema_migrations, renewed after every batch,
+ * and marks the layout completed once the hot and archive collections hold no document of the other layout.
+ * Rings of movements holding such entries are dropped and filled again on their next read.
+ */
+@Service
+public class SchemaMigrationServiceImp implements SchemaMigrationService {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrationServiceImp.class);
+    private static final String RECENT_RINGS = "recent_rings";
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ColdStorage coldStorage;
+    private final MovementLayout movementLayout;
+    private final RecentRings recentRings;
+    private final Clock clock;
+    private final boolean migrateOnStartup;
+    private final int batchSize;
+    private final Duration lease;
+    private final String owner = UUID.randomUUID().toString();
+
+    public SchemaMigrationServiceImp(ReactiveMongoTemplate mongoTemplate,
+                                     ColdStorage coldStorage,
+                                     MovementLayout movementLayout,
+                                     RecentRings recentRings,
+                                     Clock clock,
+                                     @Value("${movements.storage.migrate-on-startup:true}") boolean migrateOnStartup,
+                                     @Value("${movements.storage.migration.batch-size:500}") int batchSize,
+                                     @Value("${movements.storage.migration.lease:PT5M}") Duration lease) {
+        this.mongoTemplate = mongoTemplate;
+        this.coldStorage = coldStorage;
+        this.movementLayout = movementLayout;
+        this.recentRings = recentRings;
+        this.clock = clock;
+        this.migrateOnStartup = migrateOnStartup;
+        this.batchSize = batchSize;
+        this.lease = lease;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        migrateMovements().subscribe(
+                migrated -> log.info("Movements moved to the current schema: {}", migrated),
+                error -> log.error("Migrating the schema of movements failed: {}", error.getMessage()));
+    }
+
+    // Empty when the layout is already completed or another instance holds the lease.
+    @Override
+    public Mono<Map<String, Long>> migrateMovements() {
+        return movementLayout.isMixed()
+                .filter(mixed -> mixed)
+                .flatMap(mixed -> acquireLease())
+                .filter(acquired -> acquired)
+                .flatMap(acquired -> migrateAll()
+                        .flatMap(migrated -> complete().thenReturn(migrated))
+                        .onErrorResume(error -> release().then(Mono.error(error))))
+                .defaultIfEmpty(Collections.emptyMap());
+    }
+
+    private Mono<Map<String, Long>> migrateAll() {
+        boolean compact = movementLayout.isCompact();
+        String otherType = movementLayout.otherFieldName("typeMovement");
+        Query otherLayout = query(where(otherType).exists(true)).limit(batchSize);
+        UnaryOperator<Document> rewrite = compact
+                ? CompactMovementSchema::toCompact
+                : CompactMovementSchema::toExpanded;
+        return Flux.just(MOVEMENTS, coldStorage.archiveOf(MOVEMENTS))
+                .concatMap(collection -> migrate(collection, otherLayout, rewrite)
+                        .map(migrated -> Map.entry(collection, migrated)))
+                .concatWith(recentRings.dropRingsHolding(MOVEMENTS, otherType)
+                        .map(dropped -> Map.entry(RECENT_RINGS, dropped)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    private Mono<Long> migrate(String collection, Query otherLayout, UnaryOperator<Document> rewrite) {
+        return migrateBatch(collection, otherLayout, rewrite)
+                .expand(migrated -> migrated < batchSize
+                        ? Mono.empty()
+                        : migrateBatch(collection, otherLayout, rewrite))
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> migrateBatch(String collection, Query otherLayout, UnaryOperator<Document> rewrite) {
+        return mongoTemplate.find(otherLayout, Document.class, collection)
+                .concatMap(document -> mongoTemplate.save(rewrite.apply(document), collection))
+                .count()
+                .flatMap(migrated -> renewLease().thenReturn(migrated));
+    }
+
+    // The upsert inserts the marker the first time; when another instance holds a live lease it fails on the id.
+    private Mono<Boolean> acquireLease() {
+        Instant now = Instant.now(clock);
+        Query free = query(where("_id").is(MARKER_ID)
+                .orOperator(where("lockedUntil").exists(false), where("lockedUntil").lt(now))
+                .norOperator(where("layout").is(movementLayout.name()).and("completed").is(true)));
+        Update lock = new Update()
+                .set("layout", movementLayout.name())
+                .set("completed", false)
+                .set("owner", owner)
+                .set("lockedUntil", now.plus(lease));
+        return mongoTemplate.upsert(free, lock, MIGRATIONS)
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, error -> Mono.just(false));
+    }
+
+    private Mono<Void> renewLease() {
+        return mongoTemplate.updateFirst(ownMarker(), Update.update("lockedUntil", Instant.now(clock).plus(lease)),
+                MIGRATIONS).then();
+    }
+
+    private Mono<Void> complete() {
+        Update completed = new Update()
+                .set("completed", true)
+                .set("completedAt", Instant.now(clock))
+                .unset("lockedUntil");
+        return mongoTemplate.updateFirst(ownMarker(), completed, MIGRATIONS).then();
+    }
+
+    private Mono<Void> release() {
+        return mongoTemplate.updateFirst(ownMarker(), new Update().unset("lockedUntil"), MIGRATIONS).then();
+    }
+
+    private Query ownMarker() {
+        return query(where("_id").is(MARKER_ID).and("owner").is(owner));
+    }
+}
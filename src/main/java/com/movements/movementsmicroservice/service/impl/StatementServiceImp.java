@@ -0,0 +1,238 @@
+package com.movements.movementsmicroservice.service.impl;
+
+import com.movements.movementsmicroservice.DTO.AccountStatementDto;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MonthlyStatement;
+import com.movements.movementsmicroservice.repository.MonthlyStatementRepository;
+import com.movements.movementsmicroservice.repository.MovementRepository;
+import com.movements.movementsmicroservice.service.StatementService;
+import com.movements.movementsmicroservice.utils.ExecutionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.DEPOSIT;
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.TRANSFER;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Monthly statements are kept up to date on every movement of the present month. A movement dated in
+ * another month, an update or a delete drops the snapshot of its month and of every later month, since their
+ * balances follow from it, and the next read rebuilds them from the raw movements. Closed months are never
+ * recomputed again. A month without a known opening balance (history older than the statements) is backfilled
+ * from the nearest later snapshot with one; when there is none it is skipped and not stored.
+ */
+@Service
+public class StatementServiceImp implements StatementService {
+    private static final Logger log = LoggerFactory.getLogger(StatementServiceImp.class);
+    private static final int DEFAULT_MONTHS = 12;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MonthlyStatementRepository monthlyStatementRepository;
+    private final MovementRepository movementRepository;
+    private final Clock clock;
+
+    public StatementServiceImp(ReactiveMongoTemplate mongoTemplate,
+                               MonthlyStatementRepository monthlyStatementRepository,
+                               MovementRepository movementRepository,
+                               Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.monthlyStatementRepository = monthlyStatementRepository;
+        this.movementRepository = movementRepository;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Void> recordMovement(Movement movement, Double balanceAfter) {
+        if (movement.getTypeMovement() == TRANSFER) {
+            return Mono.empty();
+        }
+        YearMonth month = YearMonth.from(movement.getDate());
+        if (!month.equals(YearMonth.now(clock))) {
+            return invalidate(movement.getIdBankAccount(), movement.getDate());
+        }
+        double commission = movement.getCommissionAmount() == null ? 0.0 : movement.getCommissionAmount();
+        Update update = new Update()
+                .setOnInsert("idBankAccount", movement.getIdBankAccount())
+                .setOnInsert("period", MonthlyStatement.periodOf(month))
+                .setOnInsert("openingBalance", balanceAfter - signedAmount(movement) + commission)
+                .setOnInsert("closed", false)
+                .inc("totalsByType." + movement.getTypeMovement().name(), movement.getAmount())
+                .inc("commissionTotal", commission)
+                .inc("count", 1)
+                .set("closingBalance", balanceAfter)
+                .set("updatedAt", LocalDateTime.now(clock));
+        String id = MonthlyStatement.statementId(movement.getIdBankAccount(), month);
+        return mongoTemplate.upsert(query(where("_id").is(id)), update, MonthlyStatement.class)
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Statement {} could not be updated, it will be rebuilt: {}", id, error.getMessage());
+                    return monthlyStatementRepository.deleteById(id);
+                });
+    }
+
+    @Override
+    public Mono<Void> invalidate(String idBankAccount, LocalDateTime date) {
+        return mongoTemplate.remove(query(where("idBankAccount").is(idBankAccount)
+                        .and("period").gte(MonthlyStatement.periodOf(YearMonth.from(date)))), MonthlyStatement.class)
+                .then();
+    }
+
+    @Override
+    public Flux<MonthlyStatement> findStatements(String idBankAccount, YearMonth from, YearMonth to) {
+        YearMonth present = YearMonth.now(clock);
+        YearMonth last = to.isAfter(present) ? present : to;
+        if (from.isAfter(last)) {
+            return Flux.empty();
+        }
+        YearMonth previous = from.minusMonths(1);
+        return monthlyStatementRepository.findAllByIdBankAccountAndPeriodBetweenOrderByPeriod(idBankAccount,
+                        MonthlyStatement.periodOf(previous), MonthlyStatement.periodOf(last))
+                .filter(statement -> statement.getClosingBalance() != null)
+                .collectMap(MonthlyStatement::getPeriod, Function.identity())
+                .flatMapMany(snapshots -> openingOf(idBankAccount, from, snapshots)
+                        .flatMapMany(opening -> {
+                            AtomicReference<Double> previousClosing = new AtomicReference<>(opening.orElse(null));
+                            return Flux.fromStream(from.atDay(1).datesUntil(last.plusMonths(1).atDay(1),
+                                            Period.ofMonths(1)).map(YearMonth::from))
+                                    .concatMap(month -> Mono.justOrEmpty(
+                                                    snapshots.get(MonthlyStatement.periodOf(month)))
+                                            .switchIfEmpty(Mono.defer(() ->
+                                                    rebuild(idBankAccount, month, previousClosing.get(), present))))
+                                    .doOnNext(statement -> previousClosing.set(statement.getClosingBalance()));
+                        }));
+    }
+
+    @Override
+    public Mono<AccountStatementDto> getAccountStatement(String idBankAccount, YearMonth fromMonth,
+                                                         YearMonth toMonth) {
+        YearMonth present = YearMonth.now(clock);
+        YearMonth to = toMonth == null ? present : toMonth;
+        YearMonth from = fromMonth == null ? to.minusMonths(DEFAULT_MONTHS - 1) : fromMonth;
+        Mono<List<Movement>> recentMovements = to.isBefore(present)
+                ? Mono.just(Collections.emptyList())
+                : ExecutionUtil.collectSorted(movementRepository.findAllByIdBankAccountAndDateBetween(idBankAccount,
+                                present.atDay(1).atStartOfDay().minusNanos(1), LocalDateTime.now(clock))
+                        .filter(movement -> movement.getTypeMovement() != TRANSFER),
+                        Comparator.comparing(Movement::getDate).reversed());
+        return findStatements(idBankAccount, from, to).collectList()
+                .zipWith(recentMovements)
+                .map(tuple -> new AccountStatementDto(idBankAccount, tuple.getT1(), tuple.getT2()));
+    }
+
+    @Scheduled(cron = "${movements.statements.close-cron:0 10 0 1 * *}")
+    public void scheduledClose() {
+        closeMonth(YearMonth.now(clock).minusMonths(1)).subscribe(
+                closed -> log.info("Monthly statements closed: {}", closed),
+                error -> log.error("Closing monthly statements failed: {}", error.getMessage()));
+    }
+
+    @Override
+    public Mono<Long> closeMonth(YearMonth month) {
+        return mongoTemplate.updateMulti(
+                        query(where("period").is(MonthlyStatement.periodOf(month)).and("closed").is(false)),
+                        Update.update("closed", true), MonthlyStatement.class)
+                .map(result -> result.getModifiedCount());
+    }
+
+    // Without an opening balance the month is skipped; a snapshot stored without balances is replaced.
+    private Mono<MonthlyStatement> rebuild(String idBankAccount, YearMonth month, Double openingBalance,
+                                           YearMonth present) {
+        if (openingBalance == null) {
+            return Mono.empty();
+        }
+        LocalDateTime from = month.atDay(1).atStartOfDay().minusNanos(1);
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        return movementRepository.findAllByIdBankAccountAndDateBetween(idBankAccount, from, to)
+                .filter(movement -> movement.getTypeMovement() != TRANSFER)
+                .collectList()
+                .publishOn(ExecutionUtil.COMPUTE)
+                .map(movements -> summarize(idBankAccount, month, openingBalance, movements,
+                        month.isBefore(present)))
+                .flatMap(statement -> monthlyStatementRepository.insert(statement)
+                        .onErrorResume(DuplicateKeyException.class, e -> mongoTemplate.findAndReplace(
+                                        query(where("_id").is(statement.getId()).and("closingBalance").is(null)),
+                                        statement)
+                                .thenReturn(statement)));
+    }
+
+    private Mono<Optional<Double>> openingOf(String idBankAccount, YearMonth month,
+                                            Map<Integer, MonthlyStatement> snapshots) {
+        return Mono.justOrEmpty(closingOf(snapshots.get(MonthlyStatement.periodOf(month.minusMonths(1)))))
+                .switchIfEmpty(Mono.defer(() -> backfilledOpeningOf(idBankAccount, month)))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    // The opening balance of a month is the one of the nearest later snapshot that has it, less what moved between.
+    private Mono<Double> backfilledOpeningOf(String idBankAccount, YearMonth month) {
+        return monthlyStatementRepository
+                .findFirstByIdBankAccountAndPeriodGreaterThanEqualAndOpeningBalanceIsNotNullOrderByPeriod(
+                        idBankAccount, MonthlyStatement.periodOf(month))
+                .flatMap(anchor -> {
+                    YearMonth anchorMonth = YearMonth.of(anchor.getPeriod() / 100, anchor.getPeriod() % 100);
+                    LocalDateTime from = month.atDay(1).atStartOfDay().minusNanos(1);
+                    LocalDateTime to = anchorMonth.atDay(1).atStartOfDay();
+                    return movementRepository.findAllByIdBankAccountAndDateBetween(idBankAccount, from, to)
+                            .filter(movement -> movement.getTypeMovement() != TRANSFER)
+                            .reduce(anchor.getOpeningBalance(), (opening, movement) -> opening
+                                    - signedAmount(movement) + commissionOf(movement));
+                });
+    }
+
+    private MonthlyStatement summarize(String idBankAccount, YearMonth month, Double openingBalance,
+                                       List<Movement> movements, boolean closed) {
+        MonthlyStatement statement = new MonthlyStatement();
+        statement.setId(MonthlyStatement.statementId(idBankAccount, month));
+        statement.setIdBankAccount(idBankAccount);
+        statement.setPeriod(MonthlyStatement.periodOf(month));
+        statement.setOpeningBalance(openingBalance);
+        Map<String, Double> totalsByType = movements.stream()
+                .collect(Collectors.groupingBy(movement -> movement.getTypeMovement().name(),
+                        Collectors.summingDouble(Movement::getAmount)));
+        statement.setTotalsByType(totalsByType);
+        double commissionTotal = movements.stream()
+                .mapToDouble(movement -> movement.getCommissionAmount() == null ? 0.0 : movement.getCommissionAmount())
+                .sum();
+        statement.setCommissionTotal(commissionTotal);
+        statement.setCount(movements.size());
+        if (openingBalance != null) {
+            double net = movements.stream().mapToDouble(this::signedAmount).sum();
+            statement.setClosingBalance(openingBalance + net - commissionTotal);
+        }
+        statement.setClosed(closed);
+        statement.setUpdatedAt(LocalDateTime.now(clock));
+        return statement;
+    }
+
+    private double commissionOf(Movement movement) {
+        return movement.getCommissionAmount() == null ? 0.0 : movement.getCommissionAmount();
+    }
+
+    private double signedAmount(Movement movement) {
+        return movement.getTypeMovement() == DEPOSIT ? movement.getAmount() : -movement.getAmount();
+    }
+
+    private Double closingOf(MonthlyStatement statement) {
+        return statement == null ? null : statement.getClosingBalance();
+    }
+}
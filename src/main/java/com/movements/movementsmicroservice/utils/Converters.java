@@ -5,7 +5,20 @@ import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.convert.ReadingConverter;
 import org.springframework.data.convert.WritingConverter;
 
+import java.util.Map;
+import java.util.stream.Collectors;
+
 public class Converters {
+    // Codes of the compact schema; a code is never reused for another type.
+    public static final Map<TypeMovement, Integer> TYPE_CODES = Map.of(
+            TypeMovement.UNSUPPORTED, 0,
+            TypeMovement.DEPOSIT, 1,
+            TypeMovement.WITHDRAWAL, 2,
+            TypeMovement.TRANSFER, 3,
+            TypeMovement.PAY_CREDIT, 4,
+            TypeMovement.WITHDRAWAL_DEBIT, 5);
+    public static final Map<Integer, TypeMovement> TYPES_BY_CODE = TYPE_CODES.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
 
     @WritingConverter
     public static class TypeMovementWriteConverter implements Converter<TypeMovement, String> {
@@ -22,4 +35,20 @@ public class Converters {
             return TypeMovement.valueOf(source);
         }
     }
+
+    @WritingConverter
+    public static class TypeMovementCodeWriteConverter implements Converter<TypeMovement, Integer> {
+        @Override
+        public Integer convert(TypeMovement source) {
+            return TYPE_CODES.get(source);
+        }
+    }
+
+    @ReadingConverter
+    public static class TypeMovementCodeReadConverter implements Converter<Integer, TypeMovement> {
+        @Override
+        public TypeMovement convert(Integer source) {
+            return TYPES_BY_CODE.get(source);
+        }
+    }
 }
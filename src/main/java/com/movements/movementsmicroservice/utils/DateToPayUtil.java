@@ -2,11 +2,11 @@ package com.movements.movementsmicroservice.utils;
 
 import java.time.LocalDate;
 import java.time.YearMonth;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 
 public class DateToPayUtil {
-    public static Function<Integer, LocalDate> calculatePaymentDate = (payDay) -> {
-        LocalDate today = LocalDate.now();
+    // Payment date of the month of today; today comes from the clock of the caller.
+    public static BiFunction<Integer, LocalDate, LocalDate> calculatePaymentDate = (payDay, today) -> {
         YearMonth yearMonth = YearMonth.of(today.getYear(), today.getMonth());
 
         int lastDayOfMonth = yearMonth.lengthOfMonth();
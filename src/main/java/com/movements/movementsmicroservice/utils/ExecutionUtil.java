@@ -0,0 +1,38 @@
+package com.movements.movementsmicroservice.utils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Execution model of the services: I/O stays on the event loop and CPU-bound stages (sorting and aggregating whole
+ * histories, building large responses) hop once to the parallel scheduler. A value emitted on the compute scheduler is
+ * also serialized there by the codecs. Nothing in the services may block; the tests run under BlockHound.
+ */
+public class ExecutionUtil {
+    public static final Scheduler COMPUTE = Schedulers.parallel();
+
+    private ExecutionUtil() {
+    }
+
+    public static <T> Mono<List<T>> collectSorted(Flux<T> source, Comparator<? super T> comparator) {
+        return source.collectList()
+                .publishOn(COMPUTE)
+                .map(items -> {
+                    items.sort(comparator);
+                    return items;
+                });
+    }
+
+    public static <T> Flux<T> sorted(Flux<T> source, Comparator<? super T> comparator) {
+        return collectSorted(source, comparator).flatMapIterable(items -> items);
+    }
+
+    public static <T> Mono<T> compute(Mono<T> source) {
+        return source.publishOn(COMPUTE);
+    }
+}
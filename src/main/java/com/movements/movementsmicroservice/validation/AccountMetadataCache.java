@@ -0,0 +1,39 @@
+package com.movements.movementsmicroservice.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Type and payment day of the bank accounts already read; neither changes during the life of an account.
+@Component
+public class AccountMetadataCache {
+    private final Cache<String, BankAccountDto> accounts;
+
+    public AccountMetadataCache(@Value("${movements.validation.account-cache.max-size:50000}") long maxSize,
+                                @Value("${movements.validation.account-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    public void remember(BankAccountDto bankAccount) {
+        if (bankAccount.getId() == null) {
+            return;
+        }
+        BankAccountDto metadata = new BankAccountDto();
+        metadata.setId(bankAccount.getId());
+        metadata.setTypeBankAccount(bankAccount.getTypeBankAccount());
+        metadata.setExpirationDate(bankAccount.getExpirationDate());
+        accounts.put(bankAccount.getId(), metadata);
+    }
+
+    public Optional<BankAccountDto> find(String idBankAccount) {
+        return idBankAccount == null ? Optional.empty() : Optional.ofNullable(accounts.getIfPresent(idBankAccount));
+    }
+}
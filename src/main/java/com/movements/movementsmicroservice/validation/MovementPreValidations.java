@@ -0,0 +1,124 @@
+package com.movements.movementsmicroservice.validation;
+
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
+import com.movements.movementsmicroservice.exceptions.BusinessException;
+import com.movements.movementsmicroservice.exceptions.UnsupportedMovementException;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.utils.DateToPayUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.*;
+
+@Component
+public class MovementPreValidations {
+    // Account lookup plus the month and day movement counts.
+    private static final int ACCOUNT_READS = 3;
+    private final PreValidationStage stage;
+    private final AccountMetadataCache accountMetadataCache;
+    private final Clock clock;
+    private final double maxAmount;
+    private final PreValidation<Movement> create;
+
+    public MovementPreValidations(PreValidationStage stage,
+                                  AccountMetadataCache accountMetadataCache,
+                                  Clock clock,
+                                  @Value("${movements.validation.max-amount:1000000}") double maxAmount) {
+        this.stage = stage;
+        this.accountMetadataCache = accountMetadataCache;
+        this.clock = clock;
+        this.maxAmount = maxAmount;
+        this.create = ((PreValidation<Movement>) this::supportedType)
+                .and(this::positiveAmount)
+                .and(this::plausibleAmount)
+                .and(this::transferToAnotherAccount)
+                .and(this::fixedTermPaymentDay);
+    }
+
+    public Mono<Movement> validateCreate(Movement movement) {
+        return stage.run("movement-create", this::readsBeforeFirstWrite, movement, create);
+    }
+
+    // The legs are already known here, so the saved reads are those of every funding account.
+    public Mono<Movement> validateWithdrawal(Movement withdrawal, List<FundingSourceDto> fundingSources) {
+        return stage.run("movement-create",
+                rejected -> fundingSources.stream().mapToInt(source -> accountReads(source.getIdBankAccount())).sum(),
+                withdrawal, create);
+    }
+
+    /**
+     * A transfer also reads its destination. A debit card withdrawal is counted as one leg on an unknown account,
+     * since its summary may come from the cache and its legs are only known once the summary is read.
+     */
+    private int readsBeforeFirstWrite(Movement movement) {
+        if (movement.getTypeMovement() == WITHDRAWAL_DEBIT) {
+            return ACCOUNT_READS;
+        }
+        int reads = accountReads(movement.getIdBankAccount());
+        return movement.getTypeMovement() == TRANSFER ? reads + 1 : reads;
+    }
+
+    // A fixed-term account only counts the day's movements, and outside its payment day the service stops there.
+    private int accountReads(String idBankAccount) {
+        return accountMetadataCache.find(idBankAccount)
+                .filter(account -> account.getTypeBankAccount() == BankAccountDto.TypeBankAccount.FIXED_TERM_ACCOUNT)
+                .map(account -> isPaymentDay(account) ? 2 : 1)
+                .orElse(ACCOUNT_READS);
+    }
+
+    private boolean isPaymentDay(BankAccountDto fixedTermAccount) {
+        LocalDate today = LocalDate.now(clock);
+        return today.isEqual(DateToPayUtil.calculatePaymentDate.apply(fixedTermAccount.getExpirationDate(), today));
+    }
+
+    private Optional<BusinessException> supportedType(Movement movement) {
+        return movement.getTypeMovement() == null || movement.getTypeMovement() == UNSUPPORTED
+                ? Optional.of(new UnsupportedMovementException("The movement is not supported."))
+                : Optional.empty();
+    }
+
+    private Optional<BusinessException> positiveAmount(Movement movement) {
+        return movement.getAmount() == null || movement.getAmount() <= 0
+                ? Optional.of(new UnsupportedMovementException("The amount of the movement must be positive."))
+                : Optional.empty();
+    }
+
+    // The account is not read yet, so an amount over the ceiling is rejected as unsupported, not as a lack of funds.
+    private Optional<BusinessException> plausibleAmount(Movement movement) {
+        return movement.getTypeMovement() != DEPOSIT && movement.getAmount() > maxAmount
+                ? Optional.of(new UnsupportedMovementException(
+                        "The amount exceeds the maximum allowed of " + maxAmount))
+                : Optional.empty();
+    }
+
+    private Optional<BusinessException> transferToAnotherAccount(Movement movement) {
+        if (movement.getTypeMovement() != TRANSFER) {
+            return Optional.empty();
+        }
+        String destination = movement.getIdBankAccountTransfer();
+        if (destination == null || destination.isBlank()) {
+            return Optional.of(new UnsupportedMovementException("The transfer must have a destination account."));
+        }
+        return destination.equals(movement.getIdBankAccount())
+                ? Optional.of(new UnsupportedMovementException("The transfer must be to another account."))
+                : Optional.empty();
+    }
+
+    // Only known once the account has been read before; otherwise the check is left to the service.
+    private Optional<BusinessException> fixedTermPaymentDay(Movement movement) {
+        if (movement.getTypeMovement() == WITHDRAWAL_DEBIT) {
+            return Optional.empty();
+        }
+        return accountMetadataCache.find(movement.getIdBankAccount())
+                .filter(account -> account.getTypeBankAccount() == BankAccountDto.TypeBankAccount.FIXED_TERM_ACCOUNT)
+                .filter(account -> !isPaymentDay(account))
+                .map(account -> new UnsupportedMovementException("Your bank account not support movements today"));
+    }
+}
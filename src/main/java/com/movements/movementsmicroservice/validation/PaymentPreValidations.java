@@ -0,0 +1,74 @@
+package com.movements.movementsmicroservice.validation;
+
+import com.movements.movementsmicroservice.exceptions.BusinessException;
+import com.movements.movementsmicroservice.exceptions.InvalidPayException;
+import com.movements.movementsmicroservice.model.Payment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static com.movements.movementsmicroservice.model.Payment.TypePayer.CLIENT;
+import static com.movements.movementsmicroservice.model.Payment.TypePayer.DEBIT_CARD;
+import static com.movements.movementsmicroservice.model.Payment.TypePayer.EXTERNAL;
+
+@Component
+public class PaymentPreValidations {
+    private final PreValidationStage stage;
+    private final PreValidation<Payment> create;
+
+    public PaymentPreValidations(PreValidationStage stage) {
+        this.stage = stage;
+        this.create = ((PreValidation<Payment>) this::consistentPayer)
+                .and(this::positiveAmount)
+                .and(this::creditProduct);
+    }
+
+    public Mono<Payment> validateCreate(Payment payment) {
+        return stage.run("payment-create", this::readsBeforeFirstWrite, payment, create);
+    }
+
+    /**
+     * A client payer is looked up first and a supported product is read before anything is reserved or paid. The
+     * debit card summary may come from the cache and is not counted; any other payer is refused without a call.
+     */
+    private int readsBeforeFirstWrite(Payment payment) {
+        int productReads = isCreditProduct(payment) ? 1 : 0;
+        if (payment.getTypePayer() == CLIENT) {
+            return 1 + productReads;
+        }
+        return payment.getTypePayer() == EXTERNAL || payment.getTypePayer() == DEBIT_CARD ? productReads : 0;
+    }
+
+    private boolean isCreditProduct(Payment payment) {
+        return payment.getTypeCreditProduct() == Payment.TypeCreditProduct.CREDIT
+                || payment.getTypeCreditProduct() == Payment.TypeCreditProduct.CREDIT_CARD;
+    }
+
+    private Optional<BusinessException> consistentPayer(Payment payment) {
+        String idPayer = payment.getIdPayer() == null ? "" : payment.getIdPayer();
+        boolean external = payment.getTypePayer() == EXTERNAL;
+        if (external && !idPayer.isEmpty()) {
+            return Optional.of(new InvalidPayException(
+                    "If your payment is external, you cannot have a payer id '%s'", idPayer));
+        }
+        if (!external && idPayer.isEmpty()) {
+            return Optional.of(new InvalidPayException(
+                    "If the payment is internal, it must have a payer ID: '%s'", idPayer));
+        }
+        return Optional.empty();
+    }
+
+    private Optional<BusinessException> positiveAmount(Payment payment) {
+        return payment.getAmount() == null || payment.getAmount() <= 0
+                ? Optional.of(new InvalidPayException("The amount of the payment must be positive."))
+                : Optional.empty();
+    }
+
+    private Optional<BusinessException> creditProduct(Payment payment) {
+        return payment.getTypeCreditProduct() == null
+                || payment.getTypeCreditProduct() == Payment.TypeCreditProduct.UNSUPPORTED
+                ? Optional.of(new InvalidPayException("Payments can only be for credit products"))
+                : Optional.empty();
+    }
+}
@@ -0,0 +1,18 @@
+package com.movements.movementsmicroservice.validation;
+
+import com.movements.movementsmicroservice.exceptions.BusinessException;
+
+import java.util.Optional;
+
+// A check that needs nothing but the request and cached metadata; rules are chained and the first rejection wins.
+@FunctionalInterface
+public interface PreValidation<T> {
+    Optional<BusinessException> check(T request);
+
+    default PreValidation<T> and(PreValidation<T> next) {
+        return request -> {
+            Optional<BusinessException> rejection = check(request);
+            return rejection.isPresent() ? rejection : next.check(request);
+        };
+    }
+}
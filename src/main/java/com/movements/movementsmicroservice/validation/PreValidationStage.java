@@ -0,0 +1,45 @@
+package com.movements.movementsmicroservice.validation;
+
+import com.movements.movementsmicroservice.exceptions.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs the pre-validation of an operation before any remote or Mongo call. Every rejection counts in
+ * movements.prevalidation.rejections and adds to movements.prevalidation.saved-calls the reads the rejected
+ * request's path would have made before its first write, both tagged by operation and error code. The writes
+ * are left out because a rejected request would not have reached them, so the metric is a lower bound.
+ */
+@Component
+public class PreValidationStage {
+    private final MeterRegistry meterRegistry;
+
+    public PreValidationStage(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> run(String operation, ToIntFunction<T> savedCalls, T request,
+                           PreValidation<T> validation) {
+        Optional<BusinessException> rejection = validation.check(request);
+        if (rejection.isEmpty()) {
+            return Mono.just(request);
+        }
+        String code = rejection.get().getCode().name();
+        Counter.builder("movements.prevalidation.rejections")
+                .tag("operation", operation)
+                .tag("code", code)
+                .register(meterRegistry)
+                .increment();
+        Counter.builder("movements.prevalidation.saved-calls")
+                .tag("operation", operation)
+                .tag("code", code)
+                .register(meterRegistry)
+                .increment(savedCalls.applyAsInt(request));
+        return Mono.error(rejection.get());
+    }
+}
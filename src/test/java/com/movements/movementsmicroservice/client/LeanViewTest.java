@@ -0,0 +1,43 @@
+package com.movements.movementsmicroservice.client;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.DTO.CreditCardDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeanViewTest {
+    private LeanView leanView;
+
+    @BeforeEach
+    void setUp() {
+        leanView = new LeanView(Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()));
+    }
+
+    @Test
+    @DisplayName("The movements of a bank account are skipped while parsing")
+    void bankAccountWithoutMovementsTest() throws Exception {
+        String json = "{\"id\":\"IDbank001\",\"balance\":1500.0,\"typeBankAccount\":\"SAVING_ACCOUNT\","
+                + "\"movements\":[{\"id\":\"MOV001\",\"amount\":10.0,\"typeMovement\":\"DEPOSIT\"}],"
+                + "\"limitMovements\":2}";
+
+        BankAccountDto bankAccount = leanView.getLeanMapper().readValue(json, BankAccountDto.class);
+
+        assertThat(bankAccount.getBalance()).isEqualTo(1500.0);
+        assertThat(bankAccount.getLimitMovements()).isEqualTo(2);
+        assertThat(bankAccount.getMovements()).isEmpty();
+        assertThat(leanView.getLeanMapper().writeValueAsString(bankAccount)).contains("\"movements\":[]");
+    }
+
+    @Test
+    @DisplayName("The fields filter lists every property except the histories")
+    void fieldsTest() {
+        assertThat(leanView.fields(CreditCardDto.class).split(","))
+                .contains("id", "availableBalance", "limitCredit")
+                .doesNotContain("payments", "consumptions");
+    }
+}
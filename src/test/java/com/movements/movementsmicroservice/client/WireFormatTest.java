@@ -0,0 +1,177 @@
+package com.movements.movementsmicroservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.client.resilience.LastKnownGoodCache;
+import com.movements.movementsmicroservice.client.resilience.ResilientCall;
+import com.movements.movementsmicroservice.client.resilience.ResilientCallRegistry;
+import com.movements.movementsmicroservice.model.Movement;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Stand-in for appbank-microservice: answers in Smile or JSON by Accept and may refuse Smile request bodies.
+class WireFormatTest {
+    private static final String SMILE = WireFormat.APPLICATION_SMILE.toString();
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+    private final List<String> contentTypes = new CopyOnWriteArrayList<>();
+    private final List<BankAccountDto> updates = new CopyOnWriteArrayList<>();
+    private DisposableServer standIn;
+    private boolean acceptsSmileBodies;
+
+    @BeforeEach
+    void setUp() {
+        acceptsSmileBodies = true;
+        standIn = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/bank-accounts/{id}", (request, response) ->
+                                reply(request, response, bankAccount(request.param("id"), 1500.0)))
+                        .put("/bank-accounts/{id}", (request, response) -> {
+                            String contentType = request.requestHeaders().get(HttpHeaders.CONTENT_TYPE);
+                            contentTypes.add(contentType);
+                            if (contentType.startsWith(SMILE) && !acceptsSmileBodies) {
+                                return response.status(415).send();
+                            }
+                            ObjectMapper mapper = contentType.startsWith(SMILE) ? smileMapper : jsonMapper;
+                            return request.receive().aggregate().asByteArray()
+                                    .map(body -> read(mapper, body))
+                                    .doOnNext(updates::add)
+                                    .flatMap(bankAccount -> reply(request, response, bankAccount).then());
+                        }))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        standIn.disposeNow();
+    }
+
+    @Test
+    @DisplayName("With compact encoding the account is read as Smile")
+    void readsSmileWhenEnabledTest() {
+        StepVerifier.create(bankAccountService(true).findById("IDbank001"))
+                .assertNext(bankAccount -> {
+                    assertThat(bankAccount.getId()).isEqualTo("IDbank001");
+                    assertThat(bankAccount.getBalance()).isEqualTo(1500.0);
+                })
+                .verifyComplete();
+        assertThat(contentTypes).containsExactly(SMILE);
+    }
+
+    @Test
+    @DisplayName("Without compact encoding the account is read as JSON")
+    void readsJsonByDefaultTest() {
+        StepVerifier.create(bankAccountService(false).findById("IDbank001"))
+                .assertNext(bankAccount -> assertThat(bankAccount.getBalance()).isEqualTo(1500.0))
+                .verifyComplete();
+        assertThat(contentTypes).containsExactly("application/json");
+    }
+
+    @Test
+    @DisplayName("An update refused as Smile is repeated as JSON")
+    void updateFallsBackToJsonTest() {
+        acceptsSmileBodies = false;
+
+        StepVerifier.create(bankAccountService(true).update("IDbank001", bankAccount("IDbank001", 900.0)))
+                .assertNext(bankAccount -> assertThat(bankAccount.getBalance()).isEqualTo(900.0))
+                .verifyComplete();
+        assertThat(contentTypes).containsExactly(SMILE, "application/json");
+    }
+
+    @Test
+    @DisplayName("An update still sends the movements of the account")
+    void updateCarriesTheHistoriesTest() {
+        BankAccountDto bankAccount = bankAccount("IDbank001", 900.0);
+        Movement movement = new Movement();
+        movement.setId("MOV001");
+        movement.setAmount(10.0);
+        movement.setTypeMovement(Movement.TypeMovement.DEPOSIT);
+        bankAccount.setMovements(List.of(movement));
+
+        StepVerifier.create(bankAccountService(false).update("IDbank001", bankAccount))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertThat(updates).singleElement()
+                .satisfies(sent -> assertThat(sent.getMovements()).extracting(Movement::getId)
+                        .containsExactly("MOV001"));
+    }
+
+    private Mono<Void> reply(HttpServerRequest request, HttpServerResponse response, BankAccountDto bankAccount) {
+        String accept = request.requestHeaders().get(HttpHeaders.ACCEPT, "");
+        boolean smile = accept.startsWith(SMILE);
+        if (request.method().name().equals("GET")) {
+            contentTypes.add(smile ? SMILE : "application/json");
+        }
+        try {
+            byte[] body = (smile ? smileMapper : jsonMapper).writeValueAsBytes(bankAccount);
+            return response.header(HttpHeaders.CONTENT_TYPE, smile ? SMILE : "application/json")
+                    .send(Mono.just(Unpooled.wrappedBuffer(body)))
+                    .then();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BankAccountDto read(ObjectMapper mapper, byte[] body) {
+        try {
+            return mapper.readValue(body, BankAccountDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BankAccountService bankAccountService(boolean compact) {
+        ResilientCall resilientCall = mock(ResilientCall.class);
+        when(resilientCall.hedgedRead(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<?>>>getArgument(1).get());
+        when(resilientCall.write(anyString(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<?>>>getArgument(1).get());
+        ResilientCallRegistry registry = mock(ResilientCallRegistry.class);
+        when(registry.resilientCall(anyString(), anyString())).thenReturn(resilientCall);
+
+        WebClient.Builder builder = WebClient.builder()
+                .filter((request, next) -> next.exchange(ClientRequest.from(request)
+                        .url(UriComponentsBuilder.fromUri(request.url())
+                                .host("localhost").port(standIn.port()).build(true).toUri())
+                        .build()))
+                .codecs(WireFormat.codecs(jsonMapper, smileMapper));
+        return new BankAccountService(builder, registry, mock(LastKnownGoodCache.class),
+                new LeanView(Jackson2ObjectMapperBuilder.json()), new WireFormat(compact));
+    }
+
+    private BankAccountDto bankAccount(String id, Double balance) {
+        BankAccountDto bankAccount = new BankAccountDto();
+        bankAccount.setId(id);
+        bankAccount.setBalance(balance);
+        bankAccount.setTypeBankAccount(BankAccountDto.TypeBankAccount.SAVING_ACCOUNT);
+        return bankAccount;
+    }
+}
@@ -0,0 +1,50 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    @DisplayName("Reject calls over the limit without subscribing to the source")
+    void rejectWhenLimitReachedTest() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("bank-accounts", 1, 1, 10, 1000, 0.5);
+        Sinks.One<String> pending = Sinks.one();
+        limiter.limit(pending.asMono()).subscribe();
+
+        StepVerifier.create(limiter.limit(Mono.just("second")))
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        assertThat(limiter.getRejected()).isEqualTo(1);
+
+        pending.tryEmitValue("first");
+        assertThat(limiter.getInFlight()).isZero();
+        StepVerifier.create(limiter.limit(Mono.just("third")))
+                .expectNext("third")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Decrease the limit when the dependency times out")
+    void decreaseLimitOnTimeoutTest() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("credits", 8, 2, 10, 1000, 0.5);
+
+        StepVerifier.create(limiter.limit(Mono.error(new TimeoutException())))
+                .expectError(TimeoutException.class)
+                .verify();
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        StepVerifier.create(limiter.limit(Mono.error(new IllegalStateException())))
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,70 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LastKnownGoodCacheTest {
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private LastKnownGoodCache lastKnownGood;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        Clock clock = Clock.fixed(Instant.parse("2025-02-20T10:00:00Z"), ZoneId.of("UTC"));
+        lastKnownGood = new LastKnownGoodCache(circuitBreakerRegistry, new SimpleMeterRegistry(), clock,
+                100, 60000, 10);
+    }
+
+    @Test
+    @DisplayName("Serve the last known good answer and revalidate it when the breaker half-opens")
+    void serveLastKnownGoodTest() {
+        StepVerifier.create(lastKnownGood.record("credits:by-client:C1", Flux.just("A", "B")))
+                .expectNext("A", "B")
+                .verifyComplete();
+
+        AtomicInteger revalidations = new AtomicInteger();
+        Flux<String> revalidation = lastKnownGood.record("credits:by-client:C1",
+                Flux.defer(() -> {
+                    revalidations.incrementAndGet();
+                    return Flux.just("C");
+                }));
+        StepVerifier.create(lastKnownGood.serve("creditCircuitBreaker", "credits:by-client:C1", revalidation,
+                        () -> new ServiceNotAvailableException("down")))
+                .expectNext("A", "B")
+                .verifyComplete();
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("creditCircuitBreaker");
+        circuitBreaker.transitionToOpenState();
+        circuitBreaker.transitionToHalfOpenState();
+
+        assertThat(revalidations.get()).isEqualTo(1);
+        StepVerifier.create(lastKnownGood.serve("creditCircuitBreaker", "credits:by-client:C1", Flux.empty(),
+                        () -> new ServiceNotAvailableException("down")))
+                .expectNext("C")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Fail with the fallback error when nothing was stored")
+    void serveWithoutSnapshotTest() {
+        StepVerifier.create(lastKnownGood.serve("creditCircuitBreaker", "credits:by-client:C2", Flux.empty(),
+                        () -> new ServiceNotAvailableException("down")))
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,70 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestHedgerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Send a hedge after the percentile delay and keep the first answer")
+    void hedgeWinsWhenFirstAttemptIsSlowTest() {
+        RequestHedger hedger = hedger(100.0);
+        for (int i = 0; i < 32; i++) {
+            hedger.hedge(() -> Mono.just("warm-up")).block();
+        }
+        assertThat(hedger.getHedgeDelayMs()).isEqualTo(10);
+
+        AtomicInteger attempts = new AtomicInteger();
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> attempts.incrementAndGet() == 1
+                        ? Mono.<String>never()
+                        : Mono.just("hedge")))
+                .thenAwait(Duration.ofMillis(10))
+                .expectNext("hedge")
+                .verifyComplete();
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(meterRegistry.counter("movements.client.hedge.wins").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Do not hedge when the budget is spent")
+    void noHedgeWithoutBudgetTest() {
+        RequestHedger hedger = hedger(0.0);
+        for (int i = 0; i < 32; i++) {
+            hedger.hedge(() -> Mono.just("warm-up")).block();
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> attempts.incrementAndGet() == 1
+                        ? Mono.delay(Duration.ofMillis(50)).thenReturn("primary")
+                        : Mono.just("hedge")))
+                .thenAwait(Duration.ofMillis(50))
+                .expectNext("primary")
+                .verifyComplete();
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("movements.client.hedge.sent").count()).isZero();
+    }
+
+    private RequestHedger hedger(double budgetPercent) {
+        return new RequestHedger(true, 0.95, budgetPercent, 10,
+                Counter.builder("movements.client.hedge.requests").register(meterRegistry),
+                Counter.builder("movements.client.hedge.sent").register(meterRegistry),
+                Counter.builder("movements.client.hedge.wins").register(meterRegistry));
+    }
+}
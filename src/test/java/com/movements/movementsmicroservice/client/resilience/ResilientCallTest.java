@@ -0,0 +1,138 @@
+package com.movements.movementsmicroservice.client.resilience;
+
+import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResilientCallTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+    private ResilientCall resilientCall;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = CircuitBreaker.ofDefaults("bankAccountCircuitBreaker");
+        RequestHedger hedger = new RequestHedger(false, 0.95, 0.0, 10,
+                Counter.builder("requests").register(meterRegistry),
+                Counter.builder("hedges").register(meterRegistry),
+                Counter.builder("wins").register(meterRegistry));
+        resilientCall = new ResilientCall("bank-accounts", circuitBreaker, TimeLimiter.ofDefaults(),
+                new AdaptiveConcurrencyLimiter("bank-accounts", 10, 1, 10, 1000, 0.9), hedger,
+                2, Duration.ofMillis(1), Duration.ofMillis(5), 0.5, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Retry a read after a transient error")
+    void retryReadOnTransientErrorTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> read = resilientCall.read("findById",
+                () -> attempts.incrementAndGet() == 1 ? Mono.error(serverError()) : Mono.just("account"),
+                error -> Mono.error(new ServiceNotAvailableException("down")));
+
+        StepVerifier.create(read)
+                .expectNext("account")
+                .verifyComplete();
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(meterRegistry.counter("movements.client.retries", "dependency", "bank-accounts").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Do not retry a write and apply the fallback")
+    void writeIsNotRetriedTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> write = resilientCall.write("update",
+                () -> {
+                    attempts.incrementAndGet();
+                    return Mono.error(serverError());
+                },
+                error -> Mono.error(new ServiceNotAvailableException("down")));
+
+        StepVerifier.create(write)
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Use the fallback without calling while the breaker is open")
+    void fallbackWhenBreakerOpenTest() {
+        circuitBreaker.transitionToOpenState();
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> read = resilientCall.read("findById",
+                () -> {
+                    attempts.incrementAndGet();
+                    return Mono.just("account");
+                },
+                error -> Mono.just("fallback"));
+
+        StepVerifier.create(read)
+                .expectNext("fallback")
+                .verifyComplete();
+        assertThat(attempts.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("A call rejected by the bulkhead is not recorded by the breaker")
+    void bulkheadRejectionIsNotCountedByTheBreakerTest() {
+        RequestHedger hedger = new RequestHedger(false, 0.95, 0.0, 10,
+                Counter.builder("requests").register(meterRegistry),
+                Counter.builder("hedges").register(meterRegistry),
+                Counter.builder("wins").register(meterRegistry));
+        ResilientCall singleCall = new ResilientCall("bank-accounts", circuitBreaker, TimeLimiter.ofDefaults(),
+                new AdaptiveConcurrencyLimiter("bank-accounts", 1, 1, 1, 1000, 0.9), hedger,
+                0, Duration.ofMillis(1), Duration.ofMillis(5), 0.5, meterRegistry);
+        Sinks.One<String> pending = Sinks.one();
+        singleCall.write("update", pending::asMono, Mono::error).subscribe();
+
+        StepVerifier.create(singleCall.write("update", () -> Mono.just("account"), Mono::error))
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+        pending.tryEmitValue("account");
+        assertThat(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Only reads opted in with hedgedRead go through the hedger")
+    void onlyHedgedReadsAreHedgedTest() {
+        RequestHedger hedger = new RequestHedger(true, 0.95, 0.0, 10,
+                Counter.builder("hedged.requests").register(meterRegistry),
+                Counter.builder("hedged.sent").register(meterRegistry),
+                Counter.builder("hedged.wins").register(meterRegistry));
+        ResilientCall hedgedCall = new ResilientCall("bank-accounts", circuitBreaker, TimeLimiter.ofDefaults(),
+                new AdaptiveConcurrencyLimiter("bank-accounts", 10, 1, 10, 1000, 0.9), hedger,
+                0, Duration.ofMillis(1), Duration.ofMillis(5), 0.5, meterRegistry);
+
+        StepVerifier.create(hedgedCall.read("findAllByClient", () -> Mono.just("accounts"), Mono::error))
+                .expectNext("accounts")
+                .verifyComplete();
+        assertThat(meterRegistry.counter("hedged.requests").count()).isZero();
+        StepVerifier.create(hedgedCall.hedgedRead("findById", () -> Mono.just("account"), Mono::error))
+                .expectNext("account")
+                .verifyComplete();
+        assertThat(meterRegistry.counter("hedged.requests").count()).isEqualTo(1.0);
+    }
+
+    private WebClientResponseException serverError() {
+        return WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable",
+                null, null, null);
+    }
+}
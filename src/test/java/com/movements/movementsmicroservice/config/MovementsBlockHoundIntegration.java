@@ -0,0 +1,13 @@
+package com.movements.movementsmicroservice.config;
+
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.integration.BlockHoundIntegration;
+
+// Installed for every test by blockhound-junit-platform; lists the calls accepted on non-blocking threads.
+public class MovementsBlockHoundIntegration implements BlockHoundIntegration {
+    @Override
+    public void applyTo(BlockHound.Builder builder) {
+        // Reads /dev/urandom, which never blocks once the kernel pool is seeded.
+        builder.allowBlockingCallsInside("java.util.UUID", "randomUUID");
+    }
+}
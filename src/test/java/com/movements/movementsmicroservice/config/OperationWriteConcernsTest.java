@@ -0,0 +1,42 @@
+package com.movements.movementsmicroservice.config;
+
+import com.mongodb.WriteConcern;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MovementDayBucket;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoAction;
+import org.springframework.data.mongodb.core.MongoActionOperation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OperationWriteConcernsTest {
+    private final OperationWriteConcerns writeConcerns = new OperationWriteConcerns("MAJORITY", "W1");
+
+    @Test
+    void ledgerCollectionsAndTheirArchivesUseTheLedgerConcernTest() {
+        assertThat(writeConcerns.resolve(action("movements", Movement.class))).isEqualTo(WriteConcern.MAJORITY);
+        assertThat(writeConcerns.resolve(action("payments_archive", null))).isEqualTo(WriteConcern.MAJORITY);
+        assertThat(writeConcerns.resolve(action("recent_rings", null))).isEqualTo(WriteConcern.W1);
+        assertThat(writeConcerns.resolve(action("monthly_statements", null))).isEqualTo(WriteConcern.W1);
+    }
+
+    @Test
+    void dayBucketsAndTheirArchiveUseTheLedgerConcernTest() {
+        assertThat(writeConcerns.resolve(action("movement_day_buckets", MovementDayBucket.class)))
+                .isEqualTo(WriteConcern.MAJORITY);
+        assertThat(writeConcerns.resolve(action("movement_day_buckets_archive", null)))
+                .isEqualTo(WriteConcern.MAJORITY);
+    }
+
+    @Test
+    void unknownWriteConcernIsRejectedTest() {
+        assertThatThrownBy(() -> new OperationWriteConcerns("EVERYONE", "W1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MongoAction action(String collection, Class<?> entityType) {
+        return new MongoAction(null, MongoActionOperation.INSERT, collection, entityType, new Document(), null);
+    }
+}
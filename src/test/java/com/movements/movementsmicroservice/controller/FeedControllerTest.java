@@ -0,0 +1,57 @@
+package com.movements.movementsmicroservice.controller;
+
+import com.movements.movementsmicroservice.DTO.FeedEventDto;
+import com.movements.movementsmicroservice.DTO.FeedFilterDto;
+import com.movements.movementsmicroservice.model.Payment;
+import com.movements.movementsmicroservice.service.FeedService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(FeedController.class)
+class FeedControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private FeedService feedService;
+
+    @Test
+    @DisplayName("Stream the feed as NDJSON resuming after the given token")
+    void streamEventsAsNdjsonTest() {
+        Payment payment = new Payment();
+        payment.setId("PAY001");
+        payment.setIdProductCredit("CREDIT001");
+        when(feedService.watch(any(FeedFilterDto.class), eq("TOKEN0")))
+                .thenReturn(Flux.just(new FeedEventDto("payment", "TOKEN1", payment)));
+
+        webTestClient.get()
+                .uri("/movements/feed?idProductCredit=CREDIT001&type=payment&resumeAfter=TOKEN0")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(FeedEventDto.class)
+                .value(events -> assertThat(events).extracting(FeedEventDto::getResumeToken)
+                        .containsExactly("TOKEN1"));
+
+        ArgumentCaptor<FeedFilterDto> filter = ArgumentCaptor.forClass(FeedFilterDto.class);
+        verify(feedService).watch(filter.capture(), eq("TOKEN0"));
+        assertThat(filter.getValue().getIdProductCredits()).isEqualTo(List.of("CREDIT001"));
+        assertThat(filter.getValue().getTypes()).isEqualTo(List.of("payment"));
+    }
+}
@@ -1,7 +1,9 @@
 package com.movements.movementsmicroservice.controller;
 
 import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.service.DailyBalanceService;
 import com.movements.movementsmicroservice.service.MovementService;
+import com.movements.movementsmicroservice.service.StatementService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +28,12 @@ class MovementControllerTest {
     @MockBean
     private MovementService movementService;
 
+    @MockBean
+    private StatementService statementService;
+
+    @MockBean
+    private DailyBalanceService dailyBalanceService;
+
     @Test
     @DisplayName("Update controller test")
     void updateTest() {
@@ -65,4 +73,14 @@ class MovementControllerTest {
                 .jsonPath("$.bankAccounts").isArray();
 
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("A month out of the yyyy-MM format is a bad request")
+    void getDailyAverageWithMalformedMonthTest() {
+        webTestClient.get().uri("/movements/daily-average/{idBankAccount}?month={month}", "IDbank001", "2024-13")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.code").isEqualTo("INVALID_REQUEST");
+    }
+}
@@ -0,0 +1,58 @@
+package com.movements.movementsmicroservice.exceptions.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.movements.movementsmicroservice.exceptions.InsufficientBalance;
+import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExceptionHandlersTest {
+
+    private final ExceptionHandlers exceptionHandlers = new ExceptionHandlers(new ObjectMapper(), 16);
+
+    @Test
+    @DisplayName("Business rejections are stackless and map their code to the status")
+    void businessRejectionTest() {
+        InsufficientBalance rejection = new InsufficientBalance("Insufficient balance");
+
+        ResponseEntity<byte[]> response = exceptionHandlers.handleBusinessExceptions(rejection).block();
+
+        assertThat(rejection.getStackTrace()).isEmpty();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(new String(response.getBody(), StandardCharsets.UTF_8))
+                .contains("\"code\":\"INSUFFICIENT_BALANCE\"", "\"message\":\"Insufficient balance\"");
+    }
+
+    @Test
+    @DisplayName("The body of a repeated rejection is serialized only once")
+    void cachedBodyTest() {
+        byte[] first = exceptionHandlers.handleBusinessExceptions(
+                new ResourceNotFoundException("Movement not found.")).block().getBody();
+        byte[] second = exceptionHandlers.handleBusinessExceptions(
+                new ResourceNotFoundException("Movement not found.")).block().getBody();
+
+        assertThat(second).isSameAs(first);
+        assertThat(exceptionHandlers.handleExceptions(new IllegalStateException("x")).block().getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    @DisplayName("A message formatted with values of the request is not cached")
+    void formattedMessageIsNotCachedTest() {
+        ResourceNotFoundException rejection = new ResourceNotFoundException("The movement with id: %s doesn't exist!",
+                "MOV1");
+        byte[] first = exceptionHandlers.handleBusinessExceptions(rejection).block().getBody();
+        byte[] second = exceptionHandlers.handleBusinessExceptions(rejection).block().getBody();
+
+        assertThat(rejection.hasFixedMessage()).isFalse();
+        assertThat(second).isNotSameAs(first).isEqualTo(first);
+        assertThat(new String(first, StandardCharsets.UTF_8))
+                .contains("\"message\":\"The movement with id: MOV1 doesn't exist!\"");
+    }
+}
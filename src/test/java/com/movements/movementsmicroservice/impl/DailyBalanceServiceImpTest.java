@@ -0,0 +1,117 @@
+package com.movements.movementsmicroservice.impl;
+
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.client.BankAccountService;
+import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
+import com.movements.movementsmicroservice.model.DailyBalanceSeries;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.repository.DailyBalanceSeriesRepository;
+import com.movements.movementsmicroservice.repository.MovementRepository;
+import com.movements.movementsmicroservice.service.StatementService;
+import com.movements.movementsmicroservice.service.impl.DailyBalanceServiceImp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.DEPOSIT;
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.WITHDRAWAL_DEBIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DailyBalanceServiceImpTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private DailyBalanceSeriesRepository dailyBalanceSeriesRepository;
+    @Mock
+    private MovementRepository movementRepository;
+    @Mock
+    private StatementService statementService;
+    @Mock
+    private BankAccountService bankAccountService;
+
+    private DailyBalanceServiceImp dailyBalanceService;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2024-03-05T10:00:00Z"), ZoneOffset.UTC);
+        dailyBalanceService = new DailyBalanceServiceImp(mongoTemplate, dailyBalanceSeriesRepository,
+                movementRepository, statementService, bankAccountService, clock);
+    }
+
+    @Test
+    @DisplayName("Days without movements keep the balance of the day before")
+    void dailyAverageOfPresentMonthTest() {
+        DailyBalanceSeries series = new DailyBalanceSeries();
+        series.setOpeningBalance(100.0);
+        series.getClosingByDay().put("3", 200.0);
+        when(dailyBalanceSeriesRepository.findById("IDbank001:2024-03")).thenReturn(Mono.just(series));
+
+        StepVerifier.create(dailyBalanceService.getDailyAverage("IDbank001", null))
+                .assertNext(average -> {
+                    assertThat(average.getDays()).isEqualTo(5);
+                    assertThat(average.getAverageDailyBalance()).isEqualTo(160.0);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Without a statement the opening balance is the present balance less what moved since")
+    void dailyAverageOfHistoryOlderThanTheStatementsTest() {
+        YearMonth february = YearMonth.of(2024, 2);
+        LocalDateTime from = february.atDay(1).atStartOfDay().minusNanos(1);
+        BankAccountDto account = new BankAccountDto();
+        account.setBalance(300.0);
+        Movement deposit = movement(DEPOSIT, 100.0, LocalDateTime.of(2024, 2, 10, 9, 0));
+        Movement withdrawal = movement(WITHDRAWAL_DEBIT, 50.0, LocalDateTime.of(2024, 3, 2, 9, 0));
+        when(dailyBalanceSeriesRepository.findById("IDbank001:2024-02")).thenReturn(Mono.empty());
+        when(statementService.findStatements("IDbank001", february, february)).thenReturn(Flux.empty());
+        when(bankAccountService.findById("IDbank001")).thenReturn(Mono.just(account));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween("IDbank001", from,
+                LocalDateTime.of(2024, 3, 6, 10, 0))).thenReturn(Flux.just(deposit, withdrawal));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween("IDbank001", from,
+                LocalDateTime.of(2024, 3, 1, 0, 0))).thenReturn(Flux.just(deposit));
+        when(dailyBalanceSeriesRepository.insert(any(DailyBalanceSeries.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(dailyBalanceService.getDailyAverage("IDbank001", february))
+                .assertNext(average -> {
+                    assertThat(average.getDays()).isEqualTo(29);
+                    assertThat(average.getAverageDailyBalance()).isEqualTo((9 * 250.0 + 20 * 350.0) / 29);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A month after the present one has no balances")
+    void dailyAverageOfFutureMonthTest() {
+        StepVerifier.create(dailyBalanceService.getDailyAverage("IDbank001", YearMonth.of(2024, 4)))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+    }
+
+    private Movement movement(Movement.TypeMovement type, Double amount, LocalDateTime date) {
+        Movement movement = new Movement();
+        movement.setIdBankAccount("IDbank001");
+        movement.setTypeMovement(type);
+        movement.setAmount(amount);
+        movement.setDate(date);
+        return movement;
+    }
+}
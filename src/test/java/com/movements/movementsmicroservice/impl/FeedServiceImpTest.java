@@ -0,0 +1,143 @@
+package com.movements.movementsmicroservice.impl;
+
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.DTO.FeedFilterDto;
+import com.movements.movementsmicroservice.client.BankAccountService;
+import com.movements.movementsmicroservice.client.CreditCardService;
+import com.movements.movementsmicroservice.client.CreditService;
+import com.movements.movementsmicroservice.exceptions.InvalidRequestException;
+import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
+import com.movements.movementsmicroservice.service.impl.FeedServiceImp;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FeedServiceImpTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private BankAccountService bankAccountService;
+    @Mock
+    private CreditService creditService;
+    @Mock
+    private CreditCardService creditCardService;
+
+    @Test
+    @DisplayName("A client without products is rejected instead of opening an unfiltered feed")
+    void watchClientWithoutProductsTest() {
+        FeedServiceImp feedService = new FeedServiceImp(mongoTemplate, bankAccountService, creditService,
+                creditCardService, false);
+        when(bankAccountService.findBankAccountsByIdClientWithAllMovementsSortedByDate(anyString()))
+                .thenReturn(Flux.empty());
+        when(creditService.allCreditsByIdClientWithAllPaymentsSortedByDatePayment(anyString()))
+                .thenReturn(Flux.empty());
+        when(creditCardService.allCreditCardsByIdClientWithPaymentAndConsumption(anyString()))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(feedService.watch(filterOfClient("clientN001"), null))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        verify(mongoTemplate, never()).changeStream(any(), any(), any(ChangeStreamOptions.class), any());
+    }
+
+    @Test
+    @DisplayName("The feed of a client is matched on the products of the client")
+    void watchClientWithProductsTest() {
+        FeedServiceImp feedService = new FeedServiceImp(mongoTemplate, bankAccountService, creditService,
+                creditCardService, true);
+        BankAccountDto bankAccount = new BankAccountDto();
+        bankAccount.setId("IDbank001");
+        when(bankAccountService.findBankAccountsByIdClientWithAllMovementsSortedByDate("clientN001"))
+                .thenReturn(Flux.just(bankAccount));
+        when(creditService.allCreditsByIdClientWithAllPaymentsSortedByDatePayment("clientN001"))
+                .thenReturn(Flux.empty());
+        when(creditCardService.allCreditCardsByIdClientWithPaymentAndConsumption("clientN001"))
+                .thenReturn(Flux.empty());
+        when(mongoTemplate.changeStream(isNull(), isNull(), any(ChangeStreamOptions.class), eq(Document.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(feedService.watch(filterOfClient("clientN001"), null))
+                .verifyComplete();
+
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        verify(mongoTemplate).changeStream(isNull(), isNull(), options.capture(), eq(Document.class));
+        assertThat(options.getValue().getFilter().orElseThrow().toString()).contains("$and").contains("IDbank001");
+    }
+
+    @Test
+    @DisplayName("A product of another client is rejected instead of being added to the feed of the client")
+    void watchClientWithProductOfAnotherClientTest() {
+        FeedServiceImp feedService = new FeedServiceImp(mongoTemplate, bankAccountService, creditService,
+                creditCardService, false);
+        BankAccountDto bankAccount = new BankAccountDto();
+        bankAccount.setId("IDbank001");
+        when(bankAccountService.findBankAccountsByIdClientWithAllMovementsSortedByDate("clientN001"))
+                .thenReturn(Flux.just(bankAccount));
+        when(creditService.allCreditsByIdClientWithAllPaymentsSortedByDatePayment("clientN001"))
+                .thenReturn(Flux.empty());
+        when(creditCardService.allCreditCardsByIdClientWithPaymentAndConsumption("clientN001"))
+                .thenReturn(Flux.empty());
+        FeedFilterDto filter = filterOfClient("clientN001");
+        filter.setIdBankAccounts(List.of("IDbank999"));
+
+        StepVerifier.create(feedService.watch(filter, null))
+                .expectError(InvalidRequestException.class)
+                .verify();
+        verify(mongoTemplate, never()).changeStream(any(), any(), any(ChangeStreamOptions.class), any());
+    }
+
+    @Test
+    @DisplayName("An explicit product of the client narrows the feed to that product")
+    void watchClientNarrowedToOneProductTest() {
+        FeedServiceImp feedService = new FeedServiceImp(mongoTemplate, bankAccountService, creditService,
+                creditCardService, true);
+        BankAccountDto bankAccount = new BankAccountDto();
+        bankAccount.setId("IDbank001");
+        BankAccountDto otherAccount = new BankAccountDto();
+        otherAccount.setId("IDbank002");
+        when(bankAccountService.findBankAccountsByIdClientWithAllMovementsSortedByDate("clientN001"))
+                .thenReturn(Flux.just(bankAccount, otherAccount));
+        when(creditService.allCreditsByIdClientWithAllPaymentsSortedByDatePayment("clientN001"))
+                .thenReturn(Flux.empty());
+        when(creditCardService.allCreditCardsByIdClientWithPaymentAndConsumption("clientN001"))
+                .thenReturn(Flux.empty());
+        when(mongoTemplate.changeStream(isNull(), isNull(), any(ChangeStreamOptions.class), eq(Document.class)))
+                .thenReturn(Flux.empty());
+        FeedFilterDto filter = filterOfClient("clientN001");
+        filter.setIdBankAccounts(List.of("IDbank002"));
+
+        StepVerifier.create(feedService.watch(filter, null))
+                .verifyComplete();
+
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        verify(mongoTemplate).changeStream(isNull(), isNull(), options.capture(), eq(Document.class));
+        assertThat(options.getValue().getFilter().orElseThrow().toString())
+                .contains("IDbank002").doesNotContain("IDbank001");
+    }
+
+    private FeedFilterDto filterOfClient(String idClient) {
+        return new FeedFilterDto(idClient, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), List.of());
+    }
+}
@@ -2,26 +2,36 @@ package com.movements.movementsmicroservice.impl;
 
 import com.movements.movementsmicroservice.DTO.BankAccountDto;
 import com.movements.movementsmicroservice.DTO.ClientDto;
-import com.movements.movementsmicroservice.DTO.DebitCardDto;
+import com.movements.movementsmicroservice.DTO.DebitCardSummaryDto;
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
 import com.movements.movementsmicroservice.client.BankAccountService;
 import com.movements.movementsmicroservice.client.CreditCardService;
 import com.movements.movementsmicroservice.client.CreditService;
-import com.movements.movementsmicroservice.client.DebitCardService;
 import com.movements.movementsmicroservice.exceptions.InsufficientBalance;
 import com.movements.movementsmicroservice.exceptions.LimitMovementsExceeded;
 import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
+import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
 import com.movements.movementsmicroservice.exceptions.UnsupportedMovementException;
 import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.repository.LedgerTransactions;
 import com.movements.movementsmicroservice.repository.MovementRepository;
+import com.movements.movementsmicroservice.service.DailyBalanceService;
 import com.movements.movementsmicroservice.service.PaymentMovementService;
+import com.movements.movementsmicroservice.service.StatementService;
 import com.movements.movementsmicroservice.service.impl.MovementServiceImp;
+import com.movements.movementsmicroservice.validation.AccountMetadataCache;
+import com.movements.movementsmicroservice.validation.MovementPreValidations;
+import com.movements.movementsmicroservice.validation.PreValidationStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -49,10 +59,19 @@ class MovementServiceImpTest {
     @Mock
     private MovementRepository movementRepository;
     @Mock
-    private DebitCardService debitCardService;
-    @Mock
     private PaymentMovementService paymentMovementService;
     @Mock
+    private StatementService statementService;
+    @Mock
+    private DailyBalanceService dailyBalanceService;
+    @Spy
+    private AccountMetadataCache accountMetadataCache = new AccountMetadataCache(100, 60);
+    @Spy
+    private MovementPreValidations movementPreValidations = new MovementPreValidations(
+            new PreValidationStage(new SimpleMeterRegistry()), accountMetadataCache, Clock.systemUTC(), 1_000_000);
+    @Spy
+    private LedgerTransactions ledgerTransactions = new LedgerTransactions(null, false, 3);
+    @Mock
     private Clock clock;
     private Movement movement1, movement2;
     private BankAccountDto bankAccount1, bankAccount2, bankAccount3;
@@ -60,6 +79,10 @@ class MovementServiceImpTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(statementService.recordMovement(any(), any())).thenReturn(Mono.empty());
+        lenient().when(statementService.invalidate(any(), any())).thenReturn(Mono.empty());
+        lenient().when(dailyBalanceService.recordMovement(any(), any())).thenReturn(Mono.empty());
+        lenient().when(dailyBalanceService.invalidate(any(), any())).thenReturn(Mono.empty());
         movement1 = new Movement();
         movement1.setId("IDMOVEMENT01");
         movement1.setIdBankAccount("IDbank001");
@@ -189,8 +212,13 @@ class MovementServiceImpTest {
     @DisplayName("Create a Movement in fixed term account when the date is correct")
     void createFixedTermMovementIncorrectDayTest() {
         String idBankAccount = "IDbank003";
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
         movement1.setIdBankAccount(idBankAccount);
-        int numberDayCorrect = LocalDate.now().getDayOfMonth();
+        int numberDayCorrect = LocalDate.now(clock).getDayOfMonth();
         bankAccount3.setExpirationDate(numberDayCorrect);
         // Given
         when(movementRepository
@@ -284,8 +312,13 @@ class MovementServiceImpTest {
     @DisplayName("Create a Movement in fixed term account when that has already movements")
     void createFixedTermMovementExceededTest() {
         String idBankAccount = "IDbank003";
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
         movement1.setIdBankAccount(idBankAccount);
-        int numberDayCorrect = LocalDate.now().getDayOfMonth();
+        int numberDayCorrect = LocalDate.now(clock).getDayOfMonth();
         bankAccount3.setExpirationDate(numberDayCorrect);
         // Given
         when(bankAccountService.findById(idBankAccount)).thenReturn(Mono.just(bankAccount3));
@@ -331,27 +364,15 @@ class MovementServiceImpTest {
     @Test
     @DisplayName("Create a Movement unsupported")
     void createUnsupportedMovementTest() {
-        String idBankAccount = "IDbank001";
-        ZoneId zone = ZoneId.of("UTC");
-        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
-        Clock fixedClock = Clock.fixed(instant, zone);
-        when(clock.instant()).thenReturn(fixedClock.instant());
-        when(clock.getZone()).thenReturn(fixedClock.getZone());
-        movement2.setIdBankAccount(idBankAccount);
+        movement2.setIdBankAccount("IDbank001");
         movement2.setTypeMovement(Movement.TypeMovement.UNSUPPORTED);
-        // Given
-        when(bankAccountService.findById(movement2.getIdBankAccount())).thenReturn(Mono.just(bankAccount1));
-        when(movementRepository
-                .findAllByIdBankAccountAndDateBetween(
-                        eq(idBankAccount), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Flux.empty());
         // When
         Mono<Movement> movementMono = movementService.create(movement2);
         // Then
         StepVerifier.create(movementMono)
                 .expectError(UnsupportedMovementException.class)
                 .verify();
-        verify(bankAccountService).findById(idBankAccount);
+        verifyNoInteractions(bankAccountService, movementRepository);
     }
 
     @Test
@@ -476,7 +497,8 @@ class MovementServiceImpTest {
         // Search movements
         when(movementRepository.findAllByIdBankAccountAndDateBetween(eq(bankAccount1.getId()), any(), any()))
                 .thenReturn(Flux.empty());
-        when(movementRepository.save(any(Movement.class))).thenReturn(Mono.just(transfer));
+        when(movementRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Movement>>getArgument(0)));
         when(bankAccountService.update(bankAccount1.getId(), bankAccount1)).thenReturn(Mono.just(bankAccount1));
         when(bankAccountService.update(bankAccount2.getId(), bankAccount2)).thenReturn(Mono.just(bankAccount2));
 
@@ -515,7 +537,8 @@ class MovementServiceImpTest {
         // Search movements
         when(movementRepository.findAllByIdBankAccountAndDateBetween(eq(bankAccount1.getId()), any(), any()))
                 .thenReturn(Flux.just(movement1, movement1));
-        when(movementRepository.save(any(Movement.class))).thenReturn(Mono.just(transfer));
+        when(movementRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Movement>>getArgument(0)));
         when(bankAccountService.update(bankAccount1.getId(), bankAccount1)).thenReturn(Mono.just(bankAccount1));
         when(bankAccountService.update(bankAccount2.getId(), bankAccount2)).thenReturn(Mono.just(bankAccount2));
 
@@ -532,6 +555,96 @@ class MovementServiceImpTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("A transfer without enough balance writes neither the accounts nor the movements")
+    void createMovementTransferWithInsufficientBalanceTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+        Movement transfer = new Movement();
+        transfer.setIdBankAccount(bankAccount1.getId());
+        transfer.setIdBankAccountTransfer(bankAccount2.getId());
+        transfer.setAmount(5000.0);
+        transfer.setTypeMovement(TRANSFER);
+        transfer.setDescription("Movement Transfer");
+        when(bankAccountService.findById(transfer.getIdBankAccount())).thenReturn(Mono.just(bankAccount1));
+        when(bankAccountService.findById(transfer.getIdBankAccountTransfer())).thenReturn(Mono.just(bankAccount2));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(eq(bankAccount1.getId()), any(), any()))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(movementService.create(transfer))
+                .expectError(InsufficientBalance.class)
+                .verify();
+        verify(bankAccountService, never()).update(any(), any());
+        verify(movementRepository, never()).saveAll(anyList());
+        verify(movementRepository, never()).save(any(Movement.class));
+    }
+
+    @Test
+    @DisplayName("A transfer whose destination update fails gives the amount back to the origin account")
+    void createMovementTransferWithFailedDestinationUpdateTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+        Movement transfer = new Movement();
+        transfer.setIdBankAccount(bankAccount1.getId());
+        transfer.setIdBankAccountTransfer(bankAccount2.getId());
+        transfer.setAmount(100.0);
+        transfer.setTypeMovement(TRANSFER);
+        transfer.setDescription("Movement Transfer");
+        when(bankAccountService.findById(transfer.getIdBankAccount())).thenReturn(Mono.just(bankAccount1));
+        when(bankAccountService.findById(transfer.getIdBankAccountTransfer())).thenReturn(Mono.just(bankAccount2));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(eq(bankAccount1.getId()), any(), any()))
+                .thenReturn(Flux.empty());
+        when(bankAccountService.update(eq(bankAccount1.getId()), any(BankAccountDto.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        when(bankAccountService.update(eq(bankAccount2.getId()), any(BankAccountDto.class)))
+                .thenReturn(Mono.error(new ServiceNotAvailableException("Service of Bank accounts is not working")));
+
+        StepVerifier.create(movementService.create(transfer))
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        assertThat(bankAccount1.getBalance()).isEqualTo(1500.0);
+        verify(bankAccountService, times(2)).update(eq(bankAccount1.getId()), any(BankAccountDto.class));
+        verify(movementRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("A transfer whose movements cannot be committed gives back both balances")
+    void createMovementTransferWithFailedCommitTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+        Movement transfer = new Movement();
+        transfer.setIdBankAccount(bankAccount1.getId());
+        transfer.setIdBankAccountTransfer(bankAccount2.getId());
+        transfer.setAmount(100.0);
+        transfer.setTypeMovement(TRANSFER);
+        transfer.setDescription("Movement Transfer");
+        when(bankAccountService.findById(transfer.getIdBankAccount())).thenReturn(Mono.just(bankAccount1));
+        when(bankAccountService.findById(transfer.getIdBankAccountTransfer())).thenReturn(Mono.just(bankAccount2));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(eq(bankAccount1.getId()), any(), any()))
+                .thenReturn(Flux.empty());
+        when(bankAccountService.update(anyString(), any(BankAccountDto.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        when(movementRepository.saveAll(anyList()))
+                .thenReturn(Flux.error(new DataAccessResourceFailureException("Write conflict")));
+
+        StepVerifier.create(movementService.create(transfer))
+                .expectError(DataAccessResourceFailureException.class)
+                .verify();
+        assertThat(bankAccount1.getBalance()).isEqualTo(1500.0);
+        assertThat(bankAccount2.getBalance()).isEqualTo(1200.0);
+        verify(bankAccountService, times(4)).update(anyString(), any(BankAccountDto.class));
+        verify(statementService, never()).recordMovement(any(), any());
+    }
+
     @Test
     @DisplayName("Update a movement with different type")
     void updateMovementWithDifferentType() {
@@ -622,13 +735,13 @@ class MovementServiceImpTest {
         // Given
         String idMovement = "IDMOVEMENT01";
         when(movementRepository.findById(anyString())).thenReturn(Mono.empty());
-        when(movementRepository.deleteById(idMovement)).thenReturn(Mono.empty());
         // When
         Mono<Void> movementDeleted = movementService.deleteById(idMovement);
         // Then
         StepVerifier.create(movementDeleted)
                 .expectError(ResourceNotFoundException.class)
                 .verify();
+        verify(movementRepository, never()).deleteById(idMovement);
     }
 
     @Test
@@ -656,7 +769,7 @@ class MovementServiceImpTest {
         when(clock.instant()).thenReturn(fixedClock.instant());
         when(clock.getZone()).thenReturn(fixedClock.getZone());
 
-        DebitCardDto debitCard1 = new DebitCardDto();
+        DebitCardSummaryDto debitCard1 = new DebitCardSummaryDto();
         debitCard1.setId("DEBITCARD001");
         debitCard1.setIdClient("clientN001");
         debitCard1.setIdPrincipalAccount(bankAccount1.getId());
@@ -669,10 +782,10 @@ class MovementServiceImpTest {
         when(movementRepository.save(any(Movement.class))).thenReturn(Mono.just(movement2));
         when(movementRepository.findAllByIdBankAccountAndDateBetween(anyString(), any(), any()))
                 .thenReturn(Flux.just(movement1, movement2));
-        when(debitCardService.findByIdWithBankAccountsOrderByCreatedAt(debitCard1.getId()))
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
                 .thenReturn(Mono.just(debitCard1));
-        when(paymentMovementService.getBankAccountWithBalanceAvailableForPay(debitCard1, movement2.getAmount()))
-                .thenReturn(Mono.just(bankAccount1));
+        when(paymentMovementService.getFundingSourcesForPay(debitCard1, movement2.getAmount()))
+                .thenReturn(Mono.just(List.of(new FundingSourceDto(bankAccount1.getId(), movement2.getAmount()))));
         // When
         Mono<Movement> movementMono = movementService.create(movement2);
         // Then
@@ -684,6 +797,132 @@ class MovementServiceImpTest {
                 .verifyComplete();
         verify(bankAccountService).update(idBankAccount, bankAccount2);
         verify(movementRepository).save(movement2);
+        verify(paymentMovementService).evictDebitCardSummary(debitCard1.getId());
+    }
+
+    @Test
+    @DisplayName("Create a Movement type withdrawal debit card split between two accounts")
+    void createWithdrawalDebitCardSplitMovementTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+
+        DebitCardSummaryDto debitCard1 = new DebitCardSummaryDto();
+        debitCard1.setId("DEBITCARD001");
+        debitCard1.setIdPrincipalAccount(bankAccount2.getId());
+        movement2.setTypeMovement(WITHDRAWAL_DEBIT);
+        movement2.setIdBankAccount(debitCard1.getId());
+        movement2.setAmount(1300.0);
+        // Given
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
+                .thenReturn(Mono.just(debitCard1));
+        when(paymentMovementService.getFundingSourcesForPay(debitCard1, 1300.0))
+                .thenReturn(Mono.just(List.of(
+                        new FundingSourceDto(bankAccount2.getId(), 1200.0),
+                        new FundingSourceDto(bankAccount1.getId(), 100.0))));
+        when(bankAccountService.findById(bankAccount2.getId())).thenReturn(Mono.just(bankAccount2));
+        when(bankAccountService.findById(bankAccount1.getId())).thenReturn(Mono.just(bankAccount1));
+        when(bankAccountService.update(anyString(), any(BankAccountDto.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(anyString(), any(), any()))
+                .thenReturn(Flux.empty());
+        when(movementRepository.save(any(Movement.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        // When
+        Mono<Movement> movementMono = movementService.create(movement2);
+        // Then
+        StepVerifier.create(movementMono)
+                .assertNext(element -> {
+                    assertThat(element.getIdBankAccount()).isEqualTo(bankAccount2.getId());
+                    assertThat(element.getAmount()).isEqualTo(1200.0);
+                    assertThat(element.getIdTransfer()).isNotEmpty();
+                })
+                .verifyComplete();
+        assertThat(bankAccount2.getBalance()).isEqualTo(0.0);
+        assertThat(bankAccount1.getBalance()).isEqualTo(1400.0);
+        verify(movementRepository, times(2)).save(any(Movement.class));
+    }
+
+    @Test
+    @DisplayName("A split withdrawal with a leg that cannot be covered writes none of the accounts")
+    void createWithdrawalDebitCardSplitWithUncoveredLegTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+
+        DebitCardSummaryDto debitCard1 = new DebitCardSummaryDto();
+        debitCard1.setId("DEBITCARD001");
+        debitCard1.setIdPrincipalAccount(bankAccount2.getId());
+        movement2.setTypeMovement(WITHDRAWAL_DEBIT);
+        movement2.setIdBankAccount(debitCard1.getId());
+        movement2.setAmount(1300.0);
+        bankAccount1.setBalance(50.0);
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
+                .thenReturn(Mono.just(debitCard1));
+        when(paymentMovementService.getFundingSourcesForPay(debitCard1, 1300.0))
+                .thenReturn(Mono.just(List.of(
+                        new FundingSourceDto(bankAccount2.getId(), 1200.0),
+                        new FundingSourceDto(bankAccount1.getId(), 100.0))));
+        when(bankAccountService.findById(bankAccount2.getId())).thenReturn(Mono.just(bankAccount2));
+        when(bankAccountService.findById(bankAccount1.getId())).thenReturn(Mono.just(bankAccount1));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(anyString(), any(), any()))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(movementService.create(movement2))
+                .expectError(InsufficientBalance.class)
+                .verify();
+        verify(bankAccountService, never()).update(anyString(), any(BankAccountDto.class));
+        verify(movementRepository, never()).save(any(Movement.class));
+        verify(paymentMovementService, never()).evictDebitCardSummary(anyString());
+    }
+
+    @Test
+    @DisplayName("A split withdrawal whose second leg fails reverses the first leg")
+    void createWithdrawalDebitCardSplitWithFailedLegTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+
+        DebitCardSummaryDto debitCard1 = new DebitCardSummaryDto();
+        debitCard1.setId("DEBITCARD001");
+        debitCard1.setIdPrincipalAccount(bankAccount2.getId());
+        movement2.setTypeMovement(WITHDRAWAL_DEBIT);
+        movement2.setIdBankAccount(debitCard1.getId());
+        movement2.setAmount(1300.0);
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
+                .thenReturn(Mono.just(debitCard1));
+        when(paymentMovementService.getFundingSourcesForPay(debitCard1, 1300.0))
+                .thenReturn(Mono.just(List.of(
+                        new FundingSourceDto(bankAccount2.getId(), 1200.0),
+                        new FundingSourceDto(bankAccount1.getId(), 100.0))));
+        when(bankAccountService.findById(bankAccount2.getId())).thenReturn(Mono.just(bankAccount2));
+        when(bankAccountService.findById(bankAccount1.getId())).thenReturn(Mono.just(bankAccount1));
+        when(bankAccountService.update(anyString(), any(BankAccountDto.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(anyString(), any(), any()))
+                .thenReturn(Flux.empty());
+        when(movementRepository.save(any(Movement.class)))
+                .thenAnswer(invocation -> {
+                    Movement saved = invocation.getArgument(0);
+                    saved.setId("IDMOVEMENT10");
+                    return Mono.just(saved);
+                })
+                .thenReturn(Mono.error(new DataAccessResourceFailureException("Mongo is not available")));
+        when(movementRepository.deleteById("IDMOVEMENT10")).thenReturn(Mono.empty());
+
+        StepVerifier.create(movementService.create(movement2))
+                .expectError(DataAccessResourceFailureException.class)
+                .verify();
+        assertThat(bankAccount2.getBalance()).isEqualTo(1200.0);
+        assertThat(bankAccount1.getBalance()).isEqualTo(1500.0);
+        verify(movementRepository).deleteById("IDMOVEMENT10");
+        verify(dailyBalanceService).invalidate(eq(bankAccount2.getId()), any());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.movements.movementsmicroservice.impl;
+
+import com.movements.movementsmicroservice.DTO.BankAccountBalanceDto;
+import com.movements.movementsmicroservice.DTO.DebitCardSummaryDto;
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
+import com.movements.movementsmicroservice.client.DebitCardService;
+import com.movements.movementsmicroservice.exceptions.InvalidPayException;
+import com.movements.movementsmicroservice.service.impl.PaymentMovementServiceImp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentMovementServiceImpTest {
+
+    @Mock
+    private DebitCardService debitCardService;
+
+    private PaymentMovementServiceImp paymentMovementService;
+    private DebitCardSummaryDto debitCard;
+
+    @BeforeEach
+    void setUp() {
+        paymentMovementService = new PaymentMovementServiceImp(debitCardService, 5000, 100);
+        debitCard = new DebitCardSummaryDto();
+        debitCard.setId("IDdebit001");
+        debitCard.setIdPrincipalAccount("IDbank001");
+    }
+
+    @Test
+    @DisplayName("A split leaves room for the commission of each account")
+    void splitReservesTheCommissionOfEachLegTest() {
+        debitCard.setBankAccounts(List.of(
+                new BankAccountBalanceDto("IDbank001", 100.0, true, 0.1),
+                new BankAccountBalanceDto("IDbank002", 100.0, false, 0.0)));
+
+        StepVerifier.create(paymentMovementService.getFundingSourcesForPay(debitCard, 150.0))
+                .assertNext(sources -> assertThat(sources)
+                        .extracting(FundingSourceDto::getIdBankAccount, FundingSourceDto::getAmount)
+                        .containsExactly(
+                                tuple("IDbank001", 90.9),
+                                tuple("IDbank002", 59.1)))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A split that only fits without the commissions is refused before any withdrawal")
+    void splitWithoutRoomForTheCommissionsTest() {
+        debitCard.setBankAccounts(List.of(
+                new BankAccountBalanceDto("IDbank001", 100.0, true, 0.1),
+                new BankAccountBalanceDto("IDbank002", 50.0, false, 0.0)));
+
+        StepVerifier.create(paymentMovementService.getFundingSourcesForPay(debitCard, 145.0))
+                .expectError(InvalidPayException.class)
+                .verify();
+    }
+}
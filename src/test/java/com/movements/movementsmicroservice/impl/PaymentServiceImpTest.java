@@ -4,22 +4,27 @@ import com.movements.movementsmicroservice.DTO.*;
 import com.movements.movementsmicroservice.client.ClientService;
 import com.movements.movementsmicroservice.client.CreditCardService;
 import com.movements.movementsmicroservice.client.CreditService;
-import com.movements.movementsmicroservice.client.DebitCardService;
 import com.movements.movementsmicroservice.exceptions.InvalidPayException;
 import com.movements.movementsmicroservice.exceptions.ResourceNotFoundException;
+import com.movements.movementsmicroservice.exceptions.ServiceNotAvailableException;
 import com.movements.movementsmicroservice.model.Movement;
 import com.movements.movementsmicroservice.model.Payment;
 import com.movements.movementsmicroservice.repository.PaymentRepository;
 import com.movements.movementsmicroservice.service.MovementService;
 import com.movements.movementsmicroservice.service.PaymentMovementService;
 import com.movements.movementsmicroservice.service.impl.PaymentServiceImp;
+import com.movements.movementsmicroservice.validation.PaymentPreValidations;
+import com.movements.movementsmicroservice.validation.PreValidationStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -45,17 +50,18 @@ class PaymentServiceImpTest {
     @Mock
     private ClientService clientService;
     @Mock
-    private DebitCardService debitCardService;
-    @Mock
     private PaymentMovementService paymentMovementService;
     @Mock
     private MovementService movementService;
+    @Spy
+    private PaymentPreValidations paymentPreValidations =
+            new PaymentPreValidations(new PreValidationStage(new SimpleMeterRegistry()));
     private Payment payment1, payment2;
     private CreditDto credit1;
     private CreditCardDto creditCard1;
     private ClientDto personalClient, businessClient;
     private BankAccountDto bankAccount1, bankAccount2;
-    private DebitCardDto debitCard1;
+    private DebitCardSummaryDto debitCard1;
 
     @BeforeEach
     void setUp() {
@@ -86,7 +92,7 @@ class PaymentServiceImpTest {
                 Collections.emptyList());
         bankAccount2.setId("IDbank002");
 
-        debitCard1 = new DebitCardDto();
+        debitCard1 = new DebitCardSummaryDto();
         debitCard1.setId("DEBITCARD001");
         debitCard1.setIdClient("clientN001");
         debitCard1.setIdPrincipalAccount(bankAccount1.getId());
@@ -150,13 +156,14 @@ class PaymentServiceImpTest {
 
     @Test
     @DisplayName("Create a payment credit with pending balance is zero")
-    void createPaymentWithAmountZeroTest() {
+    void createPaymentWithPendingBalanceZeroTest() {
         payment1 = new Payment();
         payment1.setId("PAYMENT001");
         payment1.setIdProductCredit("CREDIT001");
         payment1.setTypeCreditProduct(Payment.TypeCreditProduct.CREDIT);
         payment1.setTypePayer(Payment.TypePayer.EXTERNAL);
         payment1.setIdPayer("");
+        payment1.setAmount(100.0);
         String creditId = credit1.getId();
         credit1.setPendingBalance(0.0);
         // Given
@@ -170,6 +177,25 @@ class PaymentServiceImpTest {
         verify(creditService).findById(creditId);
     }
 
+    @Test
+    @DisplayName("Reject a payment with amount zero before reading the credit")
+    void createPaymentWithAmountZeroTest() {
+        payment1 = new Payment();
+        payment1.setId("PAYMENT001");
+        payment1.setIdProductCredit("CREDIT001");
+        payment1.setTypeCreditProduct(Payment.TypeCreditProduct.CREDIT);
+        payment1.setTypePayer(Payment.TypePayer.EXTERNAL);
+        payment1.setIdPayer("");
+        payment1.setAmount(0.0);
+        // When
+        Mono<Payment> paymentMono = paymentService.create(payment1);
+        // Then
+        StepVerifier.create(paymentMono)
+                .expectError(InvalidPayException.class)
+                .verify();
+        verifyNoInteractions(creditService, paymentRepository);
+    }
+
     @Test
     @DisplayName("Create a payment credit with monthlyFee is different")
     void createPaymentCreditWithAmountDifferentTest() {
@@ -227,6 +253,11 @@ class PaymentServiceImpTest {
     @Test
     @DisplayName("Create a payment credit with existing pay")
     void createPaymentCreditWithExistingPayTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-04-02T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
         payment1 = new Payment();
         payment1.setId("PAYMENT001");
         payment1.setIdProductCredit("CREDIT001");
@@ -253,7 +284,7 @@ class PaymentServiceImpTest {
         paymentNew.setId("PAYMENT003");
         paymentNew.setIdProductCredit("CREDIT001");
         paymentNew.setTypeCreditProduct(Payment.TypeCreditProduct.CREDIT);
-        paymentNew.setDatePayment(LocalDateTime.of(2025, 4, 6, 5, 0));
+        paymentNew.setDatePayment(LocalDateTime.of(2025, 4, 2, 5, 0));
         paymentNew.setYearCorresponding(2025);
         paymentNew.setMonthCorresponding(4);
         paymentNew.setAmount(45.13);
@@ -264,6 +295,7 @@ class PaymentServiceImpTest {
         credit1.setPayments(List.of(payment1, payment2));
         // Given
         when(creditService.findById(creditId)).thenReturn(Mono.just(credit1));
+        when(paymentRepository.save(paymentNew)).thenReturn(Mono.error(new DuplicateKeyException("E11000")));
         // When
         Mono<Payment> paymentMono = paymentService.create(paymentNew);
         // Then
@@ -271,6 +303,7 @@ class PaymentServiceImpTest {
                 .expectError(InvalidPayException.class)
                 .verify();
         verify(creditService).findById(creditId);
+        verify(creditService, never()).update(anyString(), any());
     }
     @Test
     @DisplayName("Create a payment credit")
@@ -300,6 +333,34 @@ class PaymentServiceImpTest {
         verify(paymentRepository).save(payment1);
     }
 
+    @Test
+    @DisplayName("Create a payment credit when the credit update fails")
+    void createPaymentCreditReleasedWhenUpdateFailsTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-02-20T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+
+        credit1.setFirstDatePay(LocalDate.of(2025, 2, 21));
+        payment1.setAmount(45.13);
+        payment1.setDatePayment(LocalDateTime.now(clock));
+        String creditId = credit1.getId();
+        // Given
+        when(creditService.findById(creditId)).thenReturn(Mono.just(credit1));
+        when(paymentRepository.save(payment1)).thenReturn(Mono.just(payment1));
+        when(creditService.update(creditId, credit1))
+                .thenReturn(Mono.error(new ServiceNotAvailableException("")));
+        when(paymentRepository.delete(payment1)).thenReturn(Mono.empty());
+        // When
+        Mono<Payment> paymentMono = paymentService.create(payment1);
+        // Then
+        StepVerifier.create(paymentMono)
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        verify(paymentRepository).delete(payment1);
+    }
+
     @Test
     @DisplayName("Create a payment credit card")
     void createPaymentCreditCardTest() {
@@ -527,17 +588,20 @@ class PaymentServiceImpTest {
         withdrawal.setIdTransfer("");
         withdrawal.setIdBankAccountTransfer("");
         // Given
-        debitCard1.setBankAccounts(List.of(bankAccount1, bankAccount2));
+        debitCard1.setBankAccounts(List.of(
+                new BankAccountBalanceDto(bankAccount1.getId(), bankAccount1.getBalance(), true),
+                new BankAccountBalanceDto(bankAccount2.getId(), bankAccount2.getBalance(), false)));
 
 
         when(creditService.findById(credit1.getId())).thenReturn(Mono.just(credit1));
-        when(debitCardService.findByIdWithBankAccountsOrderByCreatedAt(debitCard1.getId()))
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
                 .thenReturn(Mono.just(debitCard1));
-        when(movementService.create(withdrawal)).thenReturn(Mono.just(withdrawal));
+        when(movementService.withdrawFromFundingSources(any(Movement.class), anyList()))
+                .thenReturn(Mono.just(List.of(withdrawal)));
         when(creditService.update(credit1.getId(), credit1)).thenReturn(Mono.just(credit1));
         when(paymentRepository.save((payment1))).thenReturn(Mono.just(payment1));
-        when(paymentMovementService.getBankAccountWithBalanceAvailableForPay(any(),eq(45.13)))
-                .thenReturn(Mono.just(bankAccount1));
+        when(paymentMovementService.getFundingSourcesForPay(any(), eq(45.13)))
+                .thenReturn(Mono.just(List.of(new FundingSourceDto(bankAccount1.getId(), 45.13))));
         // When
         Mono<Payment> payment = paymentService.create(payment1);
         // Then
@@ -576,17 +640,20 @@ class PaymentServiceImpTest {
         withdrawal.setIdTransfer("");
         withdrawal.setIdBankAccountTransfer("");
         // Given
-        debitCard1.setBankAccounts(List.of(bankAccount1, bankAccount2));
+        debitCard1.setBankAccounts(List.of(
+                new BankAccountBalanceDto(bankAccount1.getId(), bankAccount1.getBalance(), true),
+                new BankAccountBalanceDto(bankAccount2.getId(), bankAccount2.getBalance(), false)));
 
 
         when(creditCardService.findById(creditCard1.getId())).thenReturn(Mono.just(creditCard1));
-        when(debitCardService.findByIdWithBankAccountsOrderByCreatedAt(debitCard1.getId()))
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
                 .thenReturn(Mono.just(debitCard1));
-        when(movementService.create(withdrawal)).thenReturn(Mono.just(withdrawal));
+        when(movementService.withdrawFromFundingSources(any(Movement.class), anyList()))
+                .thenReturn(Mono.just(List.of(withdrawal)));
         when(creditCardService.update(creditCard1.getId(), creditCard1)).thenReturn(Mono.just(creditCard1));
         when(paymentRepository.save((payment1))).thenReturn(Mono.just(payment1));
-        when(paymentMovementService.getBankAccountWithBalanceAvailableForPay(any(),eq(500.0)))
-                .thenReturn(Mono.just(bankAccount1));
+        when(paymentMovementService.getFundingSourcesForPay(any(), eq(500.0)))
+                .thenReturn(Mono.just(List.of(new FundingSourceDto(bankAccount1.getId(), 500.0))));
         // When
         Mono<Payment> payment = paymentService.create(payment1);
         // Then
@@ -628,17 +695,20 @@ class PaymentServiceImpTest {
         debitCard1.setIdPrincipalAccount(bankAccount1.getId());
 
         // Given
-        debitCard1.setBankAccounts(List.of(bankAccount1, bankAccount2));
+        debitCard1.setBankAccounts(List.of(
+                new BankAccountBalanceDto(bankAccount1.getId(), bankAccount1.getBalance(), true),
+                new BankAccountBalanceDto(bankAccount2.getId(), bankAccount2.getBalance(), false)));
 
 
         when(creditCardService.findById(creditCard1.getId())).thenReturn(Mono.just(creditCard1));
-        when(debitCardService.findByIdWithBankAccountsOrderByCreatedAt(debitCard1.getId()))
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
                 .thenReturn(Mono.just(debitCard1));
-        when(movementService.create(withdrawal)).thenReturn(Mono.just(withdrawal));
+        when(movementService.withdrawFromFundingSources(any(Movement.class), anyList()))
+                .thenReturn(Mono.just(List.of(withdrawal)));
         when(creditCardService.update(creditCard1.getId(), creditCard1)).thenReturn(Mono.just(creditCard1));
         when(paymentRepository.save((payment1))).thenReturn(Mono.just(payment1));
-        when(paymentMovementService.getBankAccountWithBalanceAvailableForPay(any(),eq(500.0)))
-                .thenReturn(Mono.just(bankAccount2));
+        when(paymentMovementService.getFundingSourcesForPay(any(), eq(500.0)))
+                .thenReturn(Mono.just(List.of(new FundingSourceDto(bankAccount2.getId(), 500.0))));
         // When
         Mono<Payment> payment = paymentService.create(payment1);
         // Then
@@ -652,6 +722,118 @@ class PaymentServiceImpTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("Pay credit with a debit card when the credit update fails reverses the withdrawals")
+    void payCreditWithDebitCardWhenCreditUpdateFailsTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-05-02T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+
+        payment1.setTypePayer(Payment.TypePayer.DEBIT_CARD);
+        payment1.setIdPayer(debitCard1.getId());
+        payment1.setAmount(credit1.getMonthlyFee());
+        payment1.setDatePayment(LocalDateTime.now(clock));
+        payment1.setMonthCorresponding(5);
+        payment1.setYearCorresponding(2025);
+        List<Movement> withdrawals = List.of(new Movement());
+        // Given
+        when(creditService.findById(credit1.getId())).thenReturn(Mono.just(credit1));
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
+                .thenReturn(Mono.just(debitCard1));
+        when(paymentMovementService.getFundingSourcesForPay(any(), eq(45.13)))
+                .thenReturn(Mono.just(List.of(new FundingSourceDto(bankAccount1.getId(), 45.13))));
+        when(movementService.withdrawFromFundingSources(any(Movement.class), anyList()))
+                .thenReturn(Mono.just(withdrawals));
+        when(paymentRepository.save(payment1)).thenReturn(Mono.just(payment1));
+        when(creditService.update(credit1.getId(), credit1))
+                .thenReturn(Mono.error(new ServiceNotAvailableException("")));
+        when(movementService.reverseWithdrawals(withdrawals)).thenReturn(Mono.empty());
+        when(paymentRepository.delete(payment1)).thenReturn(Mono.empty());
+        // When
+        Mono<Payment> payment = paymentService.create(payment1);
+        // Then
+        StepVerifier.create(payment)
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        verify(movementService).reverseWithdrawals(withdrawals);
+        verify(paymentRepository).delete(payment1);
+    }
+
+    @Test
+    @DisplayName("Pay credit with a debit card when the withdrawal fails only releases the payment")
+    void payCreditWithDebitCardWhenWithdrawalFailsTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-05-02T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+
+        payment1.setTypePayer(Payment.TypePayer.DEBIT_CARD);
+        payment1.setIdPayer(debitCard1.getId());
+        payment1.setAmount(credit1.getMonthlyFee());
+        payment1.setDatePayment(LocalDateTime.now(clock));
+        payment1.setMonthCorresponding(5);
+        payment1.setYearCorresponding(2025);
+        // Given
+        when(creditService.findById(credit1.getId())).thenReturn(Mono.just(credit1));
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
+                .thenReturn(Mono.just(debitCard1));
+        when(paymentMovementService.getFundingSourcesForPay(any(), eq(45.13)))
+                .thenReturn(Mono.just(List.of(new FundingSourceDto(bankAccount1.getId(), 45.13))));
+        when(movementService.withdrawFromFundingSources(any(Movement.class), anyList()))
+                .thenReturn(Mono.error(new ServiceNotAvailableException("")));
+        when(paymentRepository.save(payment1)).thenReturn(Mono.just(payment1));
+        when(paymentRepository.delete(payment1)).thenReturn(Mono.empty());
+        // When
+        Mono<Payment> payment = paymentService.create(payment1);
+        // Then
+        StepVerifier.create(payment)
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        verify(paymentRepository).delete(payment1);
+        verify(movementService, never()).reverseWithdrawals(anyList());
+        verify(creditService, never()).update(any(), any());
+    }
+
+    @Test
+    @DisplayName("Pay credit card with a debit card when the credit card update fails reverses the withdrawals")
+    void payCreditCardWithDebitCardWhenUpdateFailsTest() {
+        ZoneId zone = ZoneId.of("UTC");
+        Instant instant = Instant.parse("2025-05-02T23:55:00Z");
+        Clock fixedClock = Clock.fixed(instant, zone);
+        when(clock.instant()).thenReturn(fixedClock.instant());
+        when(clock.getZone()).thenReturn(fixedClock.getZone());
+
+        payment1.setTypePayer(Payment.TypePayer.DEBIT_CARD);
+        payment1.setIdPayer(debitCard1.getId());
+        payment1.setIdProductCredit(creditCard1.getId());
+        payment1.setAmount(creditCard1.getTotalDebt());
+        payment1.setDatePayment(LocalDateTime.now(clock));
+        payment1.setTypeCreditProduct(Payment.TypeCreditProduct.CREDIT_CARD);
+        List<Movement> withdrawals = List.of(new Movement());
+        // Given
+        when(creditCardService.findById(creditCard1.getId())).thenReturn(Mono.just(creditCard1));
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
+                .thenReturn(Mono.just(debitCard1));
+        when(paymentMovementService.getFundingSourcesForPay(any(), eq(500.0)))
+                .thenReturn(Mono.just(List.of(new FundingSourceDto(bankAccount1.getId(), 500.0))));
+        when(movementService.withdrawFromFundingSources(any(Movement.class), anyList()))
+                .thenReturn(Mono.just(withdrawals));
+        when(creditCardService.update(creditCard1.getId(), creditCard1))
+                .thenReturn(Mono.error(new ServiceNotAvailableException("")));
+        when(movementService.reverseWithdrawals(withdrawals)).thenReturn(Mono.empty());
+        // When
+        Mono<Payment> payment = paymentService.create(payment1);
+        // Then
+        StepVerifier.create(payment)
+                .expectError(ServiceNotAvailableException.class)
+                .verify();
+        verify(movementService).reverseWithdrawals(withdrawals);
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
     @Test
     @DisplayName("Pay a credit card when no account has a balance")
     void payCreditCardWhenNoAccountHasBalanceTest() {
@@ -666,12 +848,14 @@ class PaymentServiceImpTest {
         debitCard1.setIdPrincipalAccount(bankAccount1.getId());
 
         // Given
-        debitCard1.setBankAccounts(List.of(bankAccount1, bankAccount2));
+        debitCard1.setBankAccounts(List.of(
+                new BankAccountBalanceDto(bankAccount1.getId(), bankAccount1.getBalance(), true),
+                new BankAccountBalanceDto(bankAccount2.getId(), bankAccount2.getBalance(), false)));
 
         when(creditCardService.findById(creditCard1.getId())).thenReturn(Mono.just(creditCard1));
-        when(debitCardService.findByIdWithBankAccountsOrderByCreatedAt(debitCard1.getId()))
+        when(paymentMovementService.findDebitCardSummary(debitCard1.getId()))
                 .thenReturn(Mono.just(debitCard1));
-        when(paymentMovementService.getBankAccountWithBalanceAvailableForPay(any(),eq(500.0)))
+        when(paymentMovementService.getFundingSourcesForPay(any(), eq(500.0)))
                 .thenReturn(Mono.error(new InvalidPayException("")));
         // When
         Mono<Payment> payment = paymentService.create(payment1);
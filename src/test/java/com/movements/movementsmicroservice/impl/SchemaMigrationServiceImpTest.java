@@ -0,0 +1,100 @@
+package com.movements.movementsmicroservice.impl;
+
+import com.mongodb.client.result.UpdateResult;
+import com.movements.movementsmicroservice.repository.ColdStorage;
+import com.movements.movementsmicroservice.repository.MovementLayout;
+import com.movements.movementsmicroservice.repository.RecentRings;
+import com.movements.movementsmicroservice.service.impl.SchemaMigrationServiceImp;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SchemaMigrationServiceImpTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private ColdStorage coldStorage;
+    @Mock
+    private MovementLayout movementLayout;
+    @Mock
+    private RecentRings recentRings;
+
+    private SchemaMigrationServiceImp schemaMigrationService;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2025-02-20T10:00:00Z"), ZoneOffset.UTC);
+        schemaMigrationService = new SchemaMigrationServiceImp(mongoTemplate, coldStorage, movementLayout,
+                recentRings, clock, false, 500, Duration.ofMinutes(5));
+        when(movementLayout.isMixed()).thenReturn(Mono.just(true));
+        lenient().when(movementLayout.name()).thenReturn("compact");
+    }
+
+    @Test
+    @DisplayName("Another instance holding the lease runs the migration alone")
+    void migrationIsSkippedWhileAnotherInstanceHoldsTheLeaseTest() {
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("schema_migrations")))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key")));
+
+        StepVerifier.create(schemaMigrationService.migrateMovements())
+                .expectNext(Map.of())
+                .verifyComplete();
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), any(String.class));
+    }
+
+    @Test
+    @DisplayName("Migrate the hot and archive movements, drop the stale rings and mark the layout completed")
+    void migrationRewritesDocumentsAndCompletesTheMarkerTest() {
+        Document expanded = new Document("_id", "MOV1").append("idBankAccount", "IDbank001")
+                .append("typeMovement", "DEPOSIT").append("amount", 20.0);
+        when(movementLayout.isCompact()).thenReturn(true);
+        when(movementLayout.otherFieldName("typeMovement")).thenReturn("typeMovement");
+        when(coldStorage.archiveOf("movements")).thenReturn("movements_archive");
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("schema_migrations")))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("movements"))).thenReturn(Flux.just(expanded));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("movements_archive")))
+                .thenReturn(Flux.empty());
+        when(mongoTemplate.save(any(Document.class), eq("movements"))).thenAnswer(invocation ->
+                Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq("schema_migrations")))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(recentRings.dropRingsHolding("movements", "typeMovement")).thenReturn(Mono.just(2L));
+
+        StepVerifier.create(schemaMigrationService.migrateMovements())
+                .expectNext(Map.of("movements", 1L, "movements_archive", 0L, "recent_rings", 2L))
+                .verifyComplete();
+        ArgumentCaptor<Document> saved = ArgumentCaptor.forClass(Document.class);
+        verify(mongoTemplate).save(saved.capture(), eq("movements"));
+        assertThat(saved.getValue()).containsEntry("b", "IDbank001").containsEntry("t", 1);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), updates.capture(), eq("schema_migrations"));
+        assertThat(updates.getValue().getUpdateObject().get("$set", Document.class))
+                .containsEntry("completed", true);
+    }
+}
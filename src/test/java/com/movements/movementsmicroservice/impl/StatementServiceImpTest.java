@@ -0,0 +1,171 @@
+package com.movements.movementsmicroservice.impl;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.movements.movementsmicroservice.model.MonthlyStatement;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.repository.MonthlyStatementRepository;
+import com.movements.movementsmicroservice.repository.MovementRepository;
+import com.movements.movementsmicroservice.service.impl.StatementServiceImp;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.DEPOSIT;
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.WITHDRAWAL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementServiceImpTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private MonthlyStatementRepository monthlyStatementRepository;
+    @Mock
+    private MovementRepository movementRepository;
+
+    private StatementServiceImp statementService;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2024-03-15T10:00:00Z"), ZoneOffset.UTC);
+        statementService = new StatementServiceImp(mongoTemplate, monthlyStatementRepository,
+                movementRepository, clock);
+    }
+
+    @Test
+    @DisplayName("A movement of the present month is added to its snapshot")
+    void recordMovementInPresentMonthTest() {
+        Movement movement = movement(WITHDRAWAL, 100.0, 2.0, LocalDateTime.of(2024, 3, 10, 9, 0));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(MonthlyStatement.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(statementService.recordMovement(movement, 898.0))
+                .verifyComplete();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(MonthlyStatement.class));
+        Document document = update.getValue().getUpdateObject();
+        assertThat(document.get("$setOnInsert", Document.class).get("openingBalance")).isEqualTo(1000.0);
+        assertThat(document.get("$inc", Document.class).get("totalsByType.WITHDRAWAL")).isEqualTo(100.0);
+        assertThat(document.get("$set", Document.class).get("closingBalance")).isEqualTo(898.0);
+    }
+
+    @Test
+    @DisplayName("A movement dated in another month drops that snapshot and the later ones")
+    void recordMovementInPastMonthTest() {
+        Movement movement = movement(DEPOSIT, 50.0, 0.0, LocalDateTime.of(2024, 1, 20, 9, 0));
+        when(mongoTemplate.remove(any(Query.class), eq(MonthlyStatement.class)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(3)));
+
+        StepVerifier.create(statementService.recordMovement(movement, 550.0))
+                .verifyComplete();
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(MonthlyStatement.class));
+        assertThat(removed.getValue().getQueryObject()).containsEntry("idBankAccount", "IDbank001")
+                .containsEntry("period", new Document("$gte", 202401));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(MonthlyStatement.class));
+    }
+
+    @Test
+    @DisplayName("A missing month is rebuilt once from its raw movements")
+    void findStatementsRebuildsMissingMonthTest() {
+        MonthlyStatement january = new MonthlyStatement();
+        january.setId("IDbank001:2024-01");
+        january.setPeriod(202401);
+        january.setClosingBalance(500.0);
+        when(monthlyStatementRepository.findAllByIdBankAccountAndPeriodBetweenOrderByPeriod(
+                "IDbank001", 202401, 202402)).thenReturn(Flux.just(january));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(eq("IDbank001"), any(), any()))
+                .thenReturn(Flux.just(
+                        movement(DEPOSIT, 200.0, 0.0, LocalDateTime.of(2024, 2, 3, 9, 0)),
+                        movement(WITHDRAWAL, 50.0, 1.0, LocalDateTime.of(2024, 2, 9, 9, 0))));
+        when(monthlyStatementRepository.insert(any(MonthlyStatement.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(statementService.findStatements("IDbank001", YearMonth.of(2024, 2),
+                        YearMonth.of(2024, 2)))
+                .assertNext(statement -> {
+                    assertThat(statement.getOpeningBalance()).isEqualTo(500.0);
+                    assertThat(statement.getClosingBalance()).isEqualTo(649.0);
+                    assertThat(statement.getCount()).isEqualTo(2);
+                    assertThat(statement.isClosed()).isTrue();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A month older than the statements is backfilled from the next snapshot with an opening balance")
+    void findStatementsBackfillsHistoryOlderThanTheSnapshotsTest() {
+        MonthlyStatement march = new MonthlyStatement();
+        march.setId("IDbank001:2024-03");
+        march.setPeriod(202403);
+        march.setOpeningBalance(1000.0);
+        when(monthlyStatementRepository.findAllByIdBankAccountAndPeriodBetweenOrderByPeriod(
+                "IDbank001", 202401, 202402)).thenReturn(Flux.empty());
+        when(monthlyStatementRepository
+                .findFirstByIdBankAccountAndPeriodGreaterThanEqualAndOpeningBalanceIsNotNullOrderByPeriod(
+                        "IDbank001", 202402)).thenReturn(Mono.just(march));
+        when(movementRepository.findAllByIdBankAccountAndDateBetween(eq("IDbank001"), any(), any()))
+                .thenReturn(Flux.just(
+                        movement(DEPOSIT, 200.0, 0.0, LocalDateTime.of(2024, 2, 3, 9, 0)),
+                        movement(WITHDRAWAL, 50.0, 1.0, LocalDateTime.of(2024, 2, 9, 9, 0))));
+        when(monthlyStatementRepository.insert(any(MonthlyStatement.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(statementService.findStatements("IDbank001", YearMonth.of(2024, 2),
+                        YearMonth.of(2024, 2)))
+                .assertNext(statement -> {
+                    assertThat(statement.getOpeningBalance()).isEqualTo(851.0);
+                    assertThat(statement.getClosingBalance()).isEqualTo(1000.0);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A month without any known balance is skipped and not stored")
+    void findStatementsSkipsMonthsWithoutKnownBalanceTest() {
+        when(monthlyStatementRepository.findAllByIdBankAccountAndPeriodBetweenOrderByPeriod(
+                "IDbank001", 202401, 202402)).thenReturn(Flux.empty());
+        when(monthlyStatementRepository
+                .findFirstByIdBankAccountAndPeriodGreaterThanEqualAndOpeningBalanceIsNotNullOrderByPeriod(
+                        "IDbank001", 202402)).thenReturn(Mono.empty());
+
+        StepVerifier.create(statementService.findStatements("IDbank001", YearMonth.of(2024, 2),
+                        YearMonth.of(2024, 2)))
+                .verifyComplete();
+        verify(monthlyStatementRepository, never()).insert(any(MonthlyStatement.class));
+    }
+
+    private Movement movement(Movement.TypeMovement type, Double amount, Double commission, LocalDateTime date) {
+        Movement movement = new Movement();
+        movement.setIdBankAccount("IDbank001");
+        movement.setTypeMovement(type);
+        movement.setAmount(amount);
+        movement.setCommissionAmount(commission);
+        movement.setDate(date);
+        return movement;
+    }
+}
@@ -0,0 +1,105 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.config.CompactFieldNamingStrategy;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.utils.Converters;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.PAY_CREDIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class CompactMovementSchemaTest {
+
+    @Test
+    void compactConverterWritesShortNamesAndTypeCodesTest() {
+        MappingMongoConverter converter = converter();
+        Movement movement = new Movement();
+        movement.setIdBankAccount("IDbank001");
+        movement.setTypeMovement(Movement.TypeMovement.TRANSFER);
+        movement.setAmount(150.0);
+        movement.setCreatedAt(LocalDateTime.of(2024, 5, 1, 10, 0));
+
+        Document document = new Document();
+        converter.write(movement, document);
+
+        assertThat(document).containsEntry("b", "IDbank001").containsEntry("t", 3).containsEntry("a", 150.0)
+                .doesNotContainKeys("idBankAccount", "typeMovement");
+        assertThat(StoredFields.of(converter, Movement.class, "createdAt")).isEqualTo("k");
+        Movement read = converter.read(Movement.class, document);
+        assertThat(read.getTypeMovement()).isEqualTo(Movement.TypeMovement.TRANSFER);
+        assertThat(read.getIdBankAccount()).isEqualTo("IDbank001");
+    }
+
+    @Test
+    void migrationRoundTripKeepsEveryValueTest() {
+        Document expanded = new Document("_id", "MOV1")
+                .append("idBankAccount", "IDbank001")
+                .append("typeMovement", "DEPOSIT")
+                .append("amount", 20.0)
+                .append("commissionAmount", 0.0)
+                .append("idBankAccountTransfer", "")
+                .append("idTransfer", "");
+
+        Document compact = CompactMovementSchema.toCompact(expanded);
+
+        assertThat(compact).containsEntry("_id", "MOV1").containsEntry("b", "IDbank001").containsEntry("t", 1)
+                .doesNotContainKeys("c", "x", "r");
+        assertThat(CompactMovementSchema.toExpanded(compact)).isEqualTo(expanded);
+    }
+
+    @Test
+    void documentsOfTheOtherLayoutAreQueriedAndReadWithTheirOwnNamesTest() {
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter());
+        MovementLayout layout = new MovementLayout(mongoTemplate, true);
+        Query newestDebits = query(where("idBankAccount").is("IDbank001").and("typeMovement").in(PAY_CREDIT))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt")).limit(5);
+
+        Query other = layout.otherLayoutOf(newestDebits);
+
+        assertThat(other.getQueryObject()).containsEntry("idBankAccount", "IDbank001")
+                .containsEntry("typeMovement", new Document("$in", List.of("PAY_CREDIT")));
+        assertThat(other.getSortObject()).containsEntry("createdAt", -1);
+        assertThat(other.getLimit()).isEqualTo(5);
+        assertThat(layout.otherLayoutOf(query(where("idBankAccount").is("IDbank001"))).getQueryObject())
+                .containsEntry("typeMovement", new Document("$exists", true));
+
+        Movement read = layout.read(new Document("_id", "MOV1")
+                .append("idBankAccount", "IDbank001")
+                .append("typeMovement", "PAY_CREDIT")
+                .append("amount", 20.0)
+                .append("commissionAmount", 0.0)
+                .append("idBankAccountTransfer", "")
+                .append("idTransfer", ""));
+        assertThat(read.getIdBankAccount()).isEqualTo("IDbank001");
+        assertThat(read.getTypeMovement()).isEqualTo(PAY_CREDIT);
+        assertThat(read.getCommissionAmount()).isEqualTo(0.0);
+    }
+
+    private MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of(
+                new Converters.TypeMovementCodeReadConverter(), new Converters.TypeMovementCodeWriteConverter()));
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.setFieldNamingStrategy(new CompactFieldNamingStrategy());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
@@ -0,0 +1,101 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.mongodb.MongoException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerTransactionsTest {
+
+    @Mock
+    private ReactiveTransactionManager transactionManager;
+
+    private LedgerTransactions ledgerTransactions;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getReactiveTransaction(any()))
+                .thenReturn(Mono.just(mock(ReactiveTransaction.class)));
+        lenient().when(transactionManager.commit(any())).thenReturn(Mono.empty());
+        lenient().when(transactionManager.rollback(any())).thenReturn(Mono.empty());
+        ledgerTransactions = new LedgerTransactions(transactionManager, true, 3);
+    }
+
+    @Test
+    void transientTransactionErrorsRunTheTransactionAgainTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> writes = Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(labelled(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL))
+                : Mono.just("committed"));
+
+        StepVerifier.create(ledgerTransactions.write(writes))
+                .expectNext("committed")
+                .verifyComplete();
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void unknownCommitResultsTranslatedBySpringRunTheTransactionAgainTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> writes = Mono.defer(() -> attempts.incrementAndGet() < 2
+                ? Mono.error(new UncategorizedMongoDbException("Commit result unknown",
+                        labelled(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)))
+                : Mono.just("committed"));
+
+        StepVerifier.create(ledgerTransactions.write(writes))
+                .expectNext("committed")
+                .verifyComplete();
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void otherErrorsAreNotRetriedTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> writes = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new DataIntegrityViolationException("Duplicate key"));
+        });
+
+        StepVerifier.create(ledgerTransactions.write(writes))
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void retriesStopAfterTheConfiguredMaximumTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> writes = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(labelled(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL));
+        });
+
+        StepVerifier.create(ledgerTransactions.write(writes))
+                .expectError(MongoException.class)
+                .verify();
+        assertThat(attempts).hasValue(4);
+    }
+
+    private MongoException labelled(String label) {
+        MongoException exception = new MongoException("Write conflict");
+        exception.addLabel(label);
+        return exception;
+    }
+}
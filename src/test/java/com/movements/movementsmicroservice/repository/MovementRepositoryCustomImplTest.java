@@ -0,0 +1,280 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.MovementDayBucket;
+import com.movements.movementsmicroservice.model.MovementEntry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.DEPOSIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovementRepositoryCustomImplTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private ColdStorage coldStorage;
+    @Mock
+    private RecentRings recentRings;
+    @Mock
+    private MovementLayout layout;
+
+    private ReportingReads reads;
+    private MovementRepositoryCustomImpl movementRepository;
+
+    @BeforeEach
+    void setUp() {
+        reads = new ReportingReads(mongoTemplate, mongoTemplate);
+        lenient().when(layout.isMixed()).thenReturn(Mono.just(false));
+        Clock clock = Clock.fixed(Instant.parse("2025-02-20T10:00:00Z"), ZoneId.of("UTC"));
+        movementRepository = new MovementRepositoryCustomImpl(mongoTemplate, reads, coldStorage, recentRings, layout,
+                new LedgerTransactions(null, false, 3), clock, true);
+    }
+
+    @Test
+    @DisplayName("Save a new movement in the bucket of its account and day")
+    void saveNewMovementInBucketTest() {
+        Movement movement = movement(null, LocalDateTime.of(2025, 2, 20, 9, 30));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(movementRepository.save(movement))
+                .assertNext(saved -> {
+                    assertThat(saved.getId()).isNotNull();
+                    assertThat(saved.getCreatedAt()).isEqualTo(LocalDateTime.of(2025, 2, 20, 10, 0));
+                })
+                .verifyComplete();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(query.capture(), any(Update.class), eq(MovementDayBucket.class));
+        assertThat(query.getValue().getQueryObject().get("_id")).isEqualTo("IDbank001:2025-02-20");
+    }
+
+    @Test
+    @DisplayName("Push a movement moved to another day to its new bucket before pulling it from the old one")
+    void saveMovementOfAnotherDayPushesBeforePullingTest() {
+        Movement movement = movement("M1", LocalDateTime.of(2025, 2, 21, 9, 30));
+        movement.setCreatedAt(LocalDateTime.of(2025, 2, 20, 9, 30));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(coldStorage.updateMulti(any(Query.class), any(Update.class), eq("movement_day_buckets")))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(movementRepository.save(movement))
+                .expectNext(movement)
+                .verifyComplete();
+        InOrder inOrder = inOrder(mongoTemplate);
+        inOrder.verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(MovementDayBucket.class));
+        ArgumentCaptor<Query> pulled = ArgumentCaptor.forClass(Query.class);
+        inOrder.verify(mongoTemplate).updateMulti(pulled.capture(), any(Update.class), eq(MovementDayBucket.class));
+        assertThat(pulled.getValue().getQueryObject().get("_id", Document.class))
+                .containsEntry("$ne", "IDbank001:2025-02-21");
+    }
+
+    @Test
+    @DisplayName("An update of an archived movement pulls its archived copy, even from a bucket of the same day")
+    void saveArchivedMovementPullsTheArchivedCopyTest() {
+        Movement movement = movement("M1", LocalDateTime.of(2023, 5, 2, 9, 30));
+        movement.setCreatedAt(LocalDateTime.of(2023, 5, 2, 9, 30));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(coldStorage.updateMulti(any(Query.class), any(Update.class), eq("movement_day_buckets")))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(movementRepository.save(movement))
+                .expectNext(movement)
+                .verifyComplete();
+        ArgumentCaptor<Query> archived = ArgumentCaptor.forClass(Query.class);
+        verify(coldStorage).updateMulti(archived.capture(), any(Update.class), eq("movement_day_buckets"));
+        assertThat(archived.getValue().getQueryObject()).containsEntry("movements.i", "M1").doesNotContainKey("_id");
+    }
+
+    @Test
+    @DisplayName("A deleted movement is pulled from the hot and the archived day buckets")
+    void deleteByIdPullsFromTheArchivedBucketsTest() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(MovementDayBucket.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(coldStorage.updateMulti(any(Query.class), any(Update.class), eq("movement_day_buckets")))
+                .thenReturn(Mono.empty());
+        when(recentRings.forget("M1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(movementRepository.deleteById("M1"))
+                .verifyComplete();
+        ArgumentCaptor<Update> pull = ArgumentCaptor.forClass(Update.class);
+        verify(coldStorage).updateMulti(any(Query.class), pull.capture(), eq("movement_day_buckets"));
+        assertThat(pull.getValue().getUpdateObject()).containsKey("$pull");
+    }
+
+    @Test
+    @DisplayName("Count the movements of the day buckets and not the flat collection")
+    void countMovementsOfTheBucketsTest() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(MovementDayBucket.class), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("total", 7)));
+
+        StepVerifier.create(movementRepository.count())
+                .expectNext(7L)
+                .verifyComplete();
+        verify(mongoTemplate, never()).count(any(Query.class), eq(Movement.class));
+    }
+
+    @Test
+    @DisplayName("Read only the movements strictly inside the range from the day buckets")
+    void findByAccountAndRangeFromBucketsTest() {
+        MovementDayBucket bucket = new MovementDayBucket();
+        bucket.setId(MovementDayBucket.bucketId("IDbank001", LocalDate.of(2025, 2, 20)));
+        bucket.setIdBankAccount("IDbank001");
+        bucket.setDay(LocalDate.of(2025, 2, 20));
+        bucket.setMovements(List.of(
+                MovementEntry.from(movement("M1", LocalDateTime.of(2025, 2, 20, 8, 0))),
+                MovementEntry.from(movement("M2", LocalDateTime.of(2025, 2, 20, 12, 0)))));
+        when(mongoTemplate.find(any(Query.class), eq(MovementDayBucket.class))).thenReturn(Flux.just(bucket));
+        when(coldStorage.isNeededFrom(any())).thenReturn(false);
+
+        StepVerifier.create(movementRepository.findAllByIdBankAccountAndDateBetween("IDbank001",
+                        LocalDateTime.of(2025, 2, 20, 10, 0), LocalDateTime.of(2025, 2, 21, 0, 0)))
+                .assertNext(found -> {
+                    assertThat(found.getId()).isEqualTo("M2");
+                    assertThat(found.getIdBankAccount()).isEqualTo("IDbank001");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Insert the new movements of a transfer with a single insert command")
+    void saveAllNewMovementsWithOneInsertTest() {
+        MovementRepositoryCustomImpl flatRepository = new MovementRepositoryCustomImpl(mongoTemplate, reads,
+                coldStorage, recentRings, layout, new LedgerTransactions(null, false, 3), Clock.systemUTC(), false);
+        List<Movement> transfer = List.of(movement(null, LocalDateTime.of(2025, 2, 20, 8, 0)),
+                movement(null, LocalDateTime.of(2025, 2, 20, 8, 0)));
+        when(mongoTemplate.insertAll(transfer)).thenReturn(Flux.fromIterable(transfer));
+
+        StepVerifier.create(flatRepository.saveAll(transfer))
+                .expectNextCount(2)
+                .verifyComplete();
+        verify(mongoTemplate, never()).save(any(Movement.class));
+    }
+
+    @Test
+    @DisplayName("Add archived movements only when the range starts before the archive cutoff")
+    void findByAccountAndRangeWithArchiveTest() {
+        MovementRepositoryCustomImpl flatRepository = new MovementRepositoryCustomImpl(mongoTemplate, reads,
+                coldStorage, recentRings, layout, new LedgerTransactions(null, false, 3), Clock.systemUTC(), false);
+        Movement hot = movement("M1", LocalDateTime.of(2025, 2, 20, 8, 0));
+        Movement cold = movement("M0", LocalDateTime.of(2023, 5, 2, 8, 0));
+        when(mongoTemplate.find(any(Query.class), eq(Movement.class))).thenReturn(Flux.just(hot));
+        when(coldStorage.isNeededFrom(LocalDateTime.of(2023, 1, 1, 0, 0))).thenReturn(true);
+        when(coldStorage.find(any(Query.class), eq(Movement.class), eq("movements"))).thenReturn(Flux.just(cold));
+
+        StepVerifier.create(flatRepository.findAllByIdBankAccountAndDateBetween("IDbank001",
+                        LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2025, 3, 1, 0, 0)))
+                .expectNext(hot, cold)
+                .verifyComplete();
+        verify(coldStorage).find(any(Query.class), eq(Movement.class), eq("movements"));
+    }
+
+    @Test
+    @DisplayName("Merge one cursor per bank account newest first and stop at the limit")
+    void findNewestDebitMergesAccountCursorsTest() {
+        MovementRepositoryCustomImpl flatRepository = new MovementRepositoryCustomImpl(mongoTemplate, reads,
+                coldStorage, recentRings, layout, new LedgerTransactions(null, false, 3), Clock.systemUTC(), false);
+        Movement first = movement("M1", LocalDateTime.of(2025, 2, 20, 8, 0));
+        Movement second = movement("M2", LocalDateTime.of(2025, 2, 19, 8, 0));
+        Movement third = movement("M3", LocalDateTime.of(2025, 2, 18, 8, 0));
+        first.setCreatedAt(first.getDate());
+        second.setCreatedAt(second.getDate());
+        third.setCreatedAt(third.getDate());
+        when(recentRings.covers(2)).thenReturn(false);
+        when(mongoTemplate.find(any(Query.class), eq(Movement.class))).thenAnswer(invocation -> {
+            Query cursor = invocation.getArgument(0);
+            return "IDbank001".equals(cursor.getQueryObject().get("idBankAccount"))
+                    ? Flux.just(first, third)
+                    : Flux.just(second);
+        });
+        lenient().when(coldStorage.find(any(Query.class), eq(Movement.class), eq("movements")))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(flatRepository.findNewestDebitByIdBankAccountIn(List.of("IDbank001", "IDbank002"), 2))
+                .expectNext(first, second)
+                .verifyComplete();
+        ArgumentCaptor<Query> cursors = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(cursors.capture(), eq(Movement.class));
+        assertThat(cursors.getAllValues()).allSatisfy(cursor -> {
+            assertThat(cursor.getLimit()).isEqualTo(2);
+            assertThat(cursor.getQueryObject()).containsKey("typeMovement");
+        });
+    }
+
+    @Test
+    @DisplayName("Read the movements not migrated yet with a query in their own layout")
+    void findInBothLayoutsUntilTheMigrationIsCompletedTest() {
+        MovementRepositoryCustomImpl flatRepository = new MovementRepositoryCustomImpl(mongoTemplate, reads,
+                coldStorage, recentRings, layout, new LedgerTransactions(null, false, 3), Clock.systemUTC(), false);
+        Movement current = movement("M1", LocalDateTime.of(2025, 2, 20, 8, 0));
+        Movement notMigrated = movement("M0", LocalDateTime.of(2025, 2, 19, 8, 0));
+        Document stored = new Document("_id", "M0");
+        Query otherLayout = new Query();
+        when(layout.isMixed()).thenReturn(Mono.just(true));
+        when(layout.currentLayoutOf(any(Query.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(layout.otherLayoutOf(any(Query.class))).thenReturn(otherLayout);
+        when(layout.read(stored)).thenReturn(notMigrated);
+        when(mongoTemplate.find(any(Query.class), eq(Movement.class))).thenReturn(Flux.just(current));
+        when(mongoTemplate.find(otherLayout, Document.class, "movements")).thenReturn(Flux.just(stored));
+        when(coldStorage.find(any(Query.class), eq(Movement.class), eq("movements"))).thenReturn(Flux.empty());
+        when(coldStorage.find(otherLayout, Document.class, "movements")).thenReturn(Flux.empty());
+
+        StepVerifier.create(flatRepository.findAllByIdBankAccount("IDbank001"))
+                .expectNext(current, notMigrated)
+                .verifyComplete();
+    }
+
+    private Movement movement(String id, LocalDateTime date) {
+        Movement movement = new Movement();
+        movement.setId(id);
+        movement.setIdBankAccount("IDbank001");
+        movement.setTypeMovement(DEPOSIT);
+        movement.setAmount(100.0);
+        movement.setDescription("Deposit");
+        movement.setIdBankAccountTransfer("");
+        movement.setDate(date);
+        return movement;
+    }
+}
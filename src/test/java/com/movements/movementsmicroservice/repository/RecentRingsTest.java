@@ -0,0 +1,139 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import com.movements.movementsmicroservice.model.Movement;
+import com.movements.movementsmicroservice.model.RecentRing;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static com.movements.movementsmicroservice.model.Movement.TypeMovement.PAY_CREDIT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentRingsTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private MappingMongoConverter converter;
+    private RecentRings recentRings;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        recentRings = new RecentRings(mongoTemplate, new MovementLayout(mongoTemplate, false), true, 10);
+    }
+
+    @Test
+    @DisplayName("Rings are merged newest first and a missing ring is filled from its collection")
+    void newestMergesRingsAndFillsMissingTest() {
+        Movement newest = movement("MOV3", "IDbank001", 3);
+        Movement oldest = movement("MOV1", "IDbank001", 1);
+        Movement middle = movement("MOV2", "IDbank002", 2);
+        RecentRing ring = new RecentRing();
+        ring.setId("movements:IDbank001");
+        ring.setEntries(List.of(entry(newest), entry(oldest)));
+        when(mongoTemplate.find(any(Query.class), eq(RecentRing.class))).thenReturn(Flux.just(ring));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(RecentRing.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(RecentRing.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(recentRings.newest("movements", List.of("IDbank001", "IDbank002"), Movement.class,
+                        Movement::getCreatedAt, idBankAccount -> Flux.just(middle), 2))
+                .assertNext(movement -> assertThat(movement.getId()).isEqualTo("MOV3"))
+                .assertNext(movement -> assertThat(movement.getId()).isEqualTo("MOV2"))
+                .verifyComplete();
+
+        ArgumentCaptor<Query> filled = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> merge = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(filled.capture(), merge.capture(), eq(RecentRing.class));
+        assertThat(filled.getValue().getQueryObject().get("_id")).isEqualTo("movements:IDbank002");
+        assertThat(merge.getValue().getUpdateObject()).containsKey("$push").doesNotContainKey("$setOnInsert");
+        assertThat(merge.getValue().getUpdateObject().get("$set", Document.class)).containsEntry("filled", true);
+    }
+
+    @Test
+    @DisplayName("A record pushed while the ring was filled is read once")
+    void newestSkipsRepeatedEntriesTest() {
+        Movement newest = movement("MOV3", "IDbank001", 3);
+        Movement oldest = movement("MOV1", "IDbank001", 1);
+        RecentRing ring = new RecentRing();
+        ring.setId("movements:IDbank001");
+        ring.setFilled(true);
+        ring.setEntries(List.of(entry(newest), entry(newest), entry(oldest)));
+        when(mongoTemplate.find(any(Query.class), eq(RecentRing.class))).thenReturn(Flux.just(ring));
+
+        StepVerifier.create(recentRings.newest("movements", List.of("IDbank001"), Movement.class,
+                        Movement::getCreatedAt, idBankAccount -> Flux.empty(), 10))
+                .assertNext(movement -> assertThat(movement.getId()).isEqualTo("MOV3"))
+                .assertNext(movement -> assertThat(movement.getId()).isEqualTo("MOV1"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("An updated record replaces its previous entry in the ring, which is created when missing")
+    void recordExistingPullsPreviousEntryTest() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(RecentRing.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(RecentRing.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(recentRings.record("movements", "IDbank001", movement("MOV1", "IDbank001", 1), true))
+                .verifyComplete();
+
+        ArgumentCaptor<Update> pull = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<Update> push = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), pull.capture(), eq(RecentRing.class));
+        verify(mongoTemplate).upsert(any(Query.class), push.capture(), eq(RecentRing.class));
+        assertThat(pull.getValue().getUpdateObject()).containsKey("$pull");
+        assertThat(push.getValue().getUpdateObject()).containsKey("$push");
+        assertThat(push.getValue().getUpdateObject().get("$setOnInsert", Document.class))
+                .containsEntry("filled", false);
+    }
+
+    private Document entry(Movement movement) {
+        Document entry = new Document();
+        converter.write(movement, entry);
+        return entry;
+    }
+
+    private Movement movement(String id, String idBankAccount, int minute) {
+        Movement movement = new Movement();
+        movement.setId(id);
+        movement.setIdBankAccount(idBankAccount);
+        movement.setTypeMovement(PAY_CREDIT);
+        movement.setAmount(10.0);
+        movement.setCreatedAt(LocalDateTime.of(2025, 2, 20, 9, minute));
+        return movement;
+    }
+}
@@ -0,0 +1,74 @@
+package com.movements.movementsmicroservice.repository;
+
+import com.movements.movementsmicroservice.model.Movement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportingReadsTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+    @Mock
+    private ReactiveMongoTemplate reportingMongoTemplate;
+
+    private ReportingReads reads;
+
+    @BeforeEach
+    void setUp() {
+        reads = new ReportingReads(mongoTemplate, reportingMongoTemplate);
+    }
+
+    @Test
+    void readsUseThePrimaryTemplateByDefaultTest() {
+        when(mongoTemplate.find(any(Query.class), eq(Movement.class))).thenReturn(Flux.just(new Movement()));
+
+        StepVerifier.create(reads.find(new Query(), Movement.class))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(reportingMongoTemplate, never()).find(any(Query.class), eq(Movement.class));
+    }
+
+    @Test
+    void annotatedMethodReadsFromTheReportingTemplateTest() {
+        when(reportingMongoTemplate.find(any(Query.class), eq(Movement.class))).thenReturn(Flux.just(new Movement()));
+        ProxyFactory proxyFactory = new ProxyFactory(new Listings(reads));
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(
+                new AnnotationMatchingPointcut(null, ReportingRead.class, true), ReportingReads.interceptor()));
+        Listings listings = (Listings) proxyFactory.getProxy();
+
+        StepVerifier.create(listings.all())
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Movement.class));
+    }
+
+    static class Listings {
+        private final ReportingReads reads;
+
+        Listings(ReportingReads reads) {
+            this.reads = reads;
+        }
+
+        @ReportingRead
+        public Flux<Movement> all() {
+            return reads.find(new Query(), Movement.class);
+        }
+    }
+}
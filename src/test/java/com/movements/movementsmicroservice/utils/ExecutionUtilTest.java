@@ -0,0 +1,46 @@
+package com.movements.movementsmicroservice.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExecutionUtilTest {
+
+    @Test
+    @DisplayName("Sorting runs on the compute scheduler, not on the subscribing thread")
+    void sortedOnComputeSchedulerTest() {
+        StepVerifier.create(ExecutionUtil.sorted(Flux.just(3, 1, 2), Comparator.reverseOrder())
+                        .map(value -> Thread.currentThread().getName() + ":" + value)
+                        .collectList())
+                .assertNext(values -> assertThat(values)
+                        .allMatch(value -> value.startsWith("parallel-"))
+                        .extracting(value -> value.substring(value.indexOf(':') + 1))
+                        .containsExactly("3", "2", "1"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A blocking call on the compute scheduler is detected")
+    void blockingCallOnComputeSchedulerTest() {
+        StepVerifier.create(ExecutionUtil.compute(Mono.just(List.of(1)))
+                        .map(values -> {
+                            try {
+                                Thread.sleep(Duration.ofMillis(1).toMillis());
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return values;
+                        }))
+                .expectError(BlockingOperationError.class)
+                .verify();
+    }
+}
@@ -0,0 +1,118 @@
+package com.movements.movementsmicroservice.validation;
+
+import com.movements.movementsmicroservice.DTO.BankAccountDto;
+import com.movements.movementsmicroservice.DTO.FundingSourceDto;
+import com.movements.movementsmicroservice.exceptions.UnsupportedMovementException;
+import com.movements.movementsmicroservice.model.Movement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MovementPreValidationsTest {
+    private SimpleMeterRegistry meterRegistry;
+    private AccountMetadataCache accountMetadataCache;
+    private MovementPreValidations movementPreValidations;
+    private Movement movement;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        accountMetadataCache = new AccountMetadataCache(100, 60);
+        movementPreValidations = new MovementPreValidations(
+                new PreValidationStage(meterRegistry), accountMetadataCache,
+                Clock.fixed(Instant.parse("2025-02-20T10:00:00Z"), ZoneOffset.UTC), 5000.0);
+        movement = new Movement();
+        movement.setIdBankAccount("IDbank001");
+        movement.setTypeMovement(Movement.TypeMovement.WITHDRAWAL);
+        movement.setAmount(100.0);
+    }
+
+    @Test
+    @DisplayName("A valid movement passes through unchanged")
+    void validMovementTest() {
+        StepVerifier.create(movementPreValidations.validateCreate(movement))
+                .expectNext(movement)
+                .verifyComplete();
+        assertThat(meterRegistry.find("movements.prevalidation.rejections").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("A transfer to the same account is rejected and counted")
+    void transferToSameAccountTest() {
+        movement.setTypeMovement(Movement.TypeMovement.TRANSFER);
+        movement.setIdBankAccountTransfer("IDbank001");
+
+        StepVerifier.create(movementPreValidations.validateCreate(movement))
+                .expectError(UnsupportedMovementException.class)
+                .verify();
+        assertThat(meterRegistry.get("movements.prevalidation.rejections")
+                .tag("operation", "movement-create")
+                .tag("code", "UNSUPPORTED_MOVEMENT")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("movements.prevalidation.saved-calls").counter().count()).isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("A withdrawal above the configured ceiling is rejected as unsupported")
+    void amountAboveCeilingTest() {
+        movement.setAmount(5000.01);
+
+        StepVerifier.create(movementPreValidations.validateCreate(movement))
+                .expectError(UnsupportedMovementException.class)
+                .verify();
+        assertThat(meterRegistry.get("movements.prevalidation.rejections")
+                .tag("code", "UNSUPPORTED_MOVEMENT")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("A known fixed-term account outside its payment day is rejected")
+    void fixedTermAccountOutsidePaymentDayTest() {
+        BankAccountDto fixedTermAccount = new BankAccountDto();
+        fixedTermAccount.setId("IDbank001");
+        fixedTermAccount.setTypeBankAccount(BankAccountDto.TypeBankAccount.FIXED_TERM_ACCOUNT);
+        fixedTermAccount.setExpirationDate(28);
+        accountMetadataCache.remember(fixedTermAccount);
+
+        StepVerifier.create(movementPreValidations.validateCreate(movement))
+                .expectError(UnsupportedMovementException.class)
+                .verify();
+        assertThat(meterRegistry.get("movements.prevalidation.saved-calls").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("A rejected split withdrawal counts the reads of every leg")
+    void rejectedSplitWithdrawalCountsEveryLegTest() {
+        movement.setAmount(0.0);
+
+        StepVerifier.create(movementPreValidations.validateWithdrawal(movement, List.of(
+                        new FundingSourceDto("IDbank001", 60.0),
+                        new FundingSourceDto("IDbank002", 40.0))))
+                .expectError(UnsupportedMovementException.class)
+                .verify();
+        assertThat(meterRegistry.get("movements.prevalidation.saved-calls").counter().count()).isEqualTo(6.0);
+    }
+
+    @Test
+    @DisplayName("A known fixed-term account on its payment day passes")
+    void fixedTermAccountOnPaymentDayTest() {
+        BankAccountDto fixedTermAccount = new BankAccountDto();
+        fixedTermAccount.setId("IDbank001");
+        fixedTermAccount.setTypeBankAccount(BankAccountDto.TypeBankAccount.FIXED_TERM_ACCOUNT);
+        fixedTermAccount.setExpirationDate(20);
+        accountMetadataCache.remember(fixedTermAccount);
+
+        StepVerifier.create(movementPreValidations.validateCreate(movement))
+                .expectNext(movement)
+                .verifyComplete();
+    }
+}